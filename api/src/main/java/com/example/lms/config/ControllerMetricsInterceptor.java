@@ -0,0 +1,111 @@
+package com.example.lms.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every handler method under com.example.lms.controller and records how many
+ * SQL statements it issued, flagging likely N+1 patterns above a threshold.
+ * <p>
+ * Statements are counted per thread, so an async handler (Callable, StreamingResponseBody)
+ * stops counting when the request thread is released and resumes on the dispatch that
+ * completes it; statements run on the async worker itself are not counted.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ControllerMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String CONTROLLER_PACKAGE = "com.example.lms.controller";
+    private static final String START_ATTRIBUTE = ControllerMetricsInterceptor.class.getName() + ".start";
+    private static final String QUERIES_ATTRIBUTE = ControllerMetricsInterceptor.class.getName() + ".queries";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.metrics.n-plus-one-threshold:20}")
+    private int nPlusOneThreshold;
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull Object handler) {
+        if (isInstrumented(handler)) {
+            // An async dispatch continues the request started by the first one
+            if (request.getAttribute(START_ATTRIBUTE) == null) {
+                request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+            }
+            QueryCounter.start();
+        }
+        return true;
+    }
+
+    /**
+     * The request thread goes back to the pool: keep what it counted and clear its counter
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                               @NonNull Object handler) {
+        if (request.getAttribute(START_ATTRIBUTE) != null) {
+            request.setAttribute(QUERIES_ATTRIBUTE, countedBefore(request) + QueryCounter.stop());
+        }
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        if (!(request.getAttribute(START_ATTRIBUTE) instanceof Long start) || !(handler instanceof HandlerMethod method)) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        int queries = countedBefore(request) + QueryCounter.stop();
+
+        String controller = method.getBeanType().getSimpleName();
+        String action = method.getMethod().getName();
+
+        Timer.builder("lms.controller.requests")
+                .description("Controller method latency, including response serialization")
+                .tag("controller", controller)
+                .tag("method", action)
+                .tag("status", String.valueOf(response.getStatus()))
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+
+        DistributionSummary.builder("lms.controller.db.queries")
+                .description("SQL statements issued per controller call")
+                .tag("controller", controller)
+                .tag("method", action)
+                .register(meterRegistry)
+                .record(queries);
+
+        if (queries > nPlusOneThreshold) {
+            Counter.builder("lms.controller.n_plus_one.suspects")
+                    .description("Controller calls that issued more statements than the N+1 threshold")
+                    .tag("controller", controller)
+                    .tag("method", action)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("Possible N+1 in {}.{}: {} SQL statements for {} {}",
+                    controller, action, queries, request.getMethod(), request.getRequestURI());
+        }
+    }
+
+    private static int countedBefore(HttpServletRequest request) {
+        return request.getAttribute(QUERIES_ATTRIBUTE) instanceof Integer queries ? queries : 0;
+    }
+
+    private boolean isInstrumented(Object handler) {
+        return handler instanceof HandlerMethod method
+                && method.getBeanType().getPackageName().startsWith(CONTROLLER_PACKAGE);
+    }
+}
@@ -1,12 +1,16 @@
 package com.example.lms.config;
 
+import com.example.lms.entity.User;
 import com.example.lms.service.JwtService;
+import com.example.lms.service.UserPrincipalCache;
 import com.example.lms.service.UserService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -18,13 +22,34 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/**
+ * Authenticates requests carrying a Bearer token. By default the principal comes from the
+ * users table, through {@link UserPrincipalCache}, with every column of the row.
+ * <p>
+ * With {@code app.auth.self-contained-principal} the principal is built from the token's
+ * uid/role/epoch/enabled claims instead, for tokens younger than
+ * {@code app.auth.self-contained-max-age-seconds}; older tokens go through the users table.
+ * Role changes, disabling and password changes bump the auth epoch only on the node that made
+ * them, so other nodes keep accepting the old claims until the token passes that age. Keep it
+ * short when running more than one node.
+ */
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     @Lazy
     private final UserService userService;
+    private final UserPrincipalCache principalCache;
+
+    // Opt-in: trust id/role/epoch/enabled claims and skip the users lookup entirely
+    @Value("${app.auth.self-contained-principal:false}")
+    private boolean selfContainedPrincipal;
+
+    // Claims older than this are re-checked against the users table
+    @Value("${app.auth.self-contained-max-age-seconds:300}")
+    private long selfContainedMaxAgeSeconds;
 
     @Override
     protected void doFilterInternal(
@@ -35,7 +60,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
 
         // Check if Authorization header exists and starts with "Bearer "
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -46,34 +70,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         // Extract JWT token
         jwt = authHeader.substring(7);
         
-        // Enhanced JWT debugging for question endpoints
-        if (request.getRequestURI().contains("/questions")) {
-            System.out.println("=== JWT DEBUG FOR QUESTIONS ===");
-            System.out.println("Request URI: " + request.getRequestURI());
-            System.out.println("JWT Token present: " + (jwt != null && !jwt.isEmpty()));
-        }
-        System.out.println("JWT Token: " + jwt.substring(0, Math.min(20, jwt.length())) + "...");
-        
         try {
-            username = jwtService.extractUsername(jwt);
-            if (request.getRequestURI().contains("/questions")) {
-                System.out.println("Extracted username: " + username);
-            }
+            // Single signature verification; all claims come from this view
+            final JwtService.VerifiedToken token = jwtService.verify(jwt);
+            final String username = token.subject();
 
             // If username is extracted and no authentication is set in SecurityContext
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userService.loadUserByUsername(username);
-                
-                if (request.getRequestURI().contains("/questions")) {
-                    System.out.println("Loaded UserDetails: " + userDetails.getUsername());
-                    System.out.println("User Authorities: " + userDetails.getAuthorities());
-                }
+                UserDetails userDetails = loadPrincipal(token);
                 
                 // Validate token
-                if (jwtService.isTokenValid(jwt, userDetails)) {
-                    if (request.getRequestURI().contains("/questions")) {
-                        System.out.println("✅ JWT Token is valid");
-                    }
+                if (jwtService.isTokenValid(token, userDetails)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -83,23 +90,45 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                             new WebAuthenticationDetailsSource().buildDetails(request)
                     );
                     SecurityContextHolder.getContext().setAuthentication(authToken);
-                    if (request.getRequestURI().contains("/questions")) {
-                        System.out.println("✅ Authentication set in SecurityContext");
-                    }
+                    log.debug("Authenticated {} with authorities {}", username, userDetails.getAuthorities());
                 } else {
-                    if (request.getRequestURI().contains("/questions")) {
-                        System.out.println("❌ JWT Token is INVALID");
-                    }
+                    log.debug("Rejected token for {} on {}", username, request.getRequestURI());
                 }
             }
-            if (request.getRequestURI().contains("/questions")) {
-                System.out.println("=== END JWT DEBUG ===");
-            }
         } catch (Exception e) {
             // Log the error but don't block the request
-            logger.error("Cannot set user authentication: {}", e);
+            log.debug("Cannot set user authentication on {}: {}", request.getRequestURI(), e.getMessage());
         }
 
         filterChain.doFilter(request, response);
     }
+
+    private UserDetails loadPrincipal(JwtService.VerifiedToken token) {
+        String username = token.subject();
+        long iat = token.issuedAt();
+
+        if (selfContainedPrincipal && token.hasPrincipalClaims()
+                && System.currentTimeMillis() - iat <= selfContainedMaxAgeSeconds * 1000
+                && principalCache.isEpochCurrent(username, token.authEpoch())) {
+            return User.builder()
+                    .id(token.userId())
+                    .username(username)
+                    .role(User.Role.valueOf(token.role()))
+                    .enabled(token.enabled())
+                    .tokenPrincipal(true)
+                    .build();
+        }
+
+        User cached = principalCache.get(username, iat);
+        if (cached != null) {
+            return cached;
+        }
+
+        UserDetails userDetails = this.userService.loadUserByUsername(username);
+        if (userDetails instanceof User user) {
+            // The loaded row is not handed out; requests get a principal of their own
+            return principalCache.put(username, iat, user);
+        }
+        return userDetails;
+    }
 }
\ No newline at end of file
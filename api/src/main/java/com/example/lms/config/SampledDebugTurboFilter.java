@@ -0,0 +1,34 @@
+package com.example.lms.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Logback turbo filter that lets DEBUG events from application loggers through
+ * for requests marked as sampled by {@link RequestLoggingFilter}, while the
+ * configured level (INFO) applies to every other request.
+ * Registered in logback-spring.xml.
+ */
+public class SampledDebugTurboFilter extends TurboFilter {
+
+    private String loggerPrefix = "com.example.lms";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == null || level.toInt() != Level.DEBUG_INT) {
+            return FilterReply.NEUTRAL;
+        }
+        if (!"true".equals(MDC.get(RequestLoggingFilter.SAMPLED_KEY))) {
+            return FilterReply.NEUTRAL;
+        }
+        return logger.getName().startsWith(loggerPrefix) ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+}
@@ -51,8 +51,11 @@ public class SecurityConfig {
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
                                 "/swagger-ui.html",
-                                "/actuator/**"
+                                "/actuator/health",
+                                "/actuator/health/**"
                         ).permitAll()
+                        // Metrics and the other actuator endpoints (ADMIN only)
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
             // Public read-only course endpoints (detail) - allow GET for course detail
             .requestMatchers(HttpMethod.GET, "/api/v1/courses/*").permitAll()
                         
@@ -128,7 +131,7 @@ public class SecurityConfig {
         configuration.setAllowedHeaders(List.of("*"));
         configuration.setAllowCredentials(true);
         // Allow cross-origin requests for PDF.js viewer and other embedded content
-        configuration.setExposedHeaders(List.of("Content-Disposition", "Content-Type", "Content-Length"));
+        configuration.setExposedHeaders(List.of("Content-Disposition", "Content-Type", "Content-Length", RequestLoggingFilter.REQUEST_ID_HEADER));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
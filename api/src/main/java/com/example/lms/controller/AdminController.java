@@ -1,11 +1,12 @@
 package com.example.lms.controller;
 
 import com.example.lms.dto.ApiResponse;
+import com.example.lms.dto.CursorPage;
 import com.example.lms.entity.Course;
+import com.example.lms.entity.CourseCounter;
 import com.example.lms.entity.User;
 import com.example.lms.service.AdminService;
-import com.example.lms.repository.SectionRepository;
-import com.example.lms.repository.AssignmentRepository;
+import com.example.lms.service.CourseCounterService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -36,8 +37,7 @@ import java.util.UUID;
 public class AdminController {
 
     private final AdminService adminService;
-    private final SectionRepository sectionRepository;
-    private final AssignmentRepository assignmentRepository;
+    private final CourseCounterService courseCounterService;
 
     @GetMapping("/courses/pending")
     @Operation(summary = "Lấy danh sách khóa học chờ duyệt", description = "Admin lấy tất cả khóa học đang chờ duyệt")
@@ -46,10 +46,13 @@ public class AdminController {
             @Parameter(description = "Số lượng item trên mỗi trang") @RequestParam(defaultValue = "10") int limit
     ) {
         try {
+            limit = CursorPage.clampLimit(limit);
             Pageable pageable = PageRequest.of(page - 1, limit);
             Page<Course> courses = adminService.getPendingCourses(pageable);
+            Map<UUID, CourseCounter> counters = courseCounterService.getCounters(
+                    courses.map(Course::getId).getContent());
             
-            Page<PendingCourseSummary> courseSummaries = courses.map(this::convertToPendingCourseSummary);
+            Page<PendingCourseSummary> courseSummaries = courses.map(course -> convertToPendingCourseSummary(course, counters.get(course.getId())));
             
             return ResponseEntity.ok(ApiResponse.success(courseSummaries));
         } catch (Exception e) {
@@ -109,12 +112,15 @@ public class AdminController {
             @Parameter(description = "Tìm kiếm theo tên khóa học") @RequestParam(required = false) String search
     ) {
         try {
+            limit = CursorPage.clampLimit(limit);
             Pageable pageable = PageRequest.of(page - 1, limit);
             Page<Course> courses = adminService.getAllCourses(search, 
                 status != null ? Course.CourseStatus.valueOf(status.toUpperCase()) : null, 
                 pageable);
+            Map<UUID, CourseCounter> counters = courseCounterService.getCounters(
+                    courses.map(Course::getId).getContent());
             
-            Page<AdminCourseSummary> courseSummaries = courses.map(this::convertToAdminCourseSummary);
+            Page<AdminCourseSummary> courseSummaries = courses.map(course -> convertToAdminCourseSummary(course, counters.get(course.getId())));
             
             return ResponseEntity.ok(ApiResponse.success(courseSummaries));
         } catch (Exception e) {
@@ -124,7 +130,7 @@ public class AdminController {
     }
 
     // Helper methods
-    private PendingCourseSummary convertToPendingCourseSummary(Course course) {
+    private PendingCourseSummary convertToPendingCourseSummary(Course course, CourseCounter counter) {
         return PendingCourseSummary.builder()
                 .id(course.getId())
                 .code(course.getCode())
@@ -133,22 +139,22 @@ public class AdminController {
                 .teacherId(course.getTeacher().getId())
                 .teacherName(course.getTeacher().getFullName())
                 .teacherEmail(course.getTeacher().getEmail())
-                .sectionsCount(Math.toIntExact(sectionRepository.countByCourseId(course.getId())))
+                .sectionsCount(Math.toIntExact(counter.getSectionsCount()))
                 .submittedAt(course.getUpdatedAt() != null ? course.getUpdatedAt() : course.getCreatedAt())
                 .createdAt(course.getCreatedAt())
                 .build();
     }
 
-    private AdminCourseSummary convertToAdminCourseSummary(Course course) {
+    private AdminCourseSummary convertToAdminCourseSummary(Course course, CourseCounter counter) {
         return AdminCourseSummary.builder()
                 .id(course.getId())
                 .code(course.getCode())
                 .title(course.getTitle())
                 .status(course.getStatus().name())
                 .teacherName(course.getTeacher().getFullName())
-                .enrolledCount(0) // TODO: Add count query for enrolled students
-                .sectionsCount(Math.toIntExact(sectionRepository.countByCourseId(course.getId())))
-                .assignmentsCount(Math.toIntExact(assignmentRepository.countByCourseId(course.getId())))
+                .enrolledCount(Math.toIntExact(counter.getEnrolledCount()))
+                .sectionsCount(Math.toIntExact(counter.getSectionsCount()))
+                .assignmentsCount(Math.toIntExact(counter.getAssignmentsCount()))
                 .createdAt(course.getCreatedAt())
                 .updatedAt(course.getUpdatedAt())
                 .build();
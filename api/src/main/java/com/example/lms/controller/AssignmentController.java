@@ -1,6 +1,7 @@
 package com.example.lms.controller;
 
 import com.example.lms.dto.ApiResponse;
+import com.example.lms.dto.CursorPage;
 import com.example.lms.entity.Assignment;
 import com.example.lms.entity.AssignmentSubmission;
 import com.example.lms.entity.User;
@@ -47,6 +48,7 @@ public class AssignmentController {
             @Parameter(description = "Số lượng item trên mỗi trang") @RequestParam(defaultValue = "10") int limit
     ) {
         try {
+            limit = CursorPage.clampLimit(limit);
             Pageable pageable = PageRequest.of(page - 1, limit);
             List<Assignment> assignmentList = assignmentService.getAssignmentsByCourse(courseId, currentUser);
             // Convert to Page manually for consistency
@@ -131,13 +133,23 @@ public class AssignmentController {
 
     @GetMapping("/assignments/{assignmentId}/submissions")
     @Operation(summary = "Lấy danh sách bài nộp", description = "Giảng viên xem tất cả bài nộp của một bài tập")
-    public ResponseEntity<ApiResponse<Page<SubmissionSummary>>> getSubmissionsByAssignment(
+    public ResponseEntity<ApiResponse<?>> getSubmissionsByAssignment(
             @PathVariable UUID assignmentId,
             @AuthenticationPrincipal User currentUser,
             @Parameter(description = "Số trang (bắt đầu từ 1)") @RequestParam(defaultValue = "1") int page,
-            @Parameter(description = "Số lượng item trên mỗi trang") @RequestParam(defaultValue = "10") int limit
+            @Parameter(description = "Số lượng item trên mỗi trang") @RequestParam(defaultValue = "10") int limit,
+            @Parameter(description = "Cursor phân trang (để trống cho trang đầu); bật chế độ keyset thay cho page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Chế độ keyset: có trả về tổng số bản ghi không") @RequestParam(defaultValue = "false") boolean includeTotal
     ) {
         try {
+            limit = CursorPage.clampLimit(limit);
+            if (cursor != null) {
+                CursorPage<SubmissionSummary> submissionSummaries = assignmentService
+                        .getSubmissionsAfter(assignmentId, currentUser, cursor, limit, includeTotal)
+                        .map(this::convertToSubmissionSummary);
+                return ResponseEntity.ok(ApiResponse.success(submissionSummaries));
+            }
+
             Pageable pageable = PageRequest.of(page - 1, limit);
             Page<AssignmentSubmission> submissions = assignmentService.getSubmissions(assignmentId, currentUser, pageable);
             
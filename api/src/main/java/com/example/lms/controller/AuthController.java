@@ -8,6 +8,7 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -16,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 @RestController
 @RequestMapping("/api/v1/auth")
 @RequiredArgsConstructor
+@Slf4j
 @Tag(name = "Authentication", description = "API xác thực người dùng")
 public class AuthController {
 
@@ -40,15 +42,11 @@ public class AuthController {
     public ResponseEntity<?> authenticate(
             @Valid @RequestBody AuthenticationService.AuthenticationRequest request
     ) {
-        System.out.println("=== LOGIN CONTROLLER DEBUG ===");
-        System.out.println("Login request received: " + request.getEmail());
-        System.out.println("Password length: " + (request.getPassword() != null ? request.getPassword().length() : 0));
         try {
             AuthenticationService.AuthenticationResponse response = authenticationService.authenticate(request);
-            System.out.println("Login successful for user: " + response.getUser().getUsername());
+            log.debug("Login successful for user: {}", response.getUser().getUsername());
             return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
-            System.out.println("Login failed with error: " + e.getMessage());
             // Return proper JSON response for frontend
             return ResponseEntity.status(401).body(java.util.Map.of("message", e.getMessage()));
         }
@@ -84,13 +82,14 @@ public class AuthController {
                     .body(ApiResponse.error("Unauthorized - User not authenticated"));
         }
         
+        User user = authenticationService.getCurrentUser(currentUser);
         UserProfile profile = UserProfile.builder()
-                .id(currentUser.getId())
-                .username(currentUser.getUsername())
-                .email(currentUser.getEmail())
-                .fullName(currentUser.getFullName())
-                .role(currentUser.getRole().name())
-                .enabled(currentUser.getEnabled())
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .fullName(user.getFullName())
+                .role(user.getRole().name())
+                .enabled(user.getEnabled())
                 .build();
                 
         return ResponseEntity.ok(ApiResponse.success(profile));
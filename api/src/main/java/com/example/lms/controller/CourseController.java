@@ -1,12 +1,18 @@
 package com.example.lms.controller;
 
 import com.example.lms.dto.ApiResponse;
+import com.example.lms.dto.CursorPage;
 import com.example.lms.entity.Course;
-import com.example.lms.entity.Section;
+import com.example.lms.entity.CourseCounter;
 import com.example.lms.entity.User;
+import com.example.lms.repository.CourseRepository;
+import com.example.lms.service.CourseCounterService;
 import com.example.lms.service.CourseService;
 import com.example.lms.service.ExcelProcessingService;
 import com.example.lms.dto.response.BulkEnrollmentResponse;
+import com.example.lms.dto.response.ImportJobResponse;
+import com.example.lms.entity.ImportJob;
+import com.example.lms.service.ImportJobService;
 import org.springframework.web.multipart.MultipartFile;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -19,6 +25,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -29,7 +37,6 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/v1/courses")
@@ -39,22 +46,34 @@ public class CourseController {
 
     private final CourseService courseService;
     private final ExcelProcessingService excelProcessingService;
-    private final com.example.lms.repository.UserRepository userRepository;
+    private final CourseCounterService courseCounterService;
+    private final ImportJobService importJobService;
 
     @GetMapping
     @Operation(summary = "Lấy danh sách khóa học công khai", description = "Lấy danh sách khóa học đã được duyệt")
-    public ResponseEntity<ApiResponse<Page<CourseSummary>>> getPublicCourses(
+    public ResponseEntity<ApiResponse<?>> getPublicCourses(
             @Parameter(description = "Số trang (bắt đầu từ 1)") @RequestParam(defaultValue = "1") int page,
             @Parameter(description = "Số lượng item trên mỗi trang") @RequestParam(defaultValue = "10") int limit,
             @Parameter(description = "Tìm kiếm theo tên khóa học") @RequestParam(required = false) String search,
             @Parameter(description = "Lọc theo giảng viên") @RequestParam(required = false) String teacher,
+            @Parameter(description = "Cursor phân trang (để trống cho trang đầu); bật chế độ keyset thay cho page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Chế độ keyset: có trả về tổng số bản ghi không") @RequestParam(defaultValue = "false") boolean includeTotal,
             @AuthenticationPrincipal User currentUser
     ) {
         try {
+            limit = CursorPage.clampLimit(limit);
+            boolean isStudent = currentUser != null && currentUser.getRole() == User.Role.STUDENT;
+            if (cursor != null) {
+                CursorPage<CourseSummary> courseSummaries = courseService
+                        .getCourseCatalogAfter(cursor, limit, search, currentUser, includeTotal)
+                        .map(row -> convertToCourseSummary(row, isStudent));
+                return ResponseEntity.ok(ApiResponse.success(courseSummaries));
+            }
+
             Pageable pageable = PageRequest.of(page - 1, limit);
-            Page<Course> courses = courseService.getApprovedCourses(pageable, search, teacher);
+            Page<CourseRepository.CatalogRow> rows = courseService.getCourseCatalog(pageable, search, currentUser);
 
-            Page<CourseSummary> courseSummaries = courses.map(course -> convertToCourseSummary(course, currentUser));
+            Page<CourseSummary> courseSummaries = rows.map(row -> convertToCourseSummary(row, isStudent));
 
             return ResponseEntity.ok(ApiResponse.success(courseSummaries));
         } catch (Exception e) {
@@ -93,24 +112,32 @@ public class CourseController {
     @PostMapping("/{courseId}/bulk-enroll")
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
     @SecurityRequirement(name = "Bearer Authentication")
-    @Operation(summary = "Gán nhiều học viên bằng file Excel", description = "Giảng viên hoặc admin gán nhiều học viên vào khóa học thông qua file Excel")
-    public ResponseEntity<ApiResponse<BulkEnrollmentResponse>> bulkEnrollStudents(
+    @Operation(summary = "Gán nhiều học viên bằng file Excel", description = "Giảng viên hoặc admin gán nhiều học viên vào khóa học thông qua file Excel. Với async=true, file được xử lý nền: trả về 202 kèm id job, theo dõi qua GET /api/v1/jobs/{id}")
+    public ResponseEntity<ApiResponse<?>> bulkEnrollStudents(
             @PathVariable UUID courseId,
             @AuthenticationPrincipal User currentUser,
-            @RequestParam("file") MultipartFile file
+            @RequestParam("file") MultipartFile file,
+            @Parameter(description = "Xử lý nền và trả về id job") @RequestParam(defaultValue = "false") boolean async
     ) {
         try {
-            // Extract emails from Excel file
-            List<String> emails = excelProcessingService.extractEmailsFromExcel(file);
+            if (async) {
+                excelProcessingService.validateExcelFile(file);
+                courseService.checkBulkEnrollment(courseId);
+                ImportJob job = importJobService.submit(ImportJob.JobType.ROSTER_IMPORT, currentUser, courseId, file);
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(java.net.URI.create("/api/v1/jobs/" + job.getId()))
+                    .body(ApiResponse.success(ImportJobResponse.from(job), "Đã nhận file, đang xử lý nền"));
+            }
+
+            // Stream emails from the Excel file straight into chunked enrollment
+            BulkEnrollmentResponse response = courseService.bulkEnrollStudents(
+                courseId, excelProcessingService.emailSource(file));
             
-            if (emails.isEmpty()) {
+            if (response.getTotalProcessed() == 0) {
                 return ResponseEntity.badRequest()
                     .body(ApiResponse.error("Không tìm thấy email nào trong file Excel"));
             }
             
-            // Perform bulk enrollment
-            BulkEnrollmentResponse response = courseService.bulkEnrollStudents(courseId, emails);
-            
             return ResponseEntity.ok(ApiResponse.success(response, 
                 String.format("Đã xử lý %d email: %d thành công, %d lỗi", 
                     response.getTotalProcessed(), response.getSuccessCount(), response.getErrorCount())));
@@ -151,10 +178,13 @@ public class CourseController {
             @Parameter(description = "Số lượng item trên mỗi trang") @RequestParam(defaultValue = "10") int limit
     ) {
         try {
+            limit = CursorPage.clampLimit(limit);
             Pageable pageable = PageRequest.of(page - 1, limit);
             Page<Course> courses = courseService.getCoursesByTeacher(currentUser, pageable);
+            Map<UUID, CourseCounter> counters = courseCounterService.getCounters(
+                    courses.map(Course::getId).getContent());
             
-            Page<CourseSummary> courseSummaries = courses.map(this::convertToCourseSummary);
+            Page<CourseSummary> courseSummaries = courses.map(course -> convertToCourseSummary(course, counters.get(course.getId())));
             
             return ResponseEntity.ok(ApiResponse.success(courseSummaries));
         } catch (Exception e) {
@@ -173,10 +203,13 @@ public class CourseController {
             @Parameter(description = "Số lượng item trên mỗi trang") @RequestParam(defaultValue = "10") int limit
     ) {
         try {
+            limit = CursorPage.clampLimit(limit);
             Pageable pageable = PageRequest.of(page - 1, limit);
             Page<Course> courses = courseService.getEnrolledCourses(currentUser, pageable);
+            Map<UUID, CourseCounter> counters = courseCounterService.getCounters(
+                    courses.map(Course::getId).getContent());
             
-            Page<CourseSummary> courseSummaries = courses.map(this::convertToCourseSummary);
+            Page<CourseSummary> courseSummaries = courses.map(course -> convertToCourseSummary(course, counters.get(course.getId())));
             
             return ResponseEntity.ok(ApiResponse.success(courseSummaries));
         } catch (Exception e) {
@@ -269,15 +302,21 @@ public class CourseController {
     @Operation(summary = "Lấy nội dung khóa học", description = "Lấy toàn bộ sections và lessons của khóa học")
     public ResponseEntity<ApiResponse<List<SectionWithLessons>>> getCourseContent(
             @PathVariable UUID courseId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             @AuthenticationPrincipal User currentUser
     ) {
         try {
-            List<Section> sections = courseService.getCourseContent(courseId, currentUser);
-            List<SectionWithLessons> content = sections.stream()
-                    .map(this::convertToSectionWithLessons)
-                    .collect(Collectors.toList());
-            
-            return ResponseEntity.ok(ApiResponse.success(content));
+            CourseService.CourseContent content = courseService.getCourseContent(courseId, currentUser);
+
+            // Access was checked above, so a 304 never skips authorization
+            if (etagMatches(ifNoneMatch, content.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(content.etag()).build();
+            }
+
+            return ResponseEntity.ok()
+                    .eTag(content.etag())
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(ApiResponse.success(content.sections()));
         } catch (RuntimeException e) {
             String msg = e.getMessage() != null ? e.getMessage() : "Có lỗi xảy ra";
             if (msg.toLowerCase().contains("quyền")) {
@@ -294,14 +333,17 @@ public class CourseController {
     @PreAuthorize("hasAnyRole('TEACHER', 'ADMIN')")
     @SecurityRequirement(name = "Bearer Authentication")
     @Operation(summary = "Lấy danh sách học viên của khóa học", description = "Giáo viên/Admin lấy danh sách học viên đã đăng ký khóa học")
-    public ResponseEntity<ApiResponse<Page<com.example.lms.dto.response.StudentEnrollmentDetail>>> getCourseStudents(
+    public ResponseEntity<ApiResponse<?>> getCourseStudents(
             @PathVariable UUID courseId,
             @Parameter(description = "Số trang (bắt đầu từ 0)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Số lượng item trên mỗi trang") @RequestParam(defaultValue = "20") int size,
             @Parameter(description = "Tìm kiếm theo tên hoặc email") @RequestParam(required = false) String search,
+            @Parameter(description = "Cursor phân trang (để trống cho trang đầu); bật chế độ keyset thay cho page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Chế độ keyset: có trả về tổng số bản ghi không") @RequestParam(defaultValue = "false") boolean includeTotal,
             @AuthenticationPrincipal User currentUser
     ) {
         try {
+            size = CursorPage.clampLimit(size);
             // Verify course exists
             Course course = courseService.getCourseById(courseId);
             if (course == null) {
@@ -316,21 +358,19 @@ public class CourseController {
                         .body(ApiResponse.error("Bạn không có quyền xem danh sách học viên của khóa học này"));
             }
 
+            if (cursor != null) {
+                CursorPage<com.example.lms.dto.response.StudentEnrollmentDetail> studentDetails = courseService
+                        .getCourseStudentsAfter(courseId, cursor, size, search, includeTotal)
+                        .map(this::convertToStudentEnrollmentDetail);
+                return ResponseEntity.ok(ApiResponse.success(studentDetails));
+            }
+
             Pageable pageable = PageRequest.of(page, size);
             Page<User> students = courseService.getCourseStudents(courseId, pageable, search);
 
             // Convert User entities to StudentEnrollmentDetail DTOs
             Page<com.example.lms.dto.response.StudentEnrollmentDetail> studentDetails = 
-                students.map(student -> com.example.lms.dto.response.StudentEnrollmentDetail.builder()
-                        .id(student.getId().toString())
-                        .fullName(student.getFullName())
-                        .email(student.getEmail())
-                        .role(student.getRole().name())
-                        .status("ACTIVE")
-                        .progressPercentage(0)
-                        .lessonsCompleted(0)
-                        .totalLessons(0)
-                        .build());
+                students.map(this::convertToStudentEnrollmentDetail);
 
             return ResponseEntity.ok(ApiResponse.success(studentDetails));
         } catch (RuntimeException e) {
@@ -339,12 +379,20 @@ public class CourseController {
     }
 
     // Helper methods
-    private CourseSummary convertToCourseSummary(Course course) {
-        int enrolledCount = 0;
-        try {
-            enrolledCount = course.getEnrolledStudents() != null ? course.getEnrolledStudents().size() : 0;
-        } catch (Exception ignored) {}
+    private com.example.lms.dto.response.StudentEnrollmentDetail convertToStudentEnrollmentDetail(User student) {
+        return com.example.lms.dto.response.StudentEnrollmentDetail.builder()
+                .id(student.getId().toString())
+                .fullName(student.getFullName())
+                .email(student.getEmail())
+                .role(student.getRole().name())
+                .status("ACTIVE")
+                .progressPercentage(0)
+                .lessonsCompleted(0)
+                .totalLessons(0)
+                .build();
+    }
 
+    private CourseSummary convertToCourseSummary(Course course, CourseCounter counter) {
         return CourseSummary.builder()
                 .id(course.getId())
                 .code(course.getCode())
@@ -352,38 +400,30 @@ public class CourseController {
                 .description(course.getDescription())
                 .status(course.getStatus().name())
                 .teacherName(course.getTeacher().getFullName())
-                .enrolledCount(enrolledCount)
+                .enrolledCount(Math.toIntExact(counter.getEnrolledCount()))
                 .createdAt(course.getCreatedAt())
                 .build();
     }
 
-    private CourseSummary convertToCourseSummary(Course course, User currentUser) {
-        CourseSummary summary = convertToCourseSummary(course);
-
-        // Add enrollment status for authenticated students
-        if (currentUser != null && currentUser.getRole() == User.Role.STUDENT) {
-            // Use database query to check enrollment status without loading lazy collections
-            boolean isEnrolled = userRepository.existsByCourseEnrollment(course.getId(), currentUser.getId());
-            summary.setEnrolled(isEnrolled);
-        } else {
-            summary.setEnrolled(null); // Not enrolled or not a student
-        }
-
-        return summary;
+    private CourseSummary convertToCourseSummary(CourseRepository.CatalogRow row, boolean isStudent) {
+        return CourseSummary.builder()
+                .id(row.getId())
+                .code(row.getCode())
+                .title(row.getTitle())
+                .description(row.getDescription())
+                .status(row.getStatus().name())
+                .teacherName(row.getTeacherName())
+                .enrolledCount(row.getEnrolledCount() != null ? row.getEnrolledCount().intValue() : 0)
+                .createdAt(row.getCreatedAt())
+                // Enrollment status only for authenticated students
+                .enrolled(isStudent ? row.getEnrolled() : null)
+                .build();
     }
 
     private CourseDetail convertToCourseDetail(Course course) {
-    int sectionsCount = 0;
-    try {
-        sectionsCount = course.getSections() != null ? course.getSections().size() : 0;
-    } catch (Exception ignored) {}
+        CourseCounter counter = courseCounterService.getCounters(course.getId());
 
-    int enrolledCount = 0;
-    try {
-        enrolledCount = course.getEnrolledStudents() != null ? course.getEnrolledStudents().size() : 0;
-    } catch (Exception ignored) {}
-
-    return CourseDetail.builder()
+        return CourseDetail.builder()
                 .id(course.getId())
                 .code(course.getCode())
                 .title(course.getTitle())
@@ -391,31 +431,27 @@ public class CourseController {
                 .status(course.getStatus().name())
                 .teacherId(course.getTeacher().getId())
                 .teacherName(course.getTeacher().getFullName())
-                .enrolledCount(enrolledCount)
-        .sectionsCount(sectionsCount)
+                .enrolledCount(Math.toIntExact(counter.getEnrolledCount()))
+                .sectionsCount(Math.toIntExact(counter.getSectionsCount()))
                 .createdAt(course.getCreatedAt())
                 .updatedAt(course.getUpdatedAt())
                 .build();
     }
 
-    private SectionWithLessons convertToSectionWithLessons(Section section) {
-        List<com.example.lms.entity.Lesson> rawLessons = section.getLessons() != null ? section.getLessons() : java.util.Collections.emptyList();
-        List<LessonSummary> lessons = rawLessons.stream()
-                .map(lesson -> LessonSummary.builder()
-                        .id(lesson.getId())
-                        .title(lesson.getTitle())
-                        .description(lesson.getDescription())
-                        .orderIndex(lesson.getOrderIndex())
-                        .build())
-                .collect(Collectors.toList());
-
-        return SectionWithLessons.builder()
-                .id(section.getId())
-                .title(section.getTitle())
-                .description(section.getDescription())
-                .orderIndex(section.getOrderIndex())
-                .lessons(lessons)
-                .build();
+    private boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     // DTOs
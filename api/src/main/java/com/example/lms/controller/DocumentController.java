@@ -1,13 +1,30 @@
 package com.example.lms.controller;
 
+import com.example.lms.entity.ImportJob;
+import com.example.lms.entity.User;
 import com.example.lms.service.DocumentParserService;
+import com.example.lms.service.ImportJobService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 
 /**
@@ -19,17 +36,24 @@ import java.util.Map;
 @Slf4j
 public class DocumentController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final DocumentParserService documentParserService;
+    private final ImportJobService importJobService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Upload and parse .doc/.docx file to extract text content
      * 
      * @param file The uploaded document file
+     * @param async Parse in the background and return 202 with a job id to poll at /api/v1/jobs/{id}
      * @return JSON response with extracted text content
      */
     @PostMapping("/upload")
     @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
-    public ResponseEntity<?> uploadDocument(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> uploadDocument(@RequestParam("file") MultipartFile file,
+                                            @RequestParam(defaultValue = "false") boolean async,
+                                            @AuthenticationPrincipal User currentUser) {
         try {
             log.info("Received document upload request. Filename: {}, Size: {} bytes", 
                     file.getOriginalFilename(), file.getSize());
@@ -37,6 +61,19 @@ public class DocumentController {
             // Validate file
             documentParserService.validateFile(file);
 
+            if (async) {
+                ImportJob job = importJobService.submit(ImportJob.JobType.DOCUMENT_PARSE, currentUser, null, file);
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .location(URI.create("/api/v1/jobs/" + job.getId()))
+                    .body(Map.of(
+                        "success", true,
+                        "jobId", job.getId(),
+                        "status", job.getStatus(),
+                        "filename", file.getOriginalFilename(),
+                        "message", "Document accepted for background processing"
+                    ));
+            }
+
             // Extract text content
             String extractedContent = documentParserService.extractTextFromDocument(file);
 
@@ -68,6 +105,63 @@ public class DocumentController {
         }
     }
 
+    /**
+     * Upload a .doc/.docx file and stream its text back as NDJSON, one {"text": ...} line per
+     * paragraph, so neither the parsed document nor the response is held in memory
+     *
+     * @param file The uploaded document file
+     * @return application/x-ndjson body written as the document is read
+     */
+    @PostMapping("/upload/stream")
+    @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    public ResponseEntity<?> streamDocument(@RequestParam("file") MultipartFile file) {
+        try {
+            documentParserService.validateFile(file);
+
+            // The upload is cleaned up when the request thread returns, the body is written later
+            Path spool = Files.createTempFile("document-", ".upload");
+            file.transferTo(spool);
+            String filename = file.getOriginalFilename();
+
+            StreamingResponseBody body = out -> {
+                try {
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                    documentParserService.streamParagraphs(spool, filename, paragraph -> {
+                        try {
+                            writer.write(objectMapper.writeValueAsString(Map.of("text", paragraph)));
+                            writer.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    writer.flush();
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                } finally {
+                    Files.deleteIfExists(spool);
+                }
+            };
+
+            return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid file upload request: {}", e.getMessage());
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(Map.of(
+                "success", false,
+                "error", e.getMessage(),
+                "message", "Invalid file or file format"
+            ));
+
+        } catch (IOException e) {
+            log.error("Error spooling document upload", e);
+            return ResponseEntity.internalServerError().contentType(MediaType.APPLICATION_JSON).body(Map.of(
+                "success", false,
+                "error", "Internal server error",
+                "message", "Could not process the document. Please try again."
+            ));
+        }
+    }
+
     /**
      * Get supported file formats
      */
@@ -1,63 +1,302 @@
 package com.example.lms.controller;
 
+import com.example.lms.entity.FileBlob;
+import com.example.lms.service.BlobStorage;
+import com.example.lms.service.BlobStore;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Serves uploaded files with conditional GET (strong ETag from size and mtime, Last-Modified)
+ * and byte ranges, so videos can be seeked and unchanged files are not downloaded again.
+ * Whole files and single ranges go through Tomcat's sendfile when the connector supports it,
+ * otherwise through {@link FileChannel#transferTo}.
+ * <p>
+ * Files uploaded before the blob store still live at their path under the upload directory
+ * and are served from there; newer paths resolve to their blob through {@link BlobStore},
+ * with the content hash as ETag, and are read from {@link BlobStorage}. With remote storage
+ * and {@code app.storage.redirect-downloads} the client is redirected to a presigned URL
+ * instead, so file bytes do not pass through the API nodes.
+ */
 @RestController
 @RequestMapping("/api/v1/files")
+@RequiredArgsConstructor
 public class FileServeController {
 
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
 
+    @Value("${app.files.cache-max-age-seconds:86400}")
+    private long cacheMaxAgeSeconds;
+
+    @Value("${app.storage.redirect-downloads:false}")
+    private boolean redirectDownloads;
+
+    @Value("${app.storage.presign-ttl-seconds:900}")
+    private long presignTtlSeconds;
+
+    /**
+     * Content type per file extension, resolved once instead of probing every request
+     */
+    private final Map<String, String> contentTypes = new ConcurrentHashMap<>();
+
+    private final BlobStore blobStore;
+    private final BlobStorage blobStorage;
+
     @GetMapping("/{type}/{year}/{month}/{filename}")
-    public ResponseEntity<Resource> serve(
+    public void serve(
             @PathVariable String type,
             @PathVariable String year,
             @PathVariable String month,
-            @PathVariable String filename
-    ) {
-        Path filePath = Paths.get(uploadDir, type, year, month, filename).normalize();
-        File file = filePath.toFile();
-        if (!file.exists() || !file.isFile()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+            @PathVariable String filename,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path filePath = root.resolve(Paths.get(type, year, month, filename)).normalize();
+        if (!filePath.startsWith(root)) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        // Set for blobs; filePath is then the local file behind the blob, or null for remote storage
+        String blobKey = null;
+        long length;
+        long lastModified;
+        String etag;
+        if (Files.isRegularFile(filePath)) {
+            BasicFileAttributes attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+            length = attributes.size();
+            lastModified = attributes.lastModifiedTime().toMillis();
+            etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        } else {
+            FileBlob blob = blobStore.findBlobByPath(type + "/" + year + "/" + month + "/" + filename).orElse(null);
+            if (blob == null) {
+                response.setStatus(HttpStatus.NOT_FOUND.value());
+                return;
+            }
+            blobKey = blobStore.key(blob.getHash());
+            filePath = blobStorage.localPath(blobKey).orElse(null);
+            if (filePath != null && !Files.isRegularFile(filePath)) {
+                response.setStatus(HttpStatus.NOT_FOUND.value());
+                return;
+            }
+            length = blob.getSize();
+            lastModified = blob.getCreatedAt().toEpochMilli();
+            etag = "\"" + blob.getHash() + "\"";
         }
 
-        FileSystemResource resource = new FileSystemResource(file);
-        String contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        addHeaders(response, filename);
+
+        // Sets ETag and Last-Modified, and answers 304/412 when the client's copy is current
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        String contentType = contentType(filename);
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        if (filePath == null && redirectDownloads && !head) {
+            Optional<URI> presigned = blobStorage.presign(blobKey, Duration.ofSeconds(presignTtlSeconds), filename, contentType);
+            if (presigned.isPresent()) {
+                // The presigned URL expires, so the redirect itself must not be cached
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+                response.sendRedirect(presigned.get().toString());
+                return;
+            }
+        }
+
+        List<HttpRange> ranges;
         try {
-            String probe = java.nio.file.Files.probeContentType(filePath);
-            if (probe != null) contentType = probe;
-        } catch (Exception ignored) {}
+            ranges = rangesToServe(request, etag, lastModified);
+            for (HttpRange range : ranges) {
+                if (range.getRangeStart(length) >= length || range.getRangeStart(length) > range.getRangeEnd(length)) {
+                    throw new IllegalArgumentException("Unsatisfiable range");
+                }
+            }
+            // Same guard as Spring's resource handling: overlapping ranges must not amplify the file
+            if (ranges.size() > 1 && ranges.stream().mapToLong(r -> r.getRangeEnd(length) - r.getRangeStart(length) + 1).sum() > length) {
+                throw new IllegalArgumentException("Ranges exceed the file size");
+            }
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
 
+        if (ranges.isEmpty()) {
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!head) {
+                send(request, response, filePath, blobKey, 0, length);
+            }
+        } else if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                send(request, response, filePath, blobKey, start, end - start + 1);
+            }
+        } else {
+            sendMultipart(response, filePath, blobKey, ranges, length, contentType, head);
+        }
+    }
+
+    /**
+     * Ranges from the Range header, or none when there is no header or an If-Range
+     * validator no longer matches (then the whole file is sent)
+     */
+    private List<HttpRange> rangesToServe(HttpServletRequest request, String etag, long lastModified) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null) {
+            return List.of();
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null) {
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                if (!ifRange.equals(etag)) {
+                    return List.of();
+                }
+            } else {
+                long since = request.getDateHeader(HttpHeaders.IF_RANGE);
+                if (since == -1 || lastModified / 1000 > since / 1000) {
+                    return List.of();
+                }
+            }
+        }
+        return HttpRange.parseRanges(range);
+    }
+
+    /**
+     * Send {@code count} bytes from {@code start} of the local file, or of the blob in remote storage when {@code file} is null
+     */
+    private void send(HttpServletRequest request, HttpServletResponse response, Path file, String blobKey,
+                      long start, long count) throws IOException {
+        if (file == null) {
+            try (InputStream in = blobStorage.range(blobKey, start, count)) {
+                in.transferTo(response.getOutputStream());
+            }
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file with sendfile after the handler returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            transfer(channel, start, count, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    /**
+     * multipart/byteranges body for a request with several ranges
+     */
+    private void sendMultipart(HttpServletResponse response, Path file, String blobKey, List<HttpRange> ranges,
+                               long length, String contentType, boolean head) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        if (head) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = file != null ? FileChannel.open(file, StandardOpenOption.READ) : null) {
+            for (HttpRange range : ranges) {
+                long start = range.getRangeStart(length);
+                long end = range.getRangeEnd(length);
+                out.write(("\r\n--" + boundary + "\r\n" +
+                        HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n" +
+                        HttpHeaders.CONTENT_RANGE + ": bytes " + start + "-" + end + "/" + length + "\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                if (channel != null) {
+                    transfer(channel, start, end - start + 1, target);
+                } else {
+                    try (InputStream in = blobStorage.range(blobKey, start, end - start + 1)) {
+                        in.transferTo(out);
+                    }
+                }
+            }
+        }
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void transfer(FileChannel channel, long position, long count, WritableByteChannel target) throws IOException {
+        while (count > 0) {
+            long written = channel.transferTo(position, count, target);
+            if (written <= 0) {
+                break; // file shrank underneath us
+            }
+            position += written;
+            count -= written;
+        }
+    }
+
+    private String contentType(String filename) {
+        String extension = StringUtils.getFilenameExtension(filename);
+        String key = extension != null ? extension.toLowerCase(Locale.ROOT) : "";
+        return contentTypes.computeIfAbsent(key, ext -> MediaTypeFactory.getMediaType(filename)
+                .map(MediaType::toString)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE));
+    }
+
+    private void addHeaders(HttpServletResponse response, String filename) {
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Stored names are unique per upload, so a file's content does not change under its URL
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=" + cacheMaxAgeSeconds);
         // Add CORS headers for PDF embedding
-        HttpHeaders headers = new HttpHeaders();
-        headers.add(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"");
-        headers.add(HttpHeaders.CONTENT_TYPE, contentType);
-        headers.add("Access-Control-Allow-Origin", "*");
-        headers.add("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
-        headers.add("Access-Control-Allow-Headers", "*");
-        headers.add("Access-Control-Expose-Headers", "Content-Disposition, Content-Type, Content-Length");
+        response.setHeader("Access-Control-Allow-Origin", "*");
+        response.setHeader("Access-Control-Allow-Methods", "GET, POST, PUT, DELETE, OPTIONS");
+        response.setHeader("Access-Control-Allow-Headers", "*");
+        response.setHeader("Access-Control-Expose-Headers", "Content-Disposition, Content-Type, Content-Length, Content-Range, Accept-Ranges, ETag");
         // Allow embedding in iframes from same origin and specific domains
-        headers.add("X-Frame-Options", "ALLOWALL");
+        response.setHeader("X-Frame-Options", "ALLOWALL");
         // Additional headers for PDF embedding
-        headers.add("Content-Security-Policy", "frame-ancestors *");
-
-        return ResponseEntity.ok()
-                .headers(headers)
-                .body(resource);
+        response.setHeader("Content-Security-Policy", "frame-ancestors *");
     }
 }
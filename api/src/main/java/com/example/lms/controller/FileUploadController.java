@@ -3,9 +3,11 @@ package com.example.lms.controller;
 import com.example.lms.dto.ApiResponse;
 import com.example.lms.entity.User;
 import com.example.lms.service.FileUploadService;
+import com.example.lms.service.ResumableUploadService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
@@ -14,7 +16,9 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/uploads")
@@ -24,6 +28,7 @@ import java.time.LocalDateTime;
 public class FileUploadController {
 
     private final FileUploadService fileUploadService;
+    private final ResumableUploadService resumableUploadService;
 
     @PostMapping("/file")
     @Operation(summary = "Upload file trực tiếp (multipart)", description = "Upload file lên server local để dùng làm video/bài giảng")
@@ -42,6 +47,25 @@ public class FileUploadController {
         }
     }
 
+    @PutMapping("/file/stream")
+    @Operation(summary = "Upload file dạng luồng", description = "Gửi nội dung file trực tiếp trong body (không multipart); file được ghi thẳng vào nơi lưu trữ, trả về kích thước và SHA-256")
+    public ResponseEntity<ApiResponse<FileUploadResponse>> uploadFileStream(
+            @AuthenticationPrincipal User currentUser,
+            @RequestParam("fileName") String fileName,
+            @RequestParam(value = "type", required = false, defaultValue = "video") String type,
+            HttpServletRequest httpRequest
+    ) {
+        try {
+            FileUploadRequest req = new FileUploadRequest();
+            req.setType(type);
+            FileUploadResponse res = fileUploadService.uploadStream(httpRequest.getInputStream(),
+                    httpRequest.getContentLengthLong(), fileName, httpRequest.getContentType(), currentUser, req);
+            return ResponseEntity.ok(ApiResponse.success(res));
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     @PostMapping("/signed-url")
     @Operation(summary = "Lấy URL để upload file", description = "Tạo signed URL để upload file lên cloud storage")
     public ResponseEntity<ApiResponse<SignedUrlResponse>> getSignedUrl(
@@ -62,6 +86,51 @@ public class FileUploadController {
         }
     }
 
+    @PatchMapping("/signed/{token}")
+    @Operation(summary = "Gửi một phần của file", description = "Ghi một phần (chunk) vào phiên upload tại vị trí Upload-Offset; các phần có thể gửi song song và gửi lại khi lỗi")
+    public ResponseEntity<ApiResponse<UploadProgressResponse>> uploadChunk(
+            @AuthenticationPrincipal User currentUser,
+            @PathVariable String token,
+            @RequestHeader("Upload-Offset") long offset,
+            HttpServletRequest httpRequest
+    ) {
+        try {
+            ResumableUploadService.Progress progress = resumableUploadService.writeChunk(
+                    token, currentUser, offset, httpRequest.getContentLengthLong(), httpRequest.getInputStream());
+            return ResponseEntity.ok(ApiResponse.success(UploadProgressResponse.from(progress)));
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/signed/{token}")
+    @Operation(summary = "Tiến độ upload", description = "Các phần đã nhận và còn thiếu, dùng để tiếp tục upload sau khi bị gián đoạn")
+    public ResponseEntity<ApiResponse<UploadProgressResponse>> getUploadProgress(
+            @AuthenticationPrincipal User currentUser,
+            @PathVariable String token
+    ) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(UploadProgressResponse.from(resumableUploadService.getProgress(token, currentUser))));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/signed/{token}/complete")
+    @Operation(summary = "Hoàn tất upload", description = "Kiểm tra đủ các phần, tính SHA-256 (so khớp nếu client gửi kèm) và đưa file vào vị trí cuối cùng")
+    public ResponseEntity<ApiResponse<FileUploadResponse>> completeUpload(
+            @AuthenticationPrincipal User currentUser,
+            @PathVariable String token,
+            @RequestBody(required = false) CompleteUploadRequest request
+    ) {
+        try {
+            FileUploadResponse res = resumableUploadService.complete(token, currentUser, request != null ? request.getSha256() : null);
+            return ResponseEntity.ok(ApiResponse.success(res));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     @PostMapping("/validate")
     @Operation(summary = "Xác thực file đã upload", description = "Xác thực file đã được upload thành công")
     public ResponseEntity<ApiResponse<String>> validateUpload(
@@ -130,6 +199,7 @@ public class FileUploadController {
         private String fileId;
         private long expiresAt;
         private String method;
+        private int chunkSize;
 
         public SignedUrlResponse() {}
 
@@ -150,11 +220,13 @@ public class FileUploadController {
             private String fileUrl;
             private String fileName;
             private LocalDateTime expiresAt;
+            private int chunkSize;
 
             public SignedUrlResponseBuilder uploadUrl(String uploadUrl) { this.uploadUrl = uploadUrl; return this; }
             public SignedUrlResponseBuilder fileUrl(String fileUrl) { this.fileUrl = fileUrl; return this; }
             public SignedUrlResponseBuilder fileName(String fileName) { this.fileName = fileName; return this; }
             public SignedUrlResponseBuilder expiresAt(LocalDateTime expiresAt) { this.expiresAt = expiresAt; return this; }
+            public SignedUrlResponseBuilder chunkSize(int chunkSize) { this.chunkSize = chunkSize; return this; }
 
             public SignedUrlResponse build() {
                 SignedUrlResponse response = new SignedUrlResponse();
@@ -163,7 +235,9 @@ public class FileUploadController {
                 response.fileId = this.fileName;
                 response.expiresAt = this.expiresAt != null ? 
                     this.expiresAt.atZone(java.time.ZoneId.systemDefault()).toEpochSecond() : 0;
-                response.method = "PUT";
+                // Chunks are sent as PATCH with an Upload-Offset header, then POST {uploadUrl}/complete
+                response.method = "PATCH";
+                response.chunkSize = this.chunkSize;
                 return response;
             }
         }
@@ -179,6 +253,46 @@ public class FileUploadController {
         public void setExpiresAt(long expiresAt) { this.expiresAt = expiresAt; }
         public String getMethod() { return method; }
         public void setMethod(String method) { this.method = method; }
+        public int getChunkSize() { return chunkSize; }
+        public void setChunkSize(int chunkSize) { this.chunkSize = chunkSize; }
+    }
+
+    public static class UploadProgressResponse {
+        private String fileId;
+        private long fileSize;
+        private int chunkSize;
+        private int totalChunks;
+        private int receivedChunks;
+        private List<Integer> missingChunks;
+
+        public UploadProgressResponse() {}
+
+        public static UploadProgressResponse from(ResumableUploadService.Progress progress) {
+            UploadProgressResponse response = new UploadProgressResponse();
+            response.fileId = progress.session().getId().toString();
+            response.fileSize = progress.session().getFileSize();
+            response.chunkSize = progress.session().getChunkSize();
+            response.totalChunks = progress.session().getTotalChunks();
+            response.receivedChunks = response.totalChunks - progress.missingChunks().size();
+            response.missingChunks = progress.missingChunks();
+            return response;
+        }
+
+        public String getFileId() { return fileId; }
+        public long getFileSize() { return fileSize; }
+        public int getChunkSize() { return chunkSize; }
+        public int getTotalChunks() { return totalChunks; }
+        public int getReceivedChunks() { return receivedChunks; }
+        public List<Integer> getMissingChunks() { return missingChunks; }
+    }
+
+    public static class CompleteUploadRequest {
+        private String sha256; // optional, verified against the assembled file
+
+        public CompleteUploadRequest() {}
+
+        public String getSha256() { return sha256; }
+        public void setSha256(String sha256) { this.sha256 = sha256; }
     }
 
     public static class ValidateUploadRequest {
@@ -223,6 +337,7 @@ public class FileUploadController {
         private String fileUrl;
         private long fileSize;
         private String contentType;
+        private String checksum;
         private LocalDateTime uploadedAt;
 
         public static FileUploadResponseBuilder builder() {
@@ -235,6 +350,7 @@ public class FileUploadController {
             private String fileUrl;
             private long fileSize;
             private String contentType;
+            private String checksum;
             private LocalDateTime uploadedAt;
 
             public FileUploadResponseBuilder fileName(String fileName) { this.fileName = fileName; return this; }
@@ -242,6 +358,7 @@ public class FileUploadController {
             public FileUploadResponseBuilder fileUrl(String fileUrl) { this.fileUrl = fileUrl; return this; }
             public FileUploadResponseBuilder fileSize(long fileSize) { this.fileSize = fileSize; return this; }
             public FileUploadResponseBuilder contentType(String contentType) { this.contentType = contentType; return this; }
+            public FileUploadResponseBuilder checksum(String checksum) { this.checksum = checksum; return this; }
             public FileUploadResponseBuilder uploadedAt(LocalDateTime uploadedAt) { this.uploadedAt = uploadedAt; return this; }
 
             public FileUploadResponse build() {
@@ -251,6 +368,7 @@ public class FileUploadController {
                 response.fileUrl = this.fileUrl;
                 response.fileSize = this.fileSize;
                 response.contentType = this.contentType;
+                response.checksum = this.checksum;
                 response.uploadedAt = this.uploadedAt;
                 return response;
             }
@@ -262,6 +380,7 @@ public class FileUploadController {
         public String getFileUrl() { return fileUrl; }
         public long getFileSize() { return fileSize; }
         public String getContentType() { return contentType; }
+        public String getChecksum() { return checksum; }
         public LocalDateTime getUploadedAt() { return uploadedAt; }
     }
 
@@ -0,0 +1,48 @@
+package com.example.lms.controller;
+
+import com.example.lms.dto.ApiResponse;
+import com.example.lms.dto.response.ImportJobResponse;
+import com.example.lms.entity.User;
+import com.example.lms.service.ImportJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/jobs")
+@RequiredArgsConstructor
+@Tag(name = "Import Jobs", description = "API theo dõi tiến độ các job nhập dữ liệu chạy nền")
+public class ImportJobController {
+
+    private final ImportJobService importJobService;
+
+    @GetMapping("/{jobId}")
+    @PreAuthorize("hasRole('TEACHER') or hasRole('ADMIN')")
+    @SecurityRequirement(name = "Bearer Authentication")
+    @Operation(summary = "Xem tiến độ job", description = "Trạng thái, tiến độ và kết quả của job nhập dữ liệu; chỉ người tạo job hoặc admin được xem")
+    public ResponseEntity<ApiResponse<ImportJobResponse>> getJob(
+            @PathVariable UUID jobId,
+            @AuthenticationPrincipal User currentUser
+    ) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(ImportJobResponse.from(importJobService.getJob(jobId, currentUser))));
+        } catch (RuntimeException e) {
+            String msg = e.getMessage();
+            if (msg != null && msg.contains("Không tìm thấy")) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(msg));
+            }
+            if (msg != null && msg.contains("quyền")) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(ApiResponse.error(msg));
+            }
+            return ResponseEntity.badRequest().body(ApiResponse.error(msg));
+        }
+    }
+}
@@ -7,15 +7,18 @@ import com.example.lms.service.LessonAttachmentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
 
@@ -24,6 +27,7 @@ import java.util.UUID;
 @RequiredArgsConstructor
 @Tag(name = "Lesson Attachments", description = "API quản lý file đính kèm của bài học")
 @SecurityRequirement(name = "Bearer Authentication")
+@Slf4j
 public class LessonAttachmentController {
 
     private final LessonAttachmentService lessonAttachmentService;
@@ -37,13 +41,9 @@ public class LessonAttachmentController {
             @AuthenticationPrincipal User currentUser
     ) {
         try {
-            System.out.println("=== ATTACHMENT UPLOAD DEBUG ===");
-            System.out.println("Lesson ID: " + lessonId);
-            System.out.println("File name: " + (file != null ? file.getOriginalFilename() : "null"));
-            System.out.println("File size: " + (file != null ? file.getSize() : "null"));
-            System.out.println("Current user: " + (currentUser != null ? currentUser.getUsername() + " (Role: " + currentUser.getRole() + ")" : "null"));
-            System.out.println("Display order: " + displayOrder);
-            
+            log.debug("Attachment upload to lesson {}: file={}, size={}, displayOrder={}",
+                    lessonId, file.getOriginalFilename(), file.getSize(), displayOrder);
+
             LessonAttachment attachment = lessonAttachmentService.addAttachment(lessonId, currentUser, file, displayOrder);
             AttachmentDetail detail = convertToAttachmentDetail(attachment);
 
@@ -60,6 +60,39 @@ public class LessonAttachmentController {
         }
     }
 
+    @PutMapping("/{lessonId}/attachments/stream")
+    @Operation(summary = "Thêm file đính kèm dạng luồng", description = "Gửi nội dung file trực tiếp trong body (không multipart); file được ghi thẳng vào nơi lưu trữ mà không qua file tạm")
+    public ResponseEntity<ApiResponse<AttachmentDetail>> addAttachmentStream(
+            @PathVariable UUID lessonId,
+            @RequestParam("fileName") String fileName,
+            @RequestParam(value = "displayOrder", required = false) Integer displayOrder,
+            @AuthenticationPrincipal User currentUser,
+            HttpServletRequest httpRequest
+    ) {
+        try {
+            log.debug("Streamed attachment upload to lesson {}: file={}, contentLength={}, displayOrder={}",
+                    lessonId, fileName, httpRequest.getContentLengthLong(), displayOrder);
+
+            LessonAttachment attachment = lessonAttachmentService.addAttachmentStream(lessonId, currentUser,
+                    httpRequest.getInputStream(), httpRequest.getContentLengthLong(), fileName,
+                    httpRequest.getContentType(), displayOrder);
+            AttachmentDetail detail = convertToAttachmentDetail(attachment);
+
+            return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(detail));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (RuntimeException e) {
+            String msg = e.getMessage() != null ? e.getMessage() : "Có lỗi xảy ra";
+            if (msg.toLowerCase().contains("quyền")) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(ApiResponse.error(msg));
+            }
+            if (msg.contains("Không tìm thấy")) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(msg));
+            }
+            return ResponseEntity.badRequest().body(ApiResponse.error(msg));
+        }
+    }
+
     @GetMapping("/{lessonId}/attachments")
     @Operation(summary = "Lấy danh sách file đính kèm", description = "Lấy tất cả file đính kèm của một bài học")
     public ResponseEntity<ApiResponse<List<AttachmentDetail>>> getAttachments(
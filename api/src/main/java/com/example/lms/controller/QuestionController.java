@@ -9,6 +9,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -24,6 +25,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Tag(name = "Question Bank Management", description = "API quản lý ngân hàng câu hỏi")
 @SecurityRequirement(name = "Bearer Authentication")
+@Slf4j
 public class QuestionController {
 
     private final QuestionService questionService;
@@ -36,11 +38,8 @@ public class QuestionController {
             @RequestBody CreateQuestionRequest request
     ) {
         try {
-            System.out.println("🔍 Create Question - User info:");
-            System.out.println("   - User ID: " + currentUser.getId());
-            System.out.println("   - Username: " + currentUser.getUsername());
-            System.out.println("   - Role: " + currentUser.getRole().name());
-            System.out.println("   - Course ID: " + request.getCourseId());
+            log.debug("Create question by user {} ({}) for course {}",
+                    currentUser.getId(), currentUser.getRole(), request.getCourseId());
             
             Question question = questionService.createQuestion(
                     currentUser,
@@ -51,12 +50,12 @@ public class QuestionController {
                     request.getTags(),
                     request.getCourseId()  // Add courseId parameter
             );
-            System.out.println("✅ Question created successfully: " + question.getId());
+            log.debug("Question created successfully: {}", question.getId());
             
             QuestionDTO questionDTO = QuestionDTO.fromEntity(question);
             return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(questionDTO));
         } catch (RuntimeException e) {
-            System.out.println("❌ Error creating question: " + e.getMessage());
+            log.warn("Error creating question: {}", e.getMessage());
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -71,28 +70,22 @@ public class QuestionController {
             @RequestParam(required = false) String tags
     ) {
         try {
-            // Enhanced logging
-            System.out.println("🔍 Question API - User info:");
-            System.out.println("   - User ID: " + currentUser.getId());
-            System.out.println("   - Username: " + currentUser.getUsername());
-            System.out.println("   - Role: " + currentUser.getRole());
-            System.out.println("   - Role name: " + currentUser.getRole().name());
-            System.out.println("   - Enabled: " + currentUser.isEnabled());
+            log.debug("List questions for user {} ({})", currentUser.getId(), currentUser.getRole());
             
             List<Question> questions;
             
             // Default: get all active questions for teachers/admins
             if (status == null && difficulty == null && (tags == null || tags.isEmpty())) {
-                System.out.println("📋 Getting all active questions...");
+                log.debug("Getting all active questions...");
                 questions = questionService.getActiveQuestions();
             } else {
-                System.out.println("🔍 Applying filters - Status: " + status + ", Difficulty: " + difficulty + ", Tags: " + tags);
+                log.debug("Applying filters - Status: {}, Difficulty: {}, Tags: {}", status, difficulty, tags);
                 // Apply filters
                 Question.Status filterStatus = status != null ? status : Question.Status.ACTIVE;
                 questions = questionService.searchQuestions(filterStatus, difficulty, tags);
             }
             
-            System.out.println("📊 Found " + questions.size() + " questions");
+            log.debug("Found {} questions", questions.size());
             
             // Convert to DTOs
             List<QuestionDTO> questionDTOs = questions.stream()
@@ -101,8 +94,7 @@ public class QuestionController {
             
             return ResponseEntity.ok(ApiResponse.success(questionDTOs));
         } catch (RuntimeException e) {
-            System.out.println("❌ Error in getQuestions: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Error in getQuestions: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -118,10 +110,10 @@ public class QuestionController {
             List<Question> questions;
             // If caller provided a status filter, apply it. Otherwise, return all questions created by the user
             if (status == null) {
-                System.out.println("🔍 getMyQuestions: no status provided - returning all questions created by user " + currentUser.getId());
+                log.debug("getMyQuestions: no status provided - returning all questions created by user {}", currentUser.getId());
                 questions = questionService.getQuestionsByCreator(currentUser);
             } else {
-                System.out.println("🔍 getMyQuestions: status=" + status + " - returning filtered list for user " + currentUser.getId());
+                log.debug("getMyQuestions: status={} - returning filtered list for user {}", status, currentUser.getId());
                 questions = questionService.getQuestionsByCreatorAndStatus(currentUser, status);
             }
             
@@ -130,11 +122,10 @@ public class QuestionController {
                     .map(QuestionDTO::fromEntity)
                     .collect(Collectors.toList());
             
-            System.out.println("✅ getMyQuestions: returning " + questionDTOs.size() + " questions as DTOs");
+            log.debug("getMyQuestions: returning {} questions as DTOs", questionDTOs.size());
             return ResponseEntity.ok(ApiResponse.success(questionDTOs));
         } catch (RuntimeException e) {
-            System.out.println("❌ Error in getMyQuestions: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Error in getMyQuestions: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -200,7 +191,7 @@ public class QuestionController {
             @AuthenticationPrincipal User currentUser
     ) {
         try {
-            System.out.println("🔍 Getting questions for course: " + courseId + " with status: " + status);
+            log.debug("Getting questions for course: {} with status: {}", courseId, status);
             
             List<Question> questions = questionService.getQuestionsByCourse(courseId, status, currentUser);
             
@@ -208,10 +199,10 @@ public class QuestionController {
                     .map(QuestionDTO::fromEntity)
                     .collect(Collectors.toList());
                     
-            System.out.println("✅ Found " + questionDTOs.size() + " questions for course " + courseId);
+            log.debug("Found {} questions for course {}", questionDTOs.size(), courseId);
             return ResponseEntity.ok(ApiResponse.success(questionDTOs));
         } catch (RuntimeException e) {
-            System.err.println("❌ Error getting questions by course: " + e.getMessage());
+            log.warn("Error getting questions by course: {}", e.getMessage());
             String msg = e.getMessage() != null ? e.getMessage() : "Không thể lấy danh sách câu hỏi";
             if (msg.toLowerCase().contains("quyền")) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN).body(ApiResponse.error(msg));
@@ -3,12 +3,16 @@ package com.example.lms.controller;
 import com.example.lms.dto.ApiResponse;
 import com.example.lms.dto.QuizDTO;
 import com.example.lms.entity.*;
+import com.example.lms.service.AnswerAutosaveBuffer;
+import com.example.lms.service.AttemptAdmissionQueue;
 import com.example.lms.service.LessonService;
 import com.example.lms.service.QuizService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -26,10 +30,13 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Tag(name = "Quiz Management", description = "API quản lý quiz và attempt")
 @SecurityRequirement(name = "Bearer Authentication")
+@Slf4j
 public class QuizController {
 
     private final QuizService quizService;
     private final LessonService lessonService;
+    private final AttemptAdmissionQueue attemptAdmissionQueue;
+    private final AnswerAutosaveBuffer answerAutosaveBuffer;
 
     @PostMapping("/lessons/{lessonId}")
     @Operation(summary = "Tạo quiz cho lesson", description = "Giảng viên tạo quiz cho lesson")
@@ -57,18 +64,29 @@ public class QuizController {
             );
             return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(quiz));
         } catch (RuntimeException e) {
-            System.err.println("❌ Quiz creation failed: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Quiz creation failed: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
 
     @PostMapping("/{lessonId}/attempts")
-    @Operation(summary = "Bắt đầu làm quiz", description = "Học viên bắt đầu làm quiz")
-    public ResponseEntity<ApiResponse<QuizAttempt>> startAttempt(
+    @Operation(summary = "Bắt đầu làm quiz", description = "Học viên bắt đầu làm quiz. Khi nhiều học viên bắt đầu cùng lúc, yêu cầu có thể được xếp hàng: trả về 202 kèm vị trí, gọi lại sau Retry-After giây để giữ chỗ")
+    public ResponseEntity<ApiResponse<?>> startAttempt(
             @PathVariable UUID lessonId,
             @AuthenticationPrincipal User currentUser
     ) {
+        AttemptAdmissionQueue.Admission admission = attemptAdmissionQueue.tryAdmit(currentUser.getId(), lessonId);
+        if (admission.result() == AttemptAdmissionQueue.Result.QUEUED) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()))
+                    .body(ApiResponse.success(admission, "Đang xếp hàng, vị trí " + admission.position()));
+        }
+        if (admission.result() == AttemptAdmissionQueue.Result.REJECTED) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()))
+                    .body(ApiResponse.error("Hệ thống đang quá tải, vui lòng thử lại sau"));
+        }
+
         try {
             // Validate lesson access first
             lessonService.getLessonById(lessonId, currentUser);
@@ -76,8 +94,10 @@ public class QuizController {
             QuizAttempt attempt = quizService.startAttempt(currentUser, lessonId);
             return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(attempt));
         } catch (RuntimeException e) {
-            System.err.println("❌ Start attempt failed: " + e.getMessage());
+            log.warn("Start attempt failed: {}", e.getMessage());
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } finally {
+            attemptAdmissionQueue.release();
         }
     }
 
@@ -88,28 +108,32 @@ public class QuizController {
             Quiz quiz = quizService.getQuizByLessonId(lessonId);
             return ResponseEntity.ok(ApiResponse.success(quiz));
         } catch (RuntimeException e) {
-            System.err.println("❌ Get quiz by lesson failed: " + e.getMessage());
+            log.warn("Get quiz by lesson failed: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ApiResponse.error(e.getMessage()));
         }
     }
 
     @GetMapping("/lessons/{lessonId}/questions")
     @Operation(summary = "Lấy danh sách câu hỏi của quiz", description = "Lấy tất cả câu hỏi trong quiz")
-    public ResponseEntity<ApiResponse<List<Question>>> getQuizQuestions(@PathVariable UUID lessonId) {
+    public ResponseEntity<ApiResponse<List<?>>> getQuizQuestions(
+            @PathVariable UUID lessonId,
+            @AuthenticationPrincipal User currentUser) {
         try {
-            System.out.println("🔍 DEBUG: Getting questions for lesson: " + lessonId);
-            
-            // Check if quiz exists for this lesson
-            Quiz quiz = quizService.getQuizByLessonId(lessonId);
-            System.out.println("🔍 DEBUG: Found quiz: " + quiz.getId());
-            
-            List<Question> questions = quizService.getQuizQuestions(lessonId);
-            System.out.println("🔍 DEBUG: Retrieved " + questions.size() + " questions");
+            log.debug("Getting questions for lesson: {}", lessonId);
             
-            return ResponseEntity.ok(ApiResponse.success(questions));
+            // Served from the compiled snapshot; throws when the lesson has no quiz
+            QuizService.CompiledQuiz quiz = quizService.getCompiledQuiz(lessonId);
+            log.debug("Retrieved {} questions of quiz {}", quiz.questions().size(), quiz.quizId());
+
+            // Students never receive the answer key
+            if (currentUser != null && currentUser.getRole() != User.Role.STUDENT) {
+                return ResponseEntity.ok(ApiResponse.success(quiz.questions().stream()
+                        .map(question -> QuizService.AnsweredQuestion.of(question, quiz.correctOption(question.id())))
+                        .toList()));
+            }
+            return ResponseEntity.ok(ApiResponse.success(quiz.questions()));
         } catch (RuntimeException e) {
-            System.err.println("❌ Get quiz questions failed: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Get quiz questions failed: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -128,6 +152,23 @@ public class QuizController {
         }
     }
 
+    @PutMapping("/attempts/{attemptId}/items/{questionId}")
+    @Operation(summary = "Lưu tạm câu trả lời", description = "Học viên lưu câu trả lời của một câu hỏi trong lúc làm bài. Câu trả lời được ghi vào cơ sở dữ liệu sau vài giây hoặc khi nộp bài; khi nộp, câu trả lời gửi kèm được ưu tiên")
+    public ResponseEntity<ApiResponse<Void>> saveAnswer(
+            @PathVariable UUID attemptId,
+            @PathVariable UUID questionId,
+            @RequestBody SaveAnswerRequest request,
+            @AuthenticationPrincipal User currentUser
+    ) {
+        try {
+            answerAutosaveBuffer.save(attemptId, currentUser.getId(), questionId,
+                    request.getSelectedOption(), request.getTimeSpentSeconds());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.success(null, "Đã lưu tạm câu trả lời"));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     @GetMapping("/{lessonId}/attempts")
     @Operation(summary = "Lấy danh sách attempts của học viên", description = "Học viên xem danh sách attempts của mình")
     public ResponseEntity<ApiResponse<List<QuizAttempt>>> getStudentAttempts(
@@ -142,7 +183,7 @@ public class QuizController {
             List<QuizAttempt> attempts = quizService.getStudentAttempts(quiz.getId(), currentUser.getId());
             return ResponseEntity.ok(ApiResponse.success(attempts));
         } catch (RuntimeException e) {
-            System.err.println("❌ Get student attempts failed: " + e.getMessage());
+            log.warn("Get student attempts failed: {}", e.getMessage());
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -161,7 +202,7 @@ public class QuizController {
             List<QuizAttempt> attempts = quizService.getQuizAttempts(quiz.getId());
             return ResponseEntity.ok(ApiResponse.success(attempts));
         } catch (RuntimeException e) {
-            System.err.println("❌ Get quiz attempts failed: " + e.getMessage());
+            log.warn("Get quiz attempts failed: {}", e.getMessage());
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -209,6 +250,16 @@ public class QuizController {
         public void setAnswers(Map<UUID, String> answers) { this.answers = answers; }
     }
 
+    public static class SaveAnswerRequest {
+        private String selectedOption;
+        private Long timeSpentSeconds;
+
+        public String getSelectedOption() { return selectedOption; }
+        public void setSelectedOption(String selectedOption) { this.selectedOption = selectedOption; }
+        public Long getTimeSpentSeconds() { return timeSpentSeconds; }
+        public void setTimeSpentSeconds(Long timeSpentSeconds) { this.timeSpentSeconds = timeSpentSeconds; }
+    }
+
     @PutMapping("/lessons/{lessonId}/questions")
     public ResponseEntity<?> updateQuizQuestions(
             @PathVariable UUID lessonId,
@@ -221,8 +272,7 @@ public class QuizController {
             Quiz quiz = quizService.updateQuizQuestions(lessonId, request.getQuestionIds());
             return ResponseEntity.ok(ApiResponse.success(quiz, "Cập nhật danh sách câu hỏi thành công"));
         } catch (Exception e) {
-            System.err.println("❌ Update quiz questions failed: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Update quiz questions failed: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(ApiResponse.error(e.getMessage()));
         }
@@ -245,7 +295,7 @@ public class QuizController {
             QuizService.QuizResultDetail result = quizService.getQuizResult(attemptId, currentUser.getId());
             return ResponseEntity.ok(ApiResponse.success(result));
         } catch (RuntimeException e) {
-            System.err.println("❌ Get quiz result failed: " + e.getMessage());
+            log.warn("Get quiz result failed: {}", e.getMessage());
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -263,7 +313,7 @@ public class QuizController {
             QuizService.QuizStatistics statistics = quizService.getQuizStatistics(lessonId);
             return ResponseEntity.ok(ApiResponse.success(statistics));
         } catch (RuntimeException e) {
-            System.err.println("❌ Get quiz statistics failed: " + e.getMessage());
+            log.warn("Get quiz statistics failed: {}", e.getMessage());
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -274,13 +324,12 @@ public class QuizController {
             @AuthenticationPrincipal User currentUser
     ) {
         try {
-            System.out.println("🔍 Getting teacher quizzes for user: " + currentUser.getId());
+            log.debug("Getting teacher quizzes for user: {}", currentUser.getId());
             List<QuizDTO> quizzes = quizService.getQuizDTOsByInstructorId(currentUser.getId());
-            System.out.println("📊 Found " + quizzes.size() + " quizzes for teacher");
+            log.debug("Found {} quizzes for teacher", quizzes.size());
             return ResponseEntity.ok(ApiResponse.success(quizzes));
         } catch (RuntimeException e) {
-            System.err.println("❌ Get teacher quizzes failed: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Get teacher quizzes failed: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -306,7 +355,7 @@ public class QuizController {
             
             return ResponseEntity.ok(ApiResponse.success(debugInfo));
         } catch (RuntimeException e) {
-            System.err.println("❌ Debug quiz info failed: " + e.getMessage());
+            log.warn("Debug quiz info failed: {}", e.getMessage());
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -325,8 +374,7 @@ public class QuizController {
             Quiz quiz = quizService.addQuestionToQuiz(lessonId, request.getQuestionId());
             return ResponseEntity.ok(ApiResponse.success(quiz, "Đã thêm câu hỏi vào quiz"));
         } catch (RuntimeException e) {
-            System.err.println("❌ Add question to quiz failed: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Add question to quiz failed: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -352,8 +400,7 @@ public class QuizController {
             Quiz quiz = quizService.removeQuestionFromQuiz(lessonId, questionId);
             return ResponseEntity.ok(ApiResponse.success(quiz, "Đã xóa câu hỏi khỏi quiz"));
         } catch (RuntimeException e) {
-            System.err.println("❌ Remove question from quiz failed: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Remove question from quiz failed: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -371,8 +418,7 @@ public class QuizController {
             quizService.deleteQuizWithAllQuestions(lessonId);
             return ResponseEntity.ok(ApiResponse.success("Đã xóa quiz thành công", "Đã xóa quiz và tất cả câu hỏi"));
         } catch (RuntimeException e) {
-            System.err.println("❌ Delete quiz failed: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Delete quiz failed: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
@@ -1,6 +1,7 @@
 package com.example.lms.controller;
 
 import com.example.lms.dto.ApiResponse;
+import com.example.lms.dto.CursorPage;
 import com.example.lms.entity.User;
 import com.example.lms.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -34,24 +35,26 @@ public class UserController {
 
     @GetMapping
     @Operation(summary = "Lấy danh sách người dùng", description = "Admin lấy danh sách tất cả người dùng với phân trang")
-    public ResponseEntity<ApiResponse<Page<UserSummary>>> getAllUsers(
+    public ResponseEntity<ApiResponse<?>> getAllUsers(
             @Parameter(description = "Số trang (bắt đầu từ 1)") @RequestParam(defaultValue = "1") int page,
             @Parameter(description = "Số lượng item trên mỗi trang") @RequestParam(defaultValue = "10") int limit,
-            @Parameter(description = "Tìm kiếm theo tên hoặc email") @RequestParam(required = false) String search
+            @Parameter(description = "Tìm kiếm theo tên hoặc email") @RequestParam(required = false) String search,
+            @Parameter(description = "Cursor phân trang (để trống cho trang đầu); bật chế độ keyset thay cho page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Chế độ keyset: có trả về tổng số bản ghi không") @RequestParam(defaultValue = "false") boolean includeTotal
     ) {
         try {
+            limit = CursorPage.clampLimit(limit);
+            if (cursor != null) {
+                CursorPage<UserSummary> userSummaries = userService
+                        .getAllUsersAfter(cursor, limit, search, includeTotal)
+                        .map(this::convertToUserSummary);
+                return ResponseEntity.ok(ApiResponse.success(userSummaries));
+            }
+
             Pageable pageable = PageRequest.of(page - 1, limit);
             Page<User> users = userService.getAllUsers(pageable, search);
             
-            Page<UserSummary> userSummaries = users.map(user -> UserSummary.builder()
-                    .id(user.getId())
-                    .username(user.getUsername())
-                    .email(user.getEmail())
-                    .fullName(user.getFullName())
-                    .role(user.getRole().name())
-                    .enabled(user.getEnabled())
-                    .createdAt(user.getCreatedAt())
-                    .build());
+            Page<UserSummary> userSummaries = users.map(this::convertToUserSummary);
             
             return ResponseEntity.ok(ApiResponse.success(userSummaries));
         } catch (Exception e) {
@@ -191,6 +194,18 @@ public class UserController {
         }
     }
 
+    private UserSummary convertToUserSummary(User user) {
+        return UserSummary.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .fullName(user.getFullName())
+                .role(user.getRole().name())
+                .enabled(user.getEnabled())
+                .createdAt(user.getCreatedAt())
+                .build();
+    }
+
     // DTOs
     public static class UserSummary {
         private UUID id;
@@ -1,5 +1,6 @@
 package com.example.lms.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -48,6 +49,23 @@ public class ApiResponse<T> {
                 .build();
     }
     
+    /**
+     * Keyset page: data is the item list, pagination carries limit, nextCursor and
+     * (when requested) totalItems instead of page numbers.
+     */
+    public static <T> ApiResponse<java.util.List<T>> success(CursorPage<T> page) {
+        PaginationInfo paginationInfo = PaginationInfo.builder()
+                .limit(page.getLimit())
+                .totalItems(page.getTotalItems())
+                .nextCursor(page.getNextCursor())
+                .build();
+
+        return ApiResponse.<java.util.List<T>>builder()
+                .data(page.getItems())
+                .pagination(paginationInfo)
+                .build();
+    }
+    
     public static <T> ApiResponse<T> error(String message) {
         return ApiResponse.<T>builder()
                 .message(message)
@@ -58,10 +76,12 @@ public class ApiResponse<T> {
     @Builder
     @NoArgsConstructor
     @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public static class PaginationInfo {
-        private int page;
-        private int limit;
-        private long totalItems;
-        private int totalPages;
+        private Integer page;
+        private Integer limit;
+        private Long totalItems;
+        private Integer totalPages;
+        private String nextCursor; // keyset mode only; null on the last page
     }
 }
\ No newline at end of file
@@ -0,0 +1,48 @@
+package com.example.lms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset scan. {@code nextCursor} is null on the last page and
+ * {@code totalItems} is null unless the caller asked for the total.
+ */
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    public static final int MAX_LIMIT = 100;
+
+    private List<T> items;
+    private int limit;
+    private String nextCursor;
+    private Long totalItems;
+
+    /**
+     * Build a page from a query that fetched up to {@code limit + 1} rows;
+     * the extra row only signals that another page exists.
+     */
+    public static <T> CursorPage<T> of(List<T> fetched, int limit, Function<T, String> cursorOf, Long totalItems) {
+        limit = clampLimit(limit);
+        if (fetched.size() <= limit) {
+            return new CursorPage<>(fetched, limit, null, totalItems);
+        }
+        List<T> items = fetched.subList(0, limit);
+        return new CursorPage<>(items, limit, cursorOf.apply(items.get(limit - 1)), totalItems);
+    }
+
+    /**
+     * Page size requested by a client, kept within 1..{@value #MAX_LIMIT}
+     */
+    public static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = items.stream().<R>map(mapper).toList();
+        return new CursorPage<>(mapped, limit, nextCursor, totalItems);
+    }
+}
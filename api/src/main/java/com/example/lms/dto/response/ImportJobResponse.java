@@ -0,0 +1,63 @@
+package com.example.lms.dto.response;
+
+import com.example.lms.entity.ImportJob;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Status and progress of a background import job, as returned by GET /api/v1/jobs/{id}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportJobResponse {
+
+    private UUID id;
+    private ImportJob.JobType type;
+    private ImportJob.JobStatus status;
+    private UUID courseId;
+    private String fileName;
+
+    /**
+     * Input items committed so far (emails for a roster import)
+     */
+    private long processedItems;
+    private long successCount;
+    private long errorCount;
+
+    /**
+     * Final result once the job has succeeded, e.g. the bulk enrollment report
+     */
+    @JsonRawValue
+    private String result;
+
+    private String error;
+    private Instant createdAt;
+    private Instant finishedAt;
+
+    public static ImportJobResponse from(ImportJob job) {
+        return ImportJobResponse.builder()
+                .id(job.getId())
+                .type(job.getType())
+                .status(job.getStatus())
+                .courseId(job.getCourseId())
+                .fileName(job.getFileName())
+                .processedItems(job.getProcessedItems())
+                .successCount(job.getSuccessCount())
+                .errorCount(job.getErrorCount())
+                .result(job.getResult())
+                .error(job.getError())
+                .createdAt(job.getCreatedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+}
@@ -13,7 +13,7 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "assignment_submissions")
+@Table(name = "assignment_submissions", indexes = @Index(name = "idx_submissions_assignment_created", columnList = "assignment_id, created_at, id"))
 @Data
 @Builder
 @NoArgsConstructor
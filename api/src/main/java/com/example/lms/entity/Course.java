@@ -17,7 +17,7 @@ import java.util.Set;
 import java.util.UUID;
 
 @Entity
-@Table(name = "courses")
+@Table(name = "courses", indexes = @Index(name = "idx_courses_status_created", columnList = "status, created_at, id"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -0,0 +1,55 @@
+package com.example.lms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Denormalized per-course counts, kept in step with enrollments and course content
+ * by {@link com.example.lms.service.CourseCounterService}. Kept in its own table so
+ * the counter upserts never race with regular updates of the course row.
+ */
+@Entity
+@Table(name = "course_counters")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseCounter {
+
+    @Id
+    @Column(name = "course_id")
+    private UUID courseId;
+
+    @Column(name = "enrolled_count", columnDefinition = "bigint default 0", nullable = false)
+    @Builder.Default
+    private long enrolledCount = 0;
+
+    @Column(name = "sections_count", columnDefinition = "bigint default 0", nullable = false)
+    @Builder.Default
+    private long sectionsCount = 0;
+
+    @Column(name = "lessons_count", columnDefinition = "bigint default 0", nullable = false)
+    @Builder.Default
+    private long lessonsCount = 0;
+
+    @Column(name = "assignments_count", columnDefinition = "bigint default 0", nullable = false)
+    @Builder.Default
+    private long assignmentsCount = 0;
+
+    @Column(name = "quizzes_count", columnDefinition = "bigint default 0", nullable = false)
+    @Builder.Default
+    private long quizzesCount = 0;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    /**
+     * Zero counters for a course that has no row yet
+     */
+    public static CourseCounter empty(UUID courseId) {
+        return CourseCounter.builder().courseId(courseId).build();
+    }
+}
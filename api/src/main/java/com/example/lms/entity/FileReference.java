@@ -0,0 +1,44 @@
+package com.example.lms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One uploaded file as its users see it: the {@code {type}/{yyyy}/{MM}/{name}} path served
+ * under /api/v1/files, pointing at the {@link FileBlob} that holds the bytes
+ */
+@Entity
+@Table(name = "file_references", uniqueConstraints = @UniqueConstraint(name = "uk_file_references_path", columnNames = "path"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileReference {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false, length = 500)
+    private String path;
+
+    @Column(name = "blob_hash", nullable = false, length = 64)
+    private String blobHash;
+
+    @Column(name = "original_file_name")
+    private String originalFileName;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "created_by")
+    private UUID createdBy;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,109 @@
+package com.example.lms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Background import (roster or document) submitted over HTTP and run by
+ * {@link com.example.lms.service.ImportJobService}. Progress columns advance in the same
+ * transaction as each committed chunk, so after a crash the job resumes from
+ * {@code processedItems} without repeating or losing work.
+ */
+@Entity
+@Table(name = "import_jobs", indexes = @Index(name = "idx_import_jobs_status_heartbeat", columnList = "status, heartbeat_at"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private JobType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private JobStatus status = JobStatus.QUEUED;
+
+    @Column(name = "created_by", nullable = false)
+    private UUID createdBy;
+
+    @Column(name = "course_id")
+    private UUID courseId;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    /**
+     * BlobStorage key of the spooled upload, deleted once the job finishes
+     */
+    @Column(name = "spool_path")
+    private String spoolPath;
+
+    /**
+     * Input items committed so far; the resume offset
+     */
+    @Column(name = "processed_items", nullable = false)
+    @Builder.Default
+    private long processedItems = 0;
+
+    @Column(name = "success_count", nullable = false)
+    @Builder.Default
+    private long successCount = 0;
+
+    @Column(name = "error_count", nullable = false)
+    @Builder.Default
+    private long errorCount = 0;
+
+    @Column(name = "chunks_committed", nullable = false)
+    @Builder.Default
+    private int chunksCommitted = 0;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private int attempts = 0;
+
+    /**
+     * Final result as JSON, set when the job succeeds
+     */
+    @Column(columnDefinition = "TEXT")
+    private String result;
+
+    @Column(length = 1000)
+    private String error;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    /**
+     * Refreshed on claim, on every chunk and periodically while a worker runs the job;
+     * a RUNNING job with an old heartbeat is considered abandoned and may be claimed again
+     */
+    @Column(name = "heartbeat_at")
+    private Instant heartbeatAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    public enum JobType {
+        ROSTER_IMPORT,
+        DOCUMENT_PARSE
+    }
+
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+}
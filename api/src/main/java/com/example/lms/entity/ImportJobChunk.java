@@ -0,0 +1,32 @@
+package com.example.lms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one committed chunk of an {@link ImportJob}, merged into the job result
+ * when the job finishes and then removed
+ */
+@Entity
+@Table(name = "import_job_chunks", uniqueConstraints = @UniqueConstraint(name = "uk_import_job_chunks_job_index", columnNames = {"job_id", "chunk_index"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportJobChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "job_id", nullable = false)
+    private UUID jobId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private int chunkIndex;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String result;
+}
@@ -32,6 +32,9 @@ public class LessonAttachment {
     @Column(name = "file_url", nullable = false)
     private String fileUrl;
 
+    @Column(name = "blob_hash", length = 64)
+    private String blobHash; // SHA-256 of the stored content, see FileBlob
+
     @Column(name = "file_size", nullable = false)
     private Long fileSize;
 
@@ -79,6 +79,7 @@ public class QuizAttempt {
     private Instant updatedAt;
 
     public enum Status {
+        READY, // prepared before a scheduled quiz opens, becomes IN_PROGRESS when the student starts
         IN_PROGRESS, SUBMITTED, EXPIRED
     }
 }
\ No newline at end of file
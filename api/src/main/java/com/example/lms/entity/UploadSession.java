@@ -0,0 +1,74 @@
+package com.example.lms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Resumable upload started through the signed-URL flow. Each chunk is stored as its own
+ * object in the blob storage and recorded in {@link UploadSessionChunk}; once complete the
+ * chunks are joined and the file goes to the blob store.
+ */
+@Entity
+@Table(name = "upload_sessions", indexes = @Index(name = "idx_upload_sessions_status_expires", columnList = "status, expires_at"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "created_by", nullable = false)
+    private UUID createdBy;
+
+    @Column(name = "original_file_name", nullable = false)
+    private String originalFileName;
+
+    @Column(name = "stored_file_name", nullable = false)
+    private String storedFileName;
+
+    @Column(name = "sub_dir", nullable = false)
+    private String subDir;
+
+    @Column(name = "file_size", nullable = false)
+    private long fileSize;
+
+    @Column(name = "chunk_size", nullable = false)
+    private int chunkSize;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private Status status = Status.UPLOADING;
+
+    /**
+     * SHA-256 of the assembled file, set when the session completes
+     */
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    public int getTotalChunks() {
+        return (int) ((fileSize + chunkSize - 1) / chunkSize);
+    }
+
+    public enum Status {
+        UPLOADING,
+        COMPLETED
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.lms.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * A chunk of an {@link UploadSession} that has been written to disk. One row per chunk
+ * keeps parallel chunk uploads from overwriting each other's progress.
+ */
+@Entity
+@Table(name = "upload_session_chunks")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionChunk {
+
+    @EmbeddedId
+    private Key id;
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        @Column(name = "session_id")
+        private UUID sessionId;
+
+        @Column(name = "chunk_index")
+        private int chunkIndex;
+    }
+}
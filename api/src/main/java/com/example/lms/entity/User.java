@@ -24,7 +24,7 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_created", columnList = "created_at, id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -72,12 +72,26 @@ public class User implements UserDetails {
     @Column
     private Instant updatedAt;
     
+    // Bumped on role, status and credential changes; tokens carrying an older value are stale
+    @Column(columnDefinition = "integer default 0")
+    @Builder.Default
+    @JsonIgnore
+    private Integer authEpoch = 0;
+    
+    // True when built without loading the row: from token claims (id, username, role and status
+    // only) or from a cached snapshot of the columns; UserService.resolvePrincipal loads the row
+    @Transient
+    @Builder.Default
+    @JsonIgnore
+    private boolean tokenPrincipal = false;
+    
     // Many-to-Many relationship with courses (for student enrollments)
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "course_enrollments",
         joinColumns = @JoinColumn(name = "student_id"),
-        inverseJoinColumns = @JoinColumn(name = "course_id")
+        inverseJoinColumns = @JoinColumn(name = "course_id"),
+        indexes = @Index(name = "idx_course_enrollments_course", columnList = "course_id, student_id")
     )
     @Builder.Default
     @JsonIgnore
@@ -128,6 +142,10 @@ public class User implements UserDetails {
         return enabled;
     }
     
+    public void bumpAuthEpoch() {
+        authEpoch = (authEpoch != null ? authEpoch : 0) + 1;
+    }
+    
     @PreUpdate
     protected void onUpdate() {
         updatedAt = Instant.now();
@@ -6,8 +6,12 @@ import com.example.lms.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -19,4 +23,17 @@ public interface AssignmentSubmissionRepository extends JpaRepository<Assignment
     Optional<AssignmentSubmission> findByAssignmentAndStudent(Assignment assignment, User student);
     
     Page<AssignmentSubmission> findByAssignment(Assignment assignment, Pageable pageable);
+
+    /**
+     * Keyset variant: submissions strictly after (createdAt, id) in (createdAt DESC, id DESC) order
+     */
+    @Query("SELECT s FROM AssignmentSubmission s WHERE s.assignment = :assignment " +
+           "AND (s.createdAt < :createdAt OR (s.createdAt = :createdAt AND s.id < :id)) " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    List<AssignmentSubmission> findByAssignmentAfter(@Param("assignment") Assignment assignment,
+                                                     @Param("createdAt") LocalDateTime createdAt,
+                                                     @Param("id") UUID id,
+                                                     Pageable limit);
+
+    long countByAssignment(Assignment assignment);
 }
\ No newline at end of file
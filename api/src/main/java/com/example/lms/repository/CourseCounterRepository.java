@@ -0,0 +1,71 @@
+package com.example.lms.repository;
+
+import com.example.lms.entity.CourseCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface CourseCounterRepository extends JpaRepository<CourseCounter, UUID> {
+
+    /**
+     * Apply deltas to a course's counters in one statement, creating the row on first use.
+     * Counts never go below zero; remaining drift is repaired by {@link #reconcile()}.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO course_counters (course_id, enrolled_count, sections_count, lessons_count, assignments_count, quizzes_count, updated_at) " +
+                   "VALUES (:courseId, GREATEST(:enrolled, 0), GREATEST(:sections, 0), GREATEST(:lessons, 0), GREATEST(:assignments, 0), GREATEST(:quizzes, 0), now()) " +
+                   "ON CONFLICT (course_id) DO UPDATE SET " +
+                   "enrolled_count = GREATEST(course_counters.enrolled_count + :enrolled, 0), " +
+                   "sections_count = GREATEST(course_counters.sections_count + :sections, 0), " +
+                   "lessons_count = GREATEST(course_counters.lessons_count + :lessons, 0), " +
+                   "assignments_count = GREATEST(course_counters.assignments_count + :assignments, 0), " +
+                   "quizzes_count = GREATEST(course_counters.quizzes_count + :quizzes, 0), " +
+                   "updated_at = now()",
+           nativeQuery = true)
+    void increment(@Param("courseId") UUID courseId,
+                   @Param("enrolled") long enrolled,
+                   @Param("sections") long sections,
+                   @Param("lessons") long lessons,
+                   @Param("assignments") long assignments,
+                   @Param("quizzes") long quizzes);
+
+    /**
+     * Recompute every course's counters from the source tables and write only the rows
+     * that are missing or differ. Returns the number of rows created or repaired.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO course_counters (course_id, enrolled_count, sections_count, lessons_count, assignments_count, quizzes_count, updated_at) " +
+                   "SELECT c.id, " +
+                   "(SELECT COUNT(*) FROM course_enrollments e WHERE e.course_id = c.id), " +
+                   "(SELECT COUNT(*) FROM sections s WHERE s.course_id = c.id), " +
+                   "(SELECT COUNT(*) FROM lessons l JOIN sections s ON l.section_id = s.id WHERE s.course_id = c.id), " +
+                   "(SELECT COUNT(*) FROM assignments a WHERE a.course_id = c.id), " +
+                   "(SELECT COUNT(*) FROM quizzes q JOIN lessons l ON q.lesson_id = l.id JOIN sections s ON l.section_id = s.id WHERE s.course_id = c.id), " +
+                   "now() " +
+                   "FROM courses c " +
+                   "ON CONFLICT (course_id) DO UPDATE SET " +
+                   "enrolled_count = EXCLUDED.enrolled_count, sections_count = EXCLUDED.sections_count, " +
+                   "lessons_count = EXCLUDED.lessons_count, assignments_count = EXCLUDED.assignments_count, " +
+                   "quizzes_count = EXCLUDED.quizzes_count, updated_at = now() " +
+                   "WHERE course_counters.enrolled_count <> EXCLUDED.enrolled_count " +
+                   "OR course_counters.sections_count <> EXCLUDED.sections_count " +
+                   "OR course_counters.lessons_count <> EXCLUDED.lessons_count " +
+                   "OR course_counters.assignments_count <> EXCLUDED.assignments_count " +
+                   "OR course_counters.quizzes_count <> EXCLUDED.quizzes_count",
+           nativeQuery = true)
+    int reconcile();
+
+    @Modifying
+    @Query(value = "DELETE FROM course_counters cc WHERE NOT EXISTS (SELECT 1 FROM courses c WHERE c.id = cc.course_id)",
+           nativeQuery = true)
+    int deleteOrphans();
+
+    @Modifying
+    @Query("DELETE FROM CourseCounter cc WHERE cc.courseId = :courseId")
+    void deleteByCourseId(@Param("courseId") UUID courseId);
+}
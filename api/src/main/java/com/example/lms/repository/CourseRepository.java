@@ -16,6 +16,53 @@ import java.util.UUID;
 
 @Repository
 public interface CourseRepository extends JpaRepository<Course, UUID> {
+
+    String CATALOG_SELECT = "SELECT c.id AS id, c.code AS code, c.title AS title, c.description AS description, " +
+            "c.status AS status, t.fullName AS teacherName, c.createdAt AS createdAt, " +
+            "COALESCE(cc.enrolledCount, 0) AS enrolledCount, " +
+            "CASE WHEN EXISTS (SELECT 1 FROM Course c3 JOIN c3.enrolledStudents s3 WHERE c3.id = c.id AND s3.id = :studentId) " +
+            "THEN true ELSE false END AS enrolled " +
+            "FROM Course c JOIN c.teacher t LEFT JOIN CourseCounter cc ON cc.courseId = c.id ";
+
+    /**
+     * Course catalog page as summary rows: enrolled count (from course_counters) and the
+     * caller's enrollment flag are resolved in the same statement instead of per row.
+     */
+    @Query(value = CATALOG_SELECT + "WHERE c.status = :status ORDER BY c.createdAt DESC, c.id DESC",
+           countQuery = "SELECT COUNT(c) FROM Course c WHERE c.status = :status")
+    Page<CatalogRow> findCatalog(@Param("status") Course.CourseStatus status,
+                                 @Param("studentId") UUID studentId,
+                                 Pageable pageable);
+
+    @Query(value = CATALOG_SELECT + "WHERE c.status = :status AND LOWER(c.title) LIKE LOWER(CONCAT('%', :search, '%')) " +
+                   "ORDER BY c.createdAt DESC, c.id DESC",
+           countQuery = "SELECT COUNT(c) FROM Course c WHERE c.status = :status AND LOWER(c.title) LIKE LOWER(CONCAT('%', :search, '%'))")
+    Page<CatalogRow> searchCatalog(@Param("status") Course.CourseStatus status,
+                                   @Param("search") String search,
+                                   @Param("studentId") UUID studentId,
+                                   Pageable pageable);
+    
+    /**
+     * Keyset variant of the catalog: rows strictly after (createdAt, id) in
+     * (createdAt DESC, id DESC) order. An empty search matches every title.
+     */
+    @Query(CATALOG_SELECT + "WHERE c.status = :status " +
+           "AND (:search = '' OR LOWER(c.title) LIKE LOWER(CONCAT('%', :search, '%'))) " +
+           "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :id)) " +
+           "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CatalogRow> findCatalogAfter(@Param("status") Course.CourseStatus status,
+                                      @Param("search") String search,
+                                      @Param("studentId") UUID studentId,
+                                      @Param("createdAt") Instant createdAt,
+                                      @Param("id") UUID id,
+                                      Pageable limit);
+
+    @Query("SELECT COUNT(c) FROM Course c WHERE c.status = :status " +
+           "AND (:search = '' OR LOWER(c.title) LIKE LOWER(CONCAT('%', :search, '%')))")
+    long countCatalog(@Param("status") Course.CourseStatus status, @Param("search") String search);
+    
+    @Query("SELECT c.teacher.id FROM Course c WHERE c.id = :courseId")
+    Optional<UUID> findTeacherIdById(@Param("courseId") UUID courseId);
     
     Optional<Course> findByCode(String code);
     
@@ -68,4 +115,37 @@ public interface CourseRepository extends JpaRepository<Course, UUID> {
      */
     @Query("SELECT es FROM Course c JOIN c.enrolledStudents es WHERE c.id = :courseId AND (LOWER(es.fullName) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(es.email) LIKE LOWER(CONCAT('%', :search, '%'))) ORDER BY es.fullName ASC")
     Page<User> searchEnrolledStudents(@Param("courseId") UUID courseId, @Param("search") String search, Pageable pageable);
+
+    /**
+     * Keyset variant of the enrolled students list in (fullName, id) order.
+     * An empty search matches every student.
+     */
+    @Query("SELECT es FROM Course c JOIN c.enrolledStudents es WHERE c.id = :courseId " +
+           "AND (:search = '' OR LOWER(es.fullName) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(es.email) LIKE LOWER(CONCAT('%', :search, '%'))) " +
+           "AND (es.fullName > :fullName OR (es.fullName = :fullName AND es.id > :id)) " +
+           "ORDER BY es.fullName ASC, es.id ASC")
+    List<User> findEnrolledStudentsAfter(@Param("courseId") UUID courseId,
+                                         @Param("search") String search,
+                                         @Param("fullName") String fullName,
+                                         @Param("id") UUID id,
+                                         Pageable limit);
+
+    @Query("SELECT COUNT(es) FROM Course c JOIN c.enrolledStudents es WHERE c.id = :courseId " +
+           "AND (LOWER(es.fullName) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(es.email) LIKE LOWER(CONCAT('%', :search, '%')))")
+    long countEnrolledStudentsMatching(@Param("courseId") UUID courseId, @Param("search") String search);
+
+    /**
+     * Summary row returned by the catalog queries
+     */
+    interface CatalogRow {
+        UUID getId();
+        String getCode();
+        String getTitle();
+        String getDescription();
+        Course.CourseStatus getStatus();
+        String getTeacherName();
+        Instant getCreatedAt();
+        Long getEnrolledCount();
+        Boolean getEnrolled();
+    }
 }
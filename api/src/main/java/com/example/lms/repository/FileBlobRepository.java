@@ -0,0 +1,34 @@
+package com.example.lms.repository;
+
+import com.example.lms.entity.FileBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+
+    /**
+     * Take a reference on the blob, creating it on first use. Locks the row until commit.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO blobs (hash, size, ref_count, created_at) VALUES (:hash, :size, 1, now()) " +
+                   "ON CONFLICT (hash) DO UPDATE SET ref_count = blobs.ref_count + 1",
+           nativeQuery = true)
+    int acquire(@Param("hash") String hash, @Param("size") long size);
+
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount - 1 WHERE b.hash = :hash AND b.refCount > 0")
+    int release(@Param("hash") String hash);
+
+    @Modifying
+    @Query("DELETE FROM FileBlob b WHERE b.hash = :hash AND b.refCount = 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+
+    @Query("SELECT b.hash FROM FileBlob b WHERE b.refCount = 0")
+    List<String> findUnreferencedHashes();
+}
@@ -0,0 +1,20 @@
+package com.example.lms.repository;
+
+import com.example.lms.entity.FileBlob;
+import com.example.lms.entity.FileReference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface FileReferenceRepository extends JpaRepository<FileReference, UUID> {
+
+    Optional<FileReference> findByPath(String path);
+
+    @Query("SELECT b FROM FileBlob b WHERE b.hash = (SELECT r.blobHash FROM FileReference r WHERE r.path = :path)")
+    Optional<FileBlob> findBlobByPath(@Param("path") String path);
+}
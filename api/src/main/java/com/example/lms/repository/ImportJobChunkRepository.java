@@ -0,0 +1,22 @@
+package com.example.lms.repository;
+
+import com.example.lms.entity.ImportJobChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ImportJobChunkRepository extends JpaRepository<ImportJobChunk, UUID> {
+
+    @Query("SELECT c.result FROM ImportJobChunk c WHERE c.jobId = :jobId ORDER BY c.chunkIndex")
+    List<String> findResultsByJobId(@Param("jobId") UUID jobId);
+
+    @Modifying
+    @Query("DELETE FROM ImportJobChunk c WHERE c.jobId = :jobId")
+    void deleteByJobId(@Param("jobId") UUID jobId);
+}
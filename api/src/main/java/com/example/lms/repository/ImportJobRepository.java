@@ -0,0 +1,58 @@
+package com.example.lms.repository;
+
+import com.example.lms.entity.ImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, UUID> {
+
+    /**
+     * Take ownership of a queued or abandoned job. Returns 0 when another worker holds it,
+     * so a job dispatched twice (sweep, restart, second node) still runs once.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ImportJob j SET j.status = com.example.lms.entity.ImportJob.JobStatus.RUNNING, " +
+           "j.heartbeatAt = :now, j.attempts = j.attempts + 1 " +
+           "WHERE j.id = :id AND (j.status = com.example.lms.entity.ImportJob.JobStatus.QUEUED " +
+           "OR (j.status = com.example.lms.entity.ImportJob.JobStatus.RUNNING AND j.heartbeatAt < :staleBefore))")
+    int claim(@Param("id") UUID id, @Param("now") Instant now, @Param("staleBefore") Instant staleBefore);
+
+    /**
+     * Keep jobs that are still running here from looking abandoned between chunk commits
+     */
+    @Modifying
+    @Query("UPDATE ImportJob j SET j.heartbeatAt = :now " +
+           "WHERE j.id IN :ids AND j.status = com.example.lms.entity.ImportJob.JobStatus.RUNNING")
+    int heartbeat(@Param("ids") Collection<UUID> ids, @Param("now") Instant now);
+
+    /**
+     * Record a committed chunk; runs in the chunk's transaction. Matches nothing when the
+     * job has moved past {@code chunksCommitted}, i.e. another worker took it over.
+     */
+    @Modifying
+    @Query("UPDATE ImportJob j SET j.processedItems = j.processedItems + :items, " +
+           "j.successCount = j.successCount + :success, j.errorCount = j.errorCount + :errors, " +
+           "j.chunksCommitted = j.chunksCommitted + 1, j.heartbeatAt = :now " +
+           "WHERE j.id = :id AND j.chunksCommitted = :chunksCommitted " +
+           "AND j.status = com.example.lms.entity.ImportJob.JobStatus.RUNNING")
+    int advance(@Param("id") UUID id,
+                @Param("chunksCommitted") int chunksCommitted,
+                @Param("items") long items,
+                @Param("success") long success,
+                @Param("errors") long errors,
+                @Param("now") Instant now);
+
+    @Query("SELECT j.id FROM ImportJob j " +
+           "WHERE j.status = com.example.lms.entity.ImportJob.JobStatus.QUEUED AND j.createdAt < :queuedBefore " +
+           "OR j.status = com.example.lms.entity.ImportJob.JobStatus.RUNNING AND j.heartbeatAt < :staleBefore")
+    List<UUID> findResumable(@Param("queuedBefore") Instant queuedBefore, @Param("staleBefore") Instant staleBefore);
+}
@@ -31,6 +31,13 @@ public interface LessonAttachmentRepository extends JpaRepository<LessonAttachme
     @Query("SELECT COUNT(a) FROM LessonAttachment a WHERE a.lesson.id = :lessonId")
     long countByLessonId(@Param("lessonId") UUID lessonId);
 
+    // File URLs of attachments deleted with their section or course, to release the stored files
+    @Query("SELECT a.fileUrl FROM LessonAttachment a WHERE a.lesson.section.id = :sectionId")
+    List<String> findFileUrlsBySectionId(@Param("sectionId") UUID sectionId);
+
+    @Query("SELECT a.fileUrl FROM LessonAttachment a WHERE a.lesson.section.course.id = :courseId")
+    List<String> findFileUrlsByCourseId(@Param("courseId") UUID courseId);
+
     // Find attachments by file types for bulk operations
     @Query("SELECT a FROM LessonAttachment a WHERE a.lesson.id = :lessonId AND a.fileType IN :fileTypes ORDER BY a.displayOrder ASC")
     List<LessonAttachment> findByLessonIdAndFileTypes(@Param("lessonId") UUID lessonId, @Param("fileTypes") List<String> fileTypes);
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,6 +30,17 @@ public interface QuestionRepository extends JpaRepository<Question, UUID> {
     @Query("SELECT q FROM Question q WHERE q.id IN :ids")
     List<Question> findByIds(@Param("ids") List<UUID> ids);
 
+    interface AnswerKey {
+        UUID getId();
+        String getCorrectOption();
+    }
+
+    /**
+     * Correct options of the questions, read for grading without loading the questions
+     */
+    @Query("SELECT q.id AS id, q.correctOption AS correctOption FROM Question q WHERE q.id IN :ids")
+    List<AnswerKey> findAnswerKeys(@Param("ids") Collection<UUID> ids);
+
     // NEW: Find questions by course
     List<Question> findByCourseId(UUID courseId);
 
@@ -1,11 +1,18 @@
 package com.example.lms.repository;
 
 import com.example.lms.entity.QuizAttempt;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -21,4 +28,95 @@ public interface QuizAttemptRepository extends JpaRepository<QuizAttempt, UUID>
     long countSubmittedAttempts(@Param("quizId") UUID quizId, @Param("studentId") UUID studentId);
 
     List<QuizAttempt> findByQuizIdOrderByCreatedAtDesc(UUID quizId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM QuizAttempt a WHERE a.id = :id")
+    Optional<QuizAttempt> lockById(@Param("id") UUID id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM QuizAttempt a WHERE a.id IN :ids AND a.status = 'IN_PROGRESS'")
+    List<QuizAttempt> lockInProgress(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Initializes the items of attempts already in the persistence context in one query
+     */
+    @Query("SELECT DISTINCT a FROM QuizAttempt a LEFT JOIN FETCH a.items WHERE a.id IN :ids")
+    List<QuizAttempt> fetchItems(@Param("ids") Collection<UUID> ids);
+
+    interface OpenAttempt {
+        UUID getId();
+        Instant getStartTime();
+        Integer getTimeLimitMinutes();
+        Instant getEndDate();
+    }
+
+    /**
+     * Every IN_PROGRESS attempt with what its deadline is computed from
+     */
+    @Query("SELECT a.id AS id, a.startTime AS startTime, q.timeLimitMinutes AS timeLimitMinutes, q.endDate AS endDate " +
+           "FROM QuizAttempt a JOIN a.quiz q WHERE a.status = 'IN_PROGRESS'")
+    List<OpenAttempt> findOpenAttempts();
+
+    /**
+     * IN_PROGRESS attempts whose time limit or quiz end date passed before {@code before}
+     */
+    @Query(value = "SELECT a.id FROM quiz_attempts a JOIN quizzes q ON q.id = a.quiz_id WHERE a.status = 'IN_PROGRESS' " +
+                   "AND ((q.time_limit_minutes > 0 AND a.start_time + q.time_limit_minutes * INTERVAL '1 minute' < :before) " +
+                   "OR q.end_date < :before)",
+           nativeQuery = true)
+    List<UUID> findOverdueAttemptIds(@Param("before") Instant before);
+
+    interface InProgressOwner {
+        UUID getStudentId();
+        Instant getStartTime();
+        Integer getTimeLimitMinutes();
+        Instant getEndDate();
+    }
+
+    /**
+     * Student of an IN_PROGRESS attempt with what its deadline is computed from
+     */
+    @Query("SELECT a.student.id AS studentId, a.startTime AS startTime, q.timeLimitMinutes AS timeLimitMinutes, " +
+           "q.endDate AS endDate FROM QuizAttempt a JOIN a.quiz q WHERE a.id = :id AND a.status = 'IN_PROGRESS'")
+    Optional<InProgressOwner> findInProgressOwner(@Param("id") UUID id);
+
+    List<QuizAttempt> findByQuizIdAndStudentIdAndStatusNot(UUID quizId, UUID studentId, QuizAttempt.Status status);
+
+    List<QuizAttempt> findByQuizIdAndStatusNotOrderByCreatedAtDesc(UUID quizId, QuizAttempt.Status status);
+
+    /**
+     * Prepared attempt of the student, row-locked; one being claimed by a concurrent request
+     * is skipped rather than waited for
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT a FROM QuizAttempt a WHERE a.quiz.id = :quizId AND a.student.id = :studentId AND a.status = 'READY'")
+    List<QuizAttempt> lockReadyAttempts(@Param("quizId") UUID quizId, @Param("studentId") UUID studentId);
+
+    /**
+     * Up to {@code limit} students enrolled in the course without any attempt of the quiz
+     */
+    @Query(value = "SELECT ce.student_id FROM course_enrollments ce WHERE ce.course_id = :courseId " +
+                   "AND NOT EXISTS (SELECT 1 FROM quiz_attempts a WHERE a.quiz_id = :quizId AND a.student_id = ce.student_id) " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<UUID> findStudentsWithoutAttempt(@Param("courseId") UUID courseId, @Param("quizId") UUID quizId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM quiz_attempt_items WHERE attempt_id IN " +
+                   "(SELECT id FROM quiz_attempts WHERE quiz_id = :quizId AND status = 'READY')",
+           nativeQuery = true)
+    int deleteReadyAttemptItems(@Param("quizId") UUID quizId);
+
+    @Modifying
+    @Query(value = "DELETE FROM quiz_attempts WHERE quiz_id = :quizId AND status = 'READY'", nativeQuery = true)
+    int deleteReadyAttempts(@Param("quizId") UUID quizId);
+
+    /**
+     * Quizzes with prepared attempts nobody claimed that will not be: closed before
+     * {@code now}, or without an end date and opened before {@code openedBefore}
+     */
+    @Query("SELECT DISTINCT q.id FROM QuizAttempt a JOIN a.quiz q WHERE a.status = 'READY' " +
+           "AND (q.endDate < :now OR (q.endDate IS NULL AND q.startDate < :openedBefore))")
+    List<UUID> findQuizIdsWithStaleReadyAttempts(@Param("now") Instant now, @Param("openedBefore") Instant openedBefore);
 }
\ No newline at end of file
@@ -16,6 +16,13 @@ import java.util.UUID;
 public interface QuizQuestionRepository extends JpaRepository<QuizQuestion, UUID> {
 
     List<QuizQuestion> findByQuizIdOrderByDisplayOrderAsc(UUID quizId);
+
+    /**
+     * Quiz questions in display order with their questions and options, in one query
+     */
+    @Query("SELECT qq FROM QuizQuestion qq JOIN FETCH qq.question q LEFT JOIN FETCH q.options " +
+           "WHERE qq.quiz.id = :quizId ORDER BY qq.displayOrder ASC")
+    List<QuizQuestion> findWithQuestionsAndOptionsByQuizId(@Param("quizId") UUID quizId);
     
     Optional<QuizQuestion> findByQuizIdAndQuestionId(UUID quizId, UUID questionId);
     
@@ -1,11 +1,14 @@
 package com.example.lms.repository;
 
 import com.example.lms.entity.Quiz;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -25,7 +28,25 @@ public interface QuizRepository extends JpaRepository<Quiz, UUID> {
     @Query("SELECT q FROM Quiz q JOIN q.lesson l JOIN l.section s WHERE s.course.id = :courseId")
     List<Quiz> findByCourseId(@Param("courseId") UUID courseId);
 
+    @Query("SELECT COUNT(q) FROM Quiz q WHERE q.lesson.section.id = :sectionId")
+    long countBySectionId(@Param("sectionId") UUID sectionId);
+
+    long countByLessonId(UUID lessonId);
+
     // Find all quizzes created by an instructor
     @Query("SELECT q FROM Quiz q JOIN q.lesson l JOIN l.section s WHERE s.course.teacher.id = :instructorId")
     List<Quiz> findByInstructorId(@Param("instructorId") UUID instructorId);
+
+    /**
+     * Quizzes opening in {@code (from, to]}, with lesson and section for the course id
+     */
+    @Query("SELECT q FROM Quiz q JOIN FETCH q.lesson l JOIN FETCH l.section WHERE q.startDate > :from AND q.startDate <= :to")
+    List<Quiz> findStartingBetween(@Param("from") Instant from, @Param("to") Instant to);
+
+    /**
+     * Row lock on the quiz, taken while preparing its attempts so nodes do not prepare twice
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT q FROM Quiz q WHERE q.id = :id")
+    Optional<Quiz> lockById(@Param("id") UUID id);
 }
\ No newline at end of file
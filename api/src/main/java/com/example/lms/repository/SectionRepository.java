@@ -24,4 +24,25 @@ public interface SectionRepository extends JpaRepository<Section, UUID> {
     
     @Query("SELECT COUNT(s) FROM Section s WHERE s.course.id = :courseId")
     long countByCourseId(@Param("courseId") UUID courseId);
+
+    /**
+     * Whole content tree of a course as flat rows (one per lesson, or one per empty section),
+     * ordered so sections and their lessons can be grouped in a single pass
+     */
+    @Query("SELECT s.id AS sectionId, s.title AS sectionTitle, s.description AS sectionDescription, s.orderIndex AS sectionOrderIndex, " +
+           "l.id AS lessonId, l.title AS lessonTitle, l.description AS lessonDescription, l.orderIndex AS lessonOrderIndex " +
+           "FROM Section s LEFT JOIN s.lessons l WHERE s.course.id = :courseId " +
+           "ORDER BY s.orderIndex ASC, s.id ASC, l.orderIndex ASC, l.id ASC")
+    List<ContentRow> findContentRows(@Param("courseId") UUID courseId);
+
+    interface ContentRow {
+        UUID getSectionId();
+        String getSectionTitle();
+        String getSectionDescription();
+        Integer getSectionOrderIndex();
+        UUID getLessonId();
+        String getLessonTitle();
+        String getLessonDescription();
+        Integer getLessonOrderIndex();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.example.lms.repository;
+
+import com.example.lms.entity.UploadSessionChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionChunkRepository extends JpaRepository<UploadSessionChunk, UploadSessionChunk.Key> {
+
+    /**
+     * Record a written chunk; a retried chunk is a no-op
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO upload_session_chunks (session_id, chunk_index) VALUES (:sessionId, :chunkIndex) " +
+                   "ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int record(@Param("sessionId") UUID sessionId, @Param("chunkIndex") int chunkIndex);
+
+    @Query("SELECT c.id.chunkIndex FROM UploadSessionChunk c WHERE c.id.sessionId = :sessionId ORDER BY c.id.chunkIndex")
+    List<Integer> findChunkIndexes(@Param("sessionId") UUID sessionId);
+
+    @Query("SELECT COUNT(c) FROM UploadSessionChunk c WHERE c.id.sessionId = :sessionId")
+    long countBySessionId(@Param("sessionId") UUID sessionId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UploadSessionChunk c WHERE c.id.sessionId = :sessionId")
+    void deleteBySessionId(@Param("sessionId") UUID sessionId);
+}
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -45,6 +46,24 @@ public interface UserRepository extends JpaRepository<User, UUID> {
             String email, String fullName, Pageable pageable);
     
     Page<User> findByRole(User.Role role, Pageable pageable);
+
+    String USER_SEARCH_FILTER = "(:search = '' OR LOWER(u.username) LIKE LOWER(CONCAT('%', :search, '%')) " +
+            "OR LOWER(u.email) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(u.fullName) LIKE LOWER(CONCAT('%', :search, '%')))";
+
+    /**
+     * Keyset variant of the user list: users strictly after (createdAt, id) in
+     * (createdAt DESC, id DESC) order. An empty search matches every user.
+     */
+    @Query("SELECT u FROM User u WHERE " + USER_SEARCH_FILTER + " " +
+           "AND (u.createdAt < :createdAt OR (u.createdAt = :createdAt AND u.id < :id)) " +
+           "ORDER BY u.createdAt DESC, u.id DESC")
+    List<User> findUsersAfter(@Param("search") String search,
+                              @Param("createdAt") Instant createdAt,
+                              @Param("id") UUID id,
+                              Pageable limit);
+
+    @Query("SELECT COUNT(u) FROM User u WHERE " + USER_SEARCH_FILTER)
+    long countUsersMatching(@Param("search") String search);
     
     Page<User> findByRoleAndEmailContainingIgnoreCaseOrRoleAndFullNameContainingIgnoreCase(
             User.Role role1, String email, User.Role role2, String fullName, Pageable pageable);
@@ -57,8 +76,42 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     @Query("SELECT CASE WHEN COUNT(ce) > 0 THEN true ELSE false END FROM User u JOIN u.enrolledCourses ce WHERE u.id = :studentId AND ce.id = :courseId")
     boolean existsByCourseEnrollment(@Param("courseId") UUID courseId, @Param("studentId") UUID studentId);
 
+    /**
+     * Ids of the users with the given role among a chunk of (normalized) emails
+     */
+    @Query("SELECT u.id AS id, u.email AS email FROM User u WHERE u.email IN :emails AND u.role = :role")
+    List<EmailId> findIdsByEmailInAndRole(@Param("emails") Collection<String> emails, @Param("role") User.Role role);
+
+    /**
+     * Which of the given students are already enrolled in the course
+     */
+    @Query("SELECT u.id FROM User u JOIN u.enrolledCourses c WHERE c.id = :courseId AND u.id IN :studentIds")
+    List<UUID> findEnrolledStudentIds(@Param("courseId") UUID courseId, @Param("studentIds") Collection<UUID> studentIds);
+
+    /**
+     * Enroll a chunk of students in one statement; rows that already exist are skipped.
+     * Returns the number of enrollments actually created.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO course_enrollments (student_id, course_id) " +
+                   "SELECT u.id, :courseId FROM users u WHERE u.id IN (:studentIds) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int addCourseEnrollments(@Param("courseId") UUID courseId, @Param("studentIds") Collection<UUID> studentIds);
+
+    interface EmailId {
+        UUID getId();
+        String getEmail();
+    }
+
+    /**
+     * Enrollment check that reads only the course_enrollments primary key
+     */
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM course_enrollments WHERE student_id = :studentId AND course_id = :courseId)",
+           nativeQuery = true)
+    boolean isEnrolled(@Param("courseId") UUID courseId, @Param("studentId") UUID studentId);
+
     @Modifying
     @Transactional
     @Query(value = "INSERT INTO course_enrollments (student_id, course_id) VALUES (:studentId, :courseId) ON CONFLICT DO NOTHING", nativeQuery = true)
-    void addCourseEnrollment(@Param("studentId") UUID studentId, @Param("courseId") UUID courseId);
+    int addCourseEnrollment(@Param("studentId") UUID studentId, @Param("courseId") UUID courseId);
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import com.example.lms.entity.Course;
 import com.example.lms.entity.User;
 import com.example.lms.repository.AssignmentRepository;
 import com.example.lms.repository.CourseRepository;
+import com.example.lms.repository.LessonAttachmentRepository;
 import com.example.lms.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
@@ -13,6 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -24,6 +26,10 @@ public class AdminService {
     private final CourseRepository courseRepository;
     private final UserRepository userRepository;
     private final AssignmentRepository assignmentRepository;
+    private final UserPrincipalCache principalCache;
+    private final CourseCounterService courseCounterService;
+    private final LessonAttachmentRepository lessonAttachmentRepository;
+    private final FileUploadService fileUploadService;
 
     public Map<String, Object> getAnalytics() {
         Map<String, Object> analytics = new HashMap<>();
@@ -123,6 +129,7 @@ public class AdminService {
             throw new RuntimeException("Không thể xóa người dùng có khóa học đang hoạt động");
         }
 
+        principalCache.revoke(user.getUsername());
         userRepository.delete(user);
     }
 
@@ -131,6 +138,8 @@ public class AdminService {
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy người dùng với ID: " + userId));
         
         user.setRole(request.getRole());
+        user.bumpAuthEpoch();
+        principalCache.invalidate(user);
         return userRepository.save(user);
     }
 
@@ -139,6 +148,8 @@ public class AdminService {
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy người dùng với ID: " + userId));
         
         user.setEnabled(!user.isEnabled());
+        user.bumpAuthEpoch();
+        principalCache.invalidate(user);
         userRepository.save(user);
     }
 
@@ -167,7 +178,11 @@ public class AdminService {
             throw new RuntimeException("Không thể xóa khóa học đã được xuất bản");
         }
 
+        List<String> attachmentUrls = lessonAttachmentRepository.findFileUrlsByCourseId(courseId);
         courseRepository.delete(course);
+        // Attachments go with the course; their stored files are released with them
+        attachmentUrls.forEach(fileUploadService::releaseFile);
+        courseCounterService.courseDeleted(courseId);
     }
 
     public void approveCourse(UUID courseId, User currentUser) {
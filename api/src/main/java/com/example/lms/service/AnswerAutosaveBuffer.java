@@ -0,0 +1,285 @@
+package com.example.lms.service;
+
+import com.example.lms.repository.QuizAttemptRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for answers autosaved while an attempt is in progress. Saves stay in
+ * memory, coalesced per (attempt, question) so only the latest option and time spent are
+ * kept, and are written every {@code flush-interval-ms} as JDBC batches of UPDATEs on
+ * quiz_attempt_items. Submitting drains the attempt's pending answers into the grading
+ * transaction, and a graceful shutdown flushes everything before the connection pool
+ * closes, so only a crash loses saves: at most one flush interval's worth.
+ * <p>
+ * A save is refused once the attempt's deadline plus {@code grace-seconds} has passed, and a
+ * flushed answer is only written while its attempt is IN_PROGRESS and was saved within that
+ * time, so a late flush never changes a submitted attempt nor takes a late save. Buffers are per node; a save reaching another node than the
+ * submit is written only if it flushes first, which is why submits still carry all answers.
+ */
+@Service
+@Slf4j
+public class AnswerAutosaveBuffer {
+
+    /**
+     * Latest buffered save of one question; {@code bufferedAt} is when the oldest save it
+     * replaced arrived, for the flush lag, and {@code savedAt} when this one did
+     */
+    public record PendingAnswer(String selectedOption, Long timeSpentSeconds, long bufferedAt, long savedAt) {}
+
+    /**
+     * Student of an open attempt and its deadline, null for an attempt without one
+     */
+    private record Owner(UUID studentId, Instant deadline) {}
+
+    /**
+     * The two last parameters are the save time minus grace: a deadline before it was missed
+     */
+    private static final String UPDATE_ITEM =
+            "UPDATE quiz_attempt_items SET selected_option = ?, time_spent_seconds = COALESCE(?, time_spent_seconds) " +
+            "WHERE attempt_id = ? AND question_id = ? " +
+            "AND EXISTS (SELECT 1 FROM quiz_attempts a JOIN quizzes q ON q.id = a.quiz_id " +
+            "WHERE a.id = ? AND a.status = 'IN_PROGRESS' " +
+            "AND (q.time_limit_minutes IS NULL OR q.time_limit_minutes <= 0 " +
+            "OR a.start_time + q.time_limit_minutes * INTERVAL '1 minute' >= ?) " +
+            "AND (q.end_date IS NULL OR q.end_date >= ?))";
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_OPTION_LENGTH = 255;
+
+    private final QuizAttemptRepository attemptRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<UUID, Map<UUID, PendingAnswer>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock(); // not synchronized: held across JDBC calls on virtual threads
+
+    /**
+     * Student of each open attempt seen here, so saves are authorized without a query
+     */
+    private final Map<UUID, Owner> owners = new ConcurrentHashMap<>();
+    private final int maxOpenAttempts;
+    private final long graceMillis;
+
+    private final Counter saves;
+    private final Counter written;
+    private final Timer flushLag;
+
+    public AnswerAutosaveBuffer(
+            QuizAttemptRepository attemptRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.quiz-autosave.max-open-attempts:100000}") int maxOpenAttempts,
+            @Value("${app.quiz-expiry.grace-seconds:10}") long graceSeconds) {
+        this.attemptRepository = attemptRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxOpenAttempts = maxOpenAttempts;
+        this.graceMillis = graceSeconds * 1000;
+        this.saves = Counter.builder("lms.quiz.autosave.saves")
+                .description("Answer autosaves accepted into the buffer")
+                .register(meterRegistry);
+        this.written = Counter.builder("lms.quiz.autosave.written")
+                .description("Buffered answers written, after coalescing")
+                .register(meterRegistry);
+        this.flushLag = Timer.builder("lms.quiz.autosave.flush.lag")
+                .description("Time from an answer's first buffered save until it was written")
+                .register(meterRegistry);
+        meterRegistry.gauge("lms.quiz.autosave.pending", pendingCount);
+    }
+
+    /**
+     * Buffer the student's answer to one question of their in-progress attempt. A null
+     * option clears the answer; a null time spent keeps the previous one. Refused once the
+     * attempt's time is up, grace included.
+     */
+    public void save(UUID attemptId, UUID studentId, UUID questionId, String selectedOption, Long timeSpentSeconds) {
+        if (selectedOption != null && selectedOption.length() > MAX_OPTION_LENGTH) {
+            throw new RuntimeException("Đáp án không hợp lệ");
+        }
+        if (timeSpentSeconds != null && timeSpentSeconds < 0) {
+            throw new RuntimeException("Thời gian làm bài không hợp lệ");
+        }
+        Owner owner = owner(attemptId);
+        if (!studentId.equals(owner.studentId())) {
+            throw new RuntimeException("Không có quyền lưu bài làm này");
+        }
+        long now = System.currentTimeMillis();
+        if (owner.deadline() != null && now > owner.deadline().toEpochMilli() + graceMillis) {
+            throw new RuntimeException("Đã hết thời gian làm bài");
+        }
+
+        pending.compute(attemptId, (id, answers) -> {
+            if (answers == null) {
+                answers = new HashMap<>();
+            }
+            PendingAnswer previous = answers.get(questionId);
+            if (previous == null) {
+                pendingCount.incrementAndGet();
+                answers.put(questionId, new PendingAnswer(selectedOption, timeSpentSeconds, now, now));
+            } else {
+                answers.put(questionId, new PendingAnswer(selectedOption,
+                        timeSpentSeconds != null ? timeSpentSeconds : previous.timeSpentSeconds(),
+                        previous.bufferedAt(), now));
+            }
+            return answers;
+        });
+        saves.increment();
+    }
+
+    /**
+     * Take the attempt's pending answers, keyed by question id, for the caller to write in its
+     * own transaction, then hand them to {@link #written} once it commits or to
+     * {@link #restore} if it fails. Waits for a running flush, so answers it already took are
+     * committed before the caller reads the attempt's items; call it without holding a
+     * connection.
+     */
+    public Map<UUID, PendingAnswer> drain(UUID attemptId) {
+        flushLock.lock();
+        try {
+            owners.remove(attemptId);
+            Map<UUID, PendingAnswer> answers = pending.remove(attemptId);
+            if (answers == null) {
+                return Map.of();
+            }
+            pendingCount.addAndGet(-answers.size());
+            return answers;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.quiz-autosave.flush-interval-ms:3000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<UUID, Map<UUID, PendingAnswer>> batch = new HashMap<>();
+            for (UUID attemptId : pending.keySet()) {
+                Map<UUID, PendingAnswer> answers = pending.remove(attemptId);
+                if (answers != null) {
+                    pendingCount.addAndGet(-answers.size());
+                    batch.put(attemptId, answers);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            List<Object[]> rows = new ArrayList<>();
+            batch.forEach((attemptId, answers) -> answers.forEach((questionId, answer) ->
+                    rows.add(new Object[]{attemptId, questionId, answer})));
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate(UPDATE_ITEM, rows, BATCH_SIZE, (ps, row) -> {
+                            PendingAnswer answer = (PendingAnswer) row[2];
+                            ps.setString(1, answer.selectedOption());
+                            ps.setObject(2, answer.timeSpentSeconds(), Types.BIGINT);
+                            ps.setObject(3, row[0]);
+                            ps.setObject(4, row[1]);
+                            ps.setObject(5, row[0]);
+                            OffsetDateTime missedBefore = OffsetDateTime.ofInstant(
+                                    Instant.ofEpochMilli(answer.savedAt() - graceMillis), ZoneOffset.UTC);
+                            ps.setObject(6, missedBefore);
+                            ps.setObject(7, missedBefore);
+                        }));
+            } catch (RuntimeException e) {
+                log.warn("Could not write {} autosaved answers, retrying on the next flush", rows.size(), e);
+                batch.forEach(this::requeue);
+                return;
+            }
+
+            batch.values().forEach(this::written);
+            log.debug("Wrote {} autosaved answers of {} attempts", rows.size(), batch.size());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Graceful shutdown: requests have finished, write what is left before the pool closes
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Drained answers the caller's transaction has committed
+     */
+    public void written(Map<UUID, PendingAnswer> answers) {
+        long now = System.currentTimeMillis();
+        answers.values().forEach(answer -> flushLag.record(Duration.ofMillis(now - answer.bufferedAt())));
+        written.increment(answers.size());
+    }
+
+    /**
+     * Put drained answers back after the caller's transaction failed
+     */
+    public void restore(UUID attemptId, Map<UUID, PendingAnswer> answers) {
+        if (!answers.isEmpty()) {
+            requeue(attemptId, answers);
+        }
+    }
+
+    /**
+     * Put answers back after a failed write; saves that arrived meanwhile are newer and win
+     */
+    private void requeue(UUID attemptId, Map<UUID, PendingAnswer> answers) {
+        pending.compute(attemptId, (id, current) -> {
+            if (current == null) {
+                current = new HashMap<>();
+            }
+            for (Map.Entry<UUID, PendingAnswer> entry : answers.entrySet()) {
+                if (current.putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                    pendingCount.incrementAndGet();
+                }
+            }
+            return current;
+        });
+    }
+
+    private Owner owner(UUID attemptId) {
+        Owner owner = owners.get(attemptId);
+        if (owner != null) {
+            return owner;
+        }
+        owner = attemptRepository.findInProgressOwner(attemptId)
+                .map(row -> new Owner(row.getStudentId(),
+                        QuizService.attemptDeadline(row.getStartTime(), row.getTimeLimitMinutes(), row.getEndDate())))
+                .orElseThrow(() -> new RuntimeException("Attempt không tồn tại hoặc đã được nộp"));
+        // Full: drop arbitrary entries, they are one query to look up again
+        Iterator<UUID> it = owners.keySet().iterator();
+        while (owners.size() >= maxOpenAttempts && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        owners.put(attemptId, owner);
+        return owner;
+    }
+}
@@ -1,11 +1,14 @@
 package com.example.lms.service;
 
+import com.example.lms.dto.CursorPage;
 import com.example.lms.entity.*;
 import com.example.lms.repository.AssignmentRepository;
 import com.example.lms.repository.AssignmentSubmissionRepository;
 import com.example.lms.repository.CourseRepository;
+import com.example.lms.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,6 +27,10 @@ public class AssignmentService {
     private final AssignmentRepository assignmentRepository;
     private final AssignmentSubmissionRepository submissionRepository;
     private final CourseRepository courseRepository;
+    private final UserService userService;
+    private final CourseCounterService courseCounterService;
+    private final CourseAccessService courseAccessService;
+    private final FileUploadService fileUploadService;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public Assignment createAssignment(UUID courseId, User currentUser, com.example.lms.controller.AssignmentController.CreateAssignmentRequest request) {
@@ -51,7 +58,9 @@ public class AssignmentService {
                 .course(course)
                 .build();
 
-        return assignmentRepository.save(assignment);
+        assignment = assignmentRepository.save(assignment);
+        courseCounterService.assignmentAdded(courseId);
+        return assignment;
     }
 
     public Assignment updateAssignment(UUID assignmentId, User currentUser, com.example.lms.controller.AssignmentController.UpdateAssignmentRequest request) {
@@ -108,6 +117,11 @@ public class AssignmentService {
         }
 
         assignmentRepository.delete(assignment);
+        // Attachments go with the assignment; their stored files are released with them
+        if (assignment.getAttachments() != null) {
+            assignment.getAttachments().forEach(attachment -> fileUploadService.releaseFile(attachment.getFileUrl()));
+        }
+        courseCounterService.assignmentRemoved(assignment.getCourse().getId());
     }
 
     public Assignment getAssignmentById(UUID assignmentId, User currentUser) {
@@ -116,8 +130,7 @@ public class AssignmentService {
         
         // Check if user has access (is teacher or enrolled student)
         Course course = assignment.getCourse();
-        boolean hasAccess = course.getTeacher().getId().equals(currentUser.getId()) ||
-                          course.getEnrolledStudents().contains(currentUser);
+        boolean hasAccess = courseAccessService.canView(course, currentUser);
         
         if (!hasAccess) {
             throw new RuntimeException("Bạn không có quyền truy cập bài tập này");
@@ -131,8 +144,7 @@ public class AssignmentService {
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy khóa học với ID: " + courseId));
         
         // Check if user has access (is teacher or enrolled student)
-        boolean hasAccess = course.getTeacher().getId().equals(currentUser.getId()) ||
-                          course.getEnrolledStudents().contains(currentUser);
+        boolean hasAccess = courseAccessService.canView(course, currentUser);
         
         if (!hasAccess) {
             throw new RuntimeException("Bạn không có quyền truy cập các bài tập của khóa học này");
@@ -147,7 +159,7 @@ public class AssignmentService {
         
         // Check if user is enrolled in the course
         Course course = assignment.getCourse();
-        if (!course.getEnrolledStudents().contains(currentUser)) {
+        if (!courseAccessService.isEnrolled(course.getId(), currentUser.getId())) {
             throw new RuntimeException("Bạn chưa đăng ký khóa học này");
         }
 
@@ -167,13 +179,41 @@ public class AssignmentService {
                 .attachmentUrl(request.getAttachmentUrl())
                 .submittedAt(LocalDateTime.now())
                 .assignment(assignment)
-                .student(currentUser)
+                .student(userService.resolvePrincipal(currentUser))
                 .build();
 
         return submissionRepository.save(submission);
     }
 
     public Page<AssignmentSubmission> getSubmissions(UUID assignmentId, User currentUser, Pageable pageable) {
+        Assignment assignment = getAssignmentForSubmissionReview(assignmentId, currentUser);
+
+        return submissionRepository.findByAssignment(assignment, pageable);
+    }
+
+    /**
+     * Keyset page of submissions, newest first
+     */
+    public CursorPage<AssignmentSubmission> getSubmissionsAfter(UUID assignmentId, User currentUser, String cursor,
+                                                                int limit, boolean includeTotal) {
+        limit = CursorPage.clampLimit(limit);
+        Assignment assignment = getAssignmentForSubmissionReview(assignmentId, currentUser);
+
+        LocalDateTime createdAt = KeysetCursor.MAX_LOCAL_DATE_TIME;
+        UUID id = KeysetCursor.MAX_ID;
+        if (!KeysetCursor.isFirstPage(cursor)) {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            createdAt = position.localDateTimeKey();
+            id = position.id();
+        }
+
+        List<AssignmentSubmission> submissions = submissionRepository.findByAssignmentAfter(
+                assignment, createdAt, id, PageRequest.of(0, limit + 1));
+        Long total = includeTotal ? submissionRepository.countByAssignment(assignment) : null;
+        return CursorPage.of(submissions, limit, s -> KeysetCursor.encode(s.getCreatedAt(), s.getId()), total);
+    }
+
+    private Assignment getAssignmentForSubmissionReview(UUID assignmentId, User currentUser) {
         Assignment assignment = assignmentRepository.findById(assignmentId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy bài tập với ID: " + assignmentId));
         
@@ -181,8 +221,7 @@ public class AssignmentService {
         if (!assignment.getCourse().getTeacher().getId().equals(currentUser.getId())) {
             throw new RuntimeException("Bạn không có quyền xem các bài nộp của bài tập này");
         }
-
-        return submissionRepository.findByAssignment(assignment, pageable);
+        return assignment;
     }
 
     public AssignmentSubmission gradeSubmission(UUID submissionId, User currentUser, com.example.lms.controller.AssignmentController.GradeSubmissionRequest request) {
@@ -213,7 +252,7 @@ public class AssignmentService {
         
         // Check if user is enrolled in the course
         Course course = assignment.getCourse();
-        if (!course.getEnrolledStudents().contains(currentUser)) {
+        if (!courseAccessService.isEnrolled(course.getId(), currentUser.getId())) {
             throw new RuntimeException("Bạn chưa đăng ký khóa học này");
         }
 
@@ -0,0 +1,197 @@
+package com.example.lms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Fair admission in front of quiz attempt start. At most {@code max-concurrent-starts}
+ * starts run at once, leaving the rest of the connection pool to other requests. A student
+ * who cannot start right away gets a ticket and an immediate QUEUED answer with their
+ * position; retrying keeps the ticket. A slot that frees up is held for the oldest waiting
+ * ticket for {@code slot-hold-seconds}, long enough for its holder to retry, and a slot no
+ * waiting ticket can take admits the caller at once. A held slot whose ticket does not come
+ * back in time goes to the next one and the ticket is dropped; so is a waiting ticket not
+ * polled for {@code ticket-ttl-seconds}. Once {@code max-queued} tickets wait new students
+ * are turned away until the queue drains.
+ * <p>
+ * The queue is per node; behind a load balancer each node admits its own share.
+ */
+@Component
+public class AttemptAdmissionQueue {
+
+    public enum Result {
+        ADMITTED, QUEUED, REJECTED
+    }
+
+    /**
+     * Outcome of {@link #tryAdmit}. {@code position} is approximate: 1 is next in line.
+     */
+    public record Admission(Result result, long position, int retryAfterSeconds) {}
+
+    private static final Admission ADMITTED = new Admission(Result.ADMITTED, 0, 0);
+
+    private final Map<Key, Ticket> tickets = new HashMap<>();
+    private final TreeMap<Long, Ticket> queue = new TreeMap<>();
+    /**
+     * Tickets holding a free slot until their holder retries, oldest first
+     */
+    private final TreeMap<Long, Ticket> holding = new TreeMap<>();
+    private long nextTicket;
+    private int running;
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long ticketTtlMillis;
+    private final long slotHoldMillis;
+    private final int retryAfterSeconds;
+
+    private final Counter admitted;
+    private final Counter queued;
+    private final Counter rejected;
+
+    public AttemptAdmissionQueue(
+            MeterRegistry meterRegistry,
+            @Value("${app.quiz-burst.max-concurrent-starts:4}") int maxConcurrent,
+            @Value("${app.quiz-burst.max-queued:10000}") int maxQueued,
+            @Value("${app.quiz-burst.ticket-ttl-seconds:30}") long ticketTtlSeconds,
+            @Value("${app.quiz-burst.slot-hold-seconds:5}") long slotHoldSeconds,
+            @Value("${app.quiz-burst.retry-after-seconds:2}") int retryAfterSeconds) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.ticketTtlMillis = ticketTtlSeconds * 1000;
+        this.slotHoldMillis = slotHoldSeconds * 1000;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.admitted = Counter.builder("lms.quiz.admission")
+                .tag("result", "admitted")
+                .description("Attempt starts let through")
+                .register(meterRegistry);
+        this.queued = Counter.builder("lms.quiz.admission")
+                .tag("result", "queued")
+                .description("Attempt starts answered with a queue position")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("lms.quiz.admission")
+                .tag("result", "rejected")
+                .description("Attempt starts turned away because the queue was full")
+                .register(meterRegistry);
+        meterRegistry.gauge("lms.quiz.admission.queue.size", queue, Map::size);
+    }
+
+    /**
+     * Admit the student's start of the lesson's quiz, or queue it. An admitted caller must
+     * call {@link #release} when the start has finished.
+     */
+    public synchronized Admission tryAdmit(UUID studentId, UUID lessonId) {
+        long now = System.currentTimeMillis();
+        expireHolds(now);
+        expireHead(now);
+        hold(now);
+
+        Key key = new Key(studentId, lessonId);
+        Ticket ticket = tickets.get(key);
+        if (ticket == null) {
+            // No one waiting can take the free slot: admit without a ticket
+            if (running + holding.size() < maxConcurrent) {
+                return admit();
+            }
+            if (queue.size() >= maxQueued) {
+                expireAll(now);
+            }
+            if (queue.size() >= maxQueued) {
+                rejected.increment();
+                return new Admission(Result.REJECTED, queue.size() + 1, retryAfterSeconds);
+            }
+            ticket = new Ticket(key, nextTicket++);
+            tickets.put(key, ticket);
+            queue.put(ticket.number, ticket);
+        }
+        ticket.lastSeen = now;
+
+        if (holding.remove(ticket.number) != null) {
+            tickets.remove(key);
+            return admit();
+        }
+
+        queued.increment();
+        return new Admission(Result.QUEUED, ticket.number - queue.firstKey() + 1, retryAfterSeconds);
+    }
+
+    public synchronized void release() {
+        running--;
+        hold(System.currentTimeMillis());
+    }
+
+    private Admission admit() {
+        running++;
+        admitted.increment();
+        return ADMITTED;
+    }
+
+    /**
+     * Hold each free slot for the oldest waiting ticket
+     */
+    private void hold(long now) {
+        while (running + holding.size() < maxConcurrent && !queue.isEmpty()) {
+            Ticket ticket = queue.pollFirstEntry().getValue();
+            ticket.holdUntil = now + slotHoldMillis;
+            holding.put(ticket.number, ticket);
+        }
+    }
+
+    /**
+     * A held slot whose ticket did not come back in time is given up, with the ticket
+     */
+    private void expireHolds(long now) {
+        holding.values().removeIf(ticket -> {
+            if (ticket.holdUntil >= now) {
+                return false;
+            }
+            tickets.remove(ticket.key);
+            return true;
+        });
+    }
+
+    /**
+     * Stale tickets at the head would hold back everyone behind them
+     */
+    private void expireHead(long now) {
+        while (!queue.isEmpty() && queue.firstEntry().getValue().lastSeen < now - ticketTtlMillis) {
+            remove(queue.firstEntry().getValue());
+        }
+    }
+
+    private void expireAll(long now) {
+        queue.values().removeIf(ticket -> {
+            if (ticket.lastSeen >= now - ticketTtlMillis) {
+                return false;
+            }
+            tickets.remove(ticket.key);
+            return true;
+        });
+    }
+
+    private void remove(Ticket ticket) {
+        queue.remove(ticket.number);
+        tickets.remove(ticket.key);
+    }
+
+    private record Key(UUID studentId, UUID lessonId) {}
+
+    private static final class Ticket {
+        final Key key;
+        final long number;
+        long lastSeen;
+        long holdUntil;
+
+        Ticket(Key key, long number) {
+            this.key = key;
+            this.number = number;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.lms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deadlines of the open attempts known to this node, in a hashed timer wheel: a ring of
+ * {@code wheel-size} buckets, one per {@code tick-ms}, each holding the attempts due in a
+ * tick that maps to it. Scheduling is O(1) and each tick only looks at one bucket, however
+ * many attempts are open, instead of one scheduled task per attempt. Deadlines further away
+ * than one rotation wait in their bucket until their tick comes round.
+ * <p>
+ * An attempt is due {@code grace-seconds} after its deadline, which absorbs network delay
+ * on submits. Cancelling only forgets the deadline; its bucket entry is skipped when reached.
+ */
+@Component
+public class AttemptDeadlineWheel {
+
+    private final Map<UUID, Long> deadlines = new ConcurrentHashMap<>();
+    private final List<Entry>[] buckets;
+    private final int mask;
+    private final long tickMillis;
+    private final long graceMillis;
+    private long nextTick;
+
+    private final Counter lateSubmits;
+
+    @SuppressWarnings("unchecked")
+    public AttemptDeadlineWheel(
+            MeterRegistry meterRegistry,
+            @Value("${app.quiz-expiry.tick-ms:1000}") long tickMillis,
+            @Value("${app.quiz-expiry.wheel-size:512}") int wheelSize,
+            @Value("${app.quiz-expiry.grace-seconds:10}") long graceSeconds) {
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1; // power of two
+        this.buckets = new List[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.mask = size - 1;
+        this.tickMillis = tickMillis;
+        this.graceMillis = graceSeconds * 1000;
+        this.nextTick = System.currentTimeMillis() / tickMillis;
+        this.lateSubmits = Counter.builder("lms.quiz.expiry.late.submits")
+                .description("Submits rejected because the attempt's time was up")
+                .register(meterRegistry);
+        meterRegistry.gauge("lms.quiz.expiry.scheduled", deadlines, Map::size);
+    }
+
+    /**
+     * Schedule or move the attempt's deadline
+     */
+    public void schedule(UUID attemptId, Instant deadline) {
+        long due = deadline.toEpochMilli() + graceMillis;
+        deadlines.put(attemptId, due);
+        synchronized (this) {
+            long tick = Math.max(Math.ceilDiv(due, tickMillis), nextTick);
+            buckets[(int) (tick & mask)].add(new Entry(attemptId, due, tick));
+        }
+    }
+
+    public void cancel(UUID attemptId) {
+        deadlines.remove(attemptId);
+    }
+
+    /**
+     * Whether a submit of the attempt must be refused without looking it up: true once its
+     * known deadline and grace have passed. Attempts unknown here are checked by the caller.
+     */
+    public boolean rejectsSubmit(UUID attemptId) {
+        Long due = deadlines.get(attemptId);
+        if (due != null && System.currentTimeMillis() > due) {
+            lateSubmits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether a deadline read from the database has passed, grace included
+     */
+    public boolean isLate(Instant deadline, Instant now) {
+        if (now.toEpochMilli() > deadline.toEpochMilli() + graceMillis) {
+            lateSubmits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Attempts whose deadline (plus grace) is at or before {@code now}, taken off the wheel.
+     * After a long pause each bucket is visited once rather than once per missed tick.
+     */
+    public synchronized List<UUID> advance(long now) {
+        long lastTick = now / tickMillis;
+        List<UUID> due = new ArrayList<>();
+        for (long tick = Math.max(nextTick, lastTick - mask); tick <= lastTick; tick++) {
+            Iterator<Entry> it = buckets[(int) (tick & mask)].iterator();
+            while (it.hasNext()) {
+                Entry entry = it.next();
+                if (entry.tick() > lastTick) {
+                    continue; // a later rotation
+                }
+                it.remove();
+                // Skipped when cancelled or moved to another deadline
+                if (deadlines.remove(entry.attemptId(), entry.due())) {
+                    due.add(entry.attemptId());
+                }
+            }
+        }
+        nextTick = Math.max(nextTick, lastTick + 1);
+        return due;
+    }
+
+    private record Entry(UUID attemptId, long due, long tick) {}
+}
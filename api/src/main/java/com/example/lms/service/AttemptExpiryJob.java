@@ -0,0 +1,91 @@
+package com.example.lms.service;
+
+import com.example.lms.repository.QuizAttemptRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Closes attempts whose time is up. Deadlines live in the {@link AttemptDeadlineWheel},
+ * filled as attempts start and rebuilt from every IN_PROGRESS attempt at startup; each tick
+ * closes the attempts that came due, {@code batch-size} per transaction. A slower sweep finds
+ * overdue attempts in the database, covering attempts started on a node that went away.
+ */
+@Service
+@Slf4j
+public class AttemptExpiryJob {
+
+    private final QuizService quizService;
+    private final QuizAttemptRepository attemptRepository;
+    private final AttemptDeadlineWheel attemptDeadlineWheel;
+
+    private final int batchSize;
+    private final Duration grace;
+
+    private final Counter expired;
+
+    public AttemptExpiryJob(
+            QuizService quizService,
+            QuizAttemptRepository attemptRepository,
+            AttemptDeadlineWheel attemptDeadlineWheel,
+            MeterRegistry meterRegistry,
+            @Value("${app.quiz-expiry.batch-size:200}") int batchSize,
+            @Value("${app.quiz-expiry.grace-seconds:10}") long graceSeconds) {
+        this.quizService = quizService;
+        this.attemptRepository = attemptRepository;
+        this.attemptDeadlineWheel = attemptDeadlineWheel;
+        this.batchSize = batchSize;
+        this.grace = Duration.ofSeconds(graceSeconds);
+        this.expired = Counter.builder("lms.quiz.expiry.closed")
+                .description("Attempts closed because their time was up")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        int scheduled = 0;
+        for (QuizAttemptRepository.OpenAttempt attempt : attemptRepository.findOpenAttempts()) {
+            Instant deadline = QuizService.attemptDeadline(attempt.getStartTime(), attempt.getTimeLimitMinutes(), attempt.getEndDate());
+            if (deadline != null) {
+                attemptDeadlineWheel.schedule(attempt.getId(), deadline);
+                scheduled++;
+            }
+        }
+        log.info("Scheduled deadlines of {} open quiz attempts", scheduled);
+    }
+
+    @Scheduled(fixedDelayString = "${app.quiz-expiry.tick-ms:1000}")
+    public void tick() {
+        expire(attemptDeadlineWheel.advance(System.currentTimeMillis()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.quiz-expiry.sweep-interval-ms:300000}", initialDelayString = "${app.quiz-expiry.sweep-interval-ms:300000}")
+    public void sweep() {
+        expire(attemptRepository.findOverdueAttemptIds(Instant.now().minus(grace)));
+    }
+
+    private void expire(List<UUID> attemptIds) {
+        for (int from = 0; from < attemptIds.size(); from += batchSize) {
+            List<UUID> batch = attemptIds.subList(from, Math.min(from + batchSize, attemptIds.size()));
+            try {
+                int closed = quizService.expireAttempts(batch);
+                expired.increment(closed);
+                if (closed > 0) {
+                    log.debug("Closed {} attempts whose time was up", closed);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not close {} attempts whose time was up, the sweep retries", batch.size(), e);
+            }
+        }
+    }
+}
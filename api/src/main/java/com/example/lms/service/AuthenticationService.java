@@ -2,6 +2,7 @@ package com.example.lms.service;
 
 import com.example.lms.entity.User;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.AuthenticationException;
@@ -9,6 +10,7 @@ import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class AuthenticationService {
 
     private final UserService userService;
@@ -56,34 +58,26 @@ public class AuthenticationService {
                 throw new RuntimeException("Vui lòng cung cấp email hoặc username");
             }
 
-            System.out.println("=== AUTH DEBUG ===");
-            System.out.println("Login attempt with identifier: " + identifier);
-            System.out.println("Password provided: " + (request.getPassword() != null ? "[PROVIDED]" : "[NULL]"));
-            System.out.println("Password length: " + (request.getPassword() != null ? request.getPassword().length() : 0));
+            log.debug("Login attempt with identifier: {}", identifier);
 
             // Try to find by username first
             var optionalUser = userService.findByUsername(identifier);
-            System.out.println("Found by username: " + optionalUser.isPresent());
 
             // If not found by username, try email
             if (optionalUser.isEmpty()) {
                 optionalUser = userService.findByEmail(identifier);
-                System.out.println("Found by email: " + optionalUser.isPresent());
             }
 
             User user = optionalUser.orElseThrow(() -> new RuntimeException("User không tồn tại"));
-            System.out.println("User found: " + user.getUsername() + ", email: " + user.getEmail());
-            System.out.println("User enabled: " + user.isEnabled());
-            System.out.println("User password hash: " + user.getPassword().substring(0, 20) + "...");
+            log.debug("Resolved login identifier {} to user {}", identifier, user.getUsername());
 
             // Check if user is enabled
             if (!user.isEnabled()) {
-                System.out.println("User account is disabled");
+                log.debug("Login rejected, account {} is disabled", user.getUsername());
                 throw new RuntimeException("Tài khoản đã bị vô hiệu hóa");
             }
 
             // Authenticate using the actual username stored in the user entity
-            System.out.println("Attempting authentication with username: " + user.getUsername());
             authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
                             user.getUsername(),
@@ -91,9 +85,7 @@ public class AuthenticationService {
                     )
             );
 
-            System.out.println("Authentication successful");
-
-            System.out.println("Authentication successful");
+            log.debug("Authentication successful for {}", user.getUsername());
 
             // Generate tokens
             String jwtToken = jwtService.generateToken(user);
@@ -106,23 +98,21 @@ public class AuthenticationService {
                     .build();
 
         } catch (AuthenticationException e) {
-            System.out.println("Authentication failed: " + e.getMessage());
-            e.printStackTrace();
+            log.info("Authentication failed for {}: {}", request.getEmail(), e.getMessage());
             throw new RuntimeException("Thông tin đăng nhập không chính xác: " + e.getMessage());
         } catch (Exception e) {
-            System.out.println("Unexpected error: " + e.getMessage());
-            e.printStackTrace();
+            log.info("Login failed for {}: {}", request.getEmail(), e.getMessage());
             throw new RuntimeException("Thông tin đăng nhập không chính xác: " + e.getMessage());
         }
     }
 
     public AuthenticationResponse refreshToken(String refreshToken) {
         try {
-            String username = jwtService.extractUsername(refreshToken);
-            User user = userService.findByUsername(username)
+            JwtService.VerifiedToken token = jwtService.verify(refreshToken);
+            User user = userService.findByUsername(token.subject())
                     .orElseThrow(() -> new RuntimeException("User không tồn tại"));
 
-            if (jwtService.isTokenValid(refreshToken, user)) {
+            if (jwtService.isTokenValid(token, user)) {
                 String newAccessToken = jwtService.generateToken(user);
                 
                 return AuthenticationResponse.builder()
@@ -138,7 +128,12 @@ public class AuthenticationService {
         }
     }
 
-    public User updateProfile(User currentUser, com.example.lms.controller.AuthController.UpdateProfileRequest request) {
+    public User getCurrentUser(User principal) {
+        return userService.resolvePrincipal(principal);
+    }
+
+    public User updateProfile(User principal, com.example.lms.controller.AuthController.UpdateProfileRequest request) {
+        User currentUser = userService.resolvePrincipal(principal);
         if (request.getEmail() != null && !request.getEmail().equals(currentUser.getEmail())) {
             if (userService.existsByEmail(request.getEmail())) {
                 throw new RuntimeException("Email đã được sử dụng bởi tài khoản khác");
@@ -156,7 +151,8 @@ public class AuthenticationService {
         return userService.updateUser(currentUser);
     }
 
-    public void changePassword(User currentUser, com.example.lms.controller.AuthController.ChangePasswordRequest request) {
+    public void changePassword(User principal, com.example.lms.controller.AuthController.ChangePasswordRequest request) {
+        User currentUser = userService.resolvePrincipal(principal);
         // Verify current password
         if (!userService.checkPassword(currentUser, request.getCurrentPassword())) {
             throw new RuntimeException("Mật khẩu hiện tại không đúng");
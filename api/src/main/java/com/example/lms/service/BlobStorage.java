@@ -0,0 +1,54 @@
+package com.example.lms.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Where blob bytes live. Keys are relative, slash-separated names chosen by {@link BlobStore},
+ * plus the spooled inputs of {@link ImportJobService} under {@code jobs/}.
+ * The implementation is picked with {@code app.storage.type}: {@code local} keeps blobs under
+ * a directory, {@code s3} in a bucket of any S3-compatible service, which lets several API
+ * nodes share uploads.
+ * <p>
+ * Read methods throw {@link java.nio.file.NoSuchFileException} for a missing key.
+ */
+public interface BlobStorage {
+
+    /**
+     * Store the contents of {@code source} under {@code key}, replacing any existing object.
+     * The source file is consumed: moved into place or uploaded and then deleted.
+     */
+    void put(String key, Path source) throws IOException;
+
+    InputStream get(String key) throws IOException;
+
+    /**
+     * {@code length} bytes starting at {@code start}
+     */
+    InputStream range(String key, long start, long length) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * Remove the object; a missing key is not an error
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * Time-limited URL a client can download the object from directly, served with the given
+     * file name and content type, or empty when the backend has no such URLs
+     */
+    Optional<URI> presign(String key, Duration ttl, String fileName, String contentType);
+
+    /**
+     * File backing the key when the storage is a local filesystem, so it can be sent with
+     * sendfile; empty for remote storage
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+}
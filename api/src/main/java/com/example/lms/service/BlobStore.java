@@ -0,0 +1,299 @@
+package com.example.lms.service;
+
+import com.example.lms.entity.FileBlob;
+import com.example.lms.entity.FileReference;
+import com.example.lms.repository.FileBlobRepository;
+import com.example.lms.repository.FileReferenceRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Content-addressed storage for uploads. Bytes are hashed while they are written to a local
+ * staging file, then stored once in {@link BlobStorage} under {@code <2 hex>/<sha256>};
+ * every upload gets a {@link FileReference} for its usual /api/v1/files path, and the
+ * blob row counts those references. Releasing the last reference deletes the blob.
+ * <p>
+ * The bytes are written by {@link #upload} before any transaction is opened; {@link #store}
+ * then only upserts the blob row and, holding its lock, checks that the object is there.
+ * Deletion happens in its own transaction that removes the unreferenced row and then the
+ * object under the same lock, so an upload racing with it either sees the object gone and
+ * writes it again from the staging file it kept, or keeps the row referenced. If deleting the
+ * object fails the row stays at zero references and the periodic sweep retries. An object
+ * stored by a transaction that then rolls back stays without a row and is reused by the next
+ * upload of the same bytes.
+ */
+@Service
+@Slf4j
+public class BlobStore {
+
+    /**
+     * Upload written to the staging area, not yet stored
+     */
+    public record StagedBlob(Path file, long size, String sha256) {}
+
+    private final FileBlobRepository fileBlobRepository;
+    private final FileReferenceRepository fileReferenceRepository;
+    private final BlobStorage blobStorage;
+    private final TransactionTemplate newTransaction;
+    private final Path stagingDir;
+
+    public BlobStore(
+            FileBlobRepository fileBlobRepository,
+            FileReferenceRepository fileReferenceRepository,
+            BlobStorage blobStorage,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.upload.dir:uploads}") String uploadDir) {
+        this.fileBlobRepository = fileBlobRepository;
+        this.fileReferenceRepository = fileReferenceRepository;
+        this.blobStorage = blobStorage;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.stagingDir = Path.of(uploadDir, ".blobs", "staging");
+    }
+
+    /**
+     * Empty file in the local staging area; with local storage it is on the same filesystem
+     * as the blobs, so storing it is a rename
+     */
+    public Path newStagingFile() throws IOException {
+        Files.createDirectories(stagingDir);
+        return Files.createTempFile(stagingDir, "upload-", ".part");
+    }
+
+    /**
+     * Store chunk {@code index} of a resumable upload session in {@link BlobStorage}, so the
+     * chunks of one upload may reach any node. The file is consumed.
+     */
+    public void putChunk(UUID sessionId, int index, Path file) throws IOException {
+        blobStorage.put(chunkKey(sessionId, index), file);
+    }
+
+    public InputStream getChunk(UUID sessionId, int index) throws IOException {
+        return blobStorage.get(chunkKey(sessionId, index));
+    }
+
+    /**
+     * Remove the first {@code count} chunks of a session; missing ones are skipped
+     */
+    public void deleteChunks(UUID sessionId, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            blobStorage.delete(chunkKey(sessionId, i));
+        }
+    }
+
+    /**
+     * Stream {@code body} into a staging file, computing size and SHA-256 on the way and
+     * enforcing {@code maxSize} as bytes arrive. Nothing is left behind on failure.
+     */
+    public StagedBlob write(InputStream body, long maxSize) throws IOException {
+        Path staging = newStagingFile();
+        MessageDigest digest = sha256();
+        long size = 0;
+        boolean complete = false;
+        try (FileChannel channel = FileChannel.open(staging, StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[64 * 1024];
+            ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                size += read;
+                if (size > maxSize) {
+                    throw new RuntimeException("Kích thước file vượt quá giới hạn cho phép: " + maxSize + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                wrapped.clear().limit(read);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+            }
+            complete = size > 0;
+        } finally {
+            if (!complete) {
+                Files.deleteIfExists(staging);
+            }
+        }
+        if (size == 0) {
+            throw new RuntimeException("File không được để trống");
+        }
+        return new StagedBlob(staging, size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Hash a file already written to the staging area
+     */
+    public StagedBlob stage(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        }
+        return new StagedBlob(file, size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Write the staged bytes to storage unless an object with the same hash is there already.
+     * Call it outside any transaction: the write holds neither a connection nor a row lock.
+     * When the object exists the staging file is kept until {@link #store}, in case the
+     * object is collected in between.
+     */
+    public void upload(StagedBlob staged) {
+        try {
+            String key = key(staged.sha256());
+            if (!blobStorage.exists(key)) {
+                blobStorage.put(key, staged.file());
+            }
+        } catch (IOException e) {
+            discard(staged);
+            throw new RuntimeException("Lỗi khi lưu file: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            discard(staged);
+            throw e;
+        }
+    }
+
+    /**
+     * Record a reference at {@code path} to the staged bytes, counting it on their blob row.
+     * The bytes are normally written by {@link #upload} beforehand; otherwise, or when the
+     * object was collected meanwhile, they are written here under the row lock. The staging
+     * file is consumed either way.
+     */
+    @Transactional
+    public FileReference store(StagedBlob staged, String path, String originalFileName, String contentType, UUID createdBy) {
+        try {
+            fileBlobRepository.acquire(staged.sha256(), staged.size());
+            String key = key(staged.sha256());
+            if (blobStorage.exists(key)) {
+                Files.deleteIfExists(staged.file());
+            } else if (Files.exists(staged.file())) {
+                blobStorage.put(key, staged.file());
+            } else {
+                // Uploaded, then collected as an unreferenced copy before the row was taken
+                throw new RuntimeException("Lỗi khi lưu file, vui lòng tải lên lại");
+            }
+        } catch (IOException e) {
+            discard(staged);
+            throw new RuntimeException("Lỗi khi lưu file: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            discard(staged);
+            throw e;
+        }
+
+        return fileReferenceRepository.save(FileReference.builder()
+                .path(path)
+                .blobHash(staged.sha256())
+                .originalFileName(originalFileName)
+                .contentType(contentType)
+                .createdBy(createdBy)
+                .build());
+    }
+
+    /**
+     * Remove the reference; once that commits, the blob is deleted if it has no references left
+     */
+    @Transactional
+    public void release(FileReference reference) {
+        fileReferenceRepository.delete(reference);
+        String hash = reference.getBlobHash();
+        fileBlobRepository.release(hash);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                collect(hash);
+            }
+        });
+    }
+
+    /**
+     * Retry deletion of blobs whose last reference is gone but whose object could not be removed
+     */
+    @Scheduled(fixedDelayString = "${app.storage.gc-interval-ms:3600000}", initialDelayString = "${app.storage.gc-interval-ms:3600000}")
+    public void collectGarbage() {
+        fileBlobRepository.findUnreferencedHashes().forEach(this::collect);
+    }
+
+    private void collect(String hash) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                if (fileBlobRepository.deleteIfUnreferenced(hash) == 0) {
+                    return; // referenced again, or already collected
+                }
+                try {
+                    blobStorage.delete(key(hash));
+                } catch (IOException e) {
+                    throw new RuntimeException(e.getMessage(), e);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not delete unreferenced blob {}, the next sweep retries", hash, e);
+        }
+    }
+
+    /**
+     * Reference for a path under /api/v1/files, e.g. {@code documents/2024/05/notes_x.pdf}
+     */
+    public Optional<FileReference> findByPath(String path) {
+        return fileReferenceRepository.findByPath(path);
+    }
+
+    /**
+     * Blob behind a path under /api/v1/files, with its size and creation time for serving
+     */
+    public Optional<FileBlob> findBlobByPath(String path) {
+        return fileReferenceRepository.findBlobByPath(path);
+    }
+
+    /**
+     * {@link BlobStorage} key of a blob
+     */
+    public String key(String hash) {
+        return hash.substring(0, 2) + "/" + hash;
+    }
+
+    /**
+     * Chunks sit under {@code parts/}, which no two-hex-digit blob prefix can clash with
+     */
+    private static String chunkKey(UUID sessionId, int index) {
+        return "parts/" + sessionId + "/" + index;
+    }
+
+    public void discard(StagedBlob staged) {
+        try {
+            Files.deleteIfExists(staged.file());
+        } catch (IOException e) {
+            log.warn("Could not delete staged upload {}", staged.file(), e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.lms.service;
+
+import com.example.lms.entity.Course;
+import com.example.lms.entity.User;
+import com.example.lms.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Central course access checks. Enrollment is answered by a primary-key EXISTS on
+ * course_enrollments and remembered per (user, course) for a short TTL, so repeated
+ * lesson/assignment views never load the course's student set.
+ */
+@Service
+public class CourseAccessService {
+
+    private final UserRepository userRepository;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    private final long ttlMillis;
+    private final int maxSize;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public CourseAccessService(
+            UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.course-access.cache-ttl-seconds:30}") long ttlSeconds,
+            @Value("${app.course-access.cache-max-size:50000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxSize = maxSize;
+        this.hits = Counter.builder("lms.course.access.cache")
+                .tag("result", "hit")
+                .description("Enrollment checks answered from memory")
+                .register(meterRegistry);
+        this.misses = Counter.builder("lms.course.access.cache")
+                .tag("result", "miss")
+                .description("Enrollment checks that went to the database")
+                .register(meterRegistry);
+        meterRegistry.gauge("lms.course.access.cache.size", entries, Map::size);
+    }
+
+    /**
+     * Teacher of the course or enrolled student
+     */
+    public boolean canView(Course course, User user) {
+        return isTeacher(course, user) || isEnrolled(course.getId(), user.getId());
+    }
+
+    public boolean isTeacher(Course course, User user) {
+        // getId() on the lazy teacher proxy does not hit the database
+        return course.getTeacher().getId().equals(user.getId());
+    }
+
+    public boolean isEnrolled(UUID courseId, UUID userId) {
+        Key key = new Key(userId, courseId);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt() >= System.currentTimeMillis()) {
+            hits.increment();
+            return entry.enrolled();
+        }
+        misses.increment();
+        boolean enrolled = userRepository.isEnrolled(courseId, userId);
+        put(key, enrolled);
+        return enrolled;
+    }
+
+    /**
+     * Forget a cached answer after an enrollment change. Inside a transaction the entry
+     * is dropped again after commit so a check racing the write cannot keep a stale "no".
+     */
+    public void invalidate(UUID courseId, UUID userId) {
+        Key key = new Key(userId, courseId);
+        entries.remove(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.remove(key);
+                }
+            });
+        }
+    }
+
+    /**
+     * Bulk variant of {@link #invalidate(UUID, UUID)} for a batch of new enrollments
+     */
+    public void invalidate(UUID courseId, Collection<UUID> userIds) {
+        List<Key> keys = userIds.stream().map(userId -> new Key(userId, courseId)).toList();
+        keys.forEach(entries::remove);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    keys.forEach(entries::remove);
+                }
+            });
+        }
+    }
+
+    private void put(Key key, boolean enrolled) {
+        if (entries.size() >= maxSize) {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(e -> e.expiresAt() < now);
+        }
+        // Still full: drop arbitrary entries, they are cheap to reload
+        Iterator<Key> it = entries.keySet().iterator();
+        while (entries.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        entries.put(key, new Entry(enrolled, System.currentTimeMillis() + ttlMillis));
+    }
+
+    private record Key(UUID userId, UUID courseId) {}
+
+    private record Entry(boolean enrolled, long expiresAt) {}
+}
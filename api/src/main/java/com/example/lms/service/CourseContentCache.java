@@ -0,0 +1,115 @@
+package com.example.lms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process cache of course content trees, versioned per course.
+ * Section and lesson writes call {@link #invalidate(UUID)}, which bumps the
+ * course version; an entry is only served while its version is current, so a
+ * tree loaded concurrently with a write is never handed out after that write.
+ * <p>
+ * Invalidation only reaches this node, so entries also expire after {@code ttl-seconds}:
+ * a write made through another node is seen here, and in the ETag derived from the tree,
+ * after at most that long.
+ */
+@Component
+public class CourseContentCache {
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> versions = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public CourseContentCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.course-content-cache.max-size:1000}") int maxSize,
+            @Value("${app.course-content-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.hits = Counter.builder("lms.course.content.cache")
+                .tag("result", "hit")
+                .description("Course content trees served from memory")
+                .register(meterRegistry);
+        this.misses = Counter.builder("lms.course.content.cache")
+                .tag("result", "miss")
+                .description("Course content trees loaded from the database")
+                .register(meterRegistry);
+        meterRegistry.gauge("lms.course.content.cache.size", entries, Map::size);
+    }
+
+    /**
+     * Version to read before loading a tree and pass back to {@link #put}
+     */
+    public long currentVersion(UUID courseId) {
+        return versions.getOrDefault(courseId, 0L);
+    }
+
+    public CourseService.CourseContent get(UUID courseId) {
+        Entry entry = entries.get(courseId);
+        if (entry == null || entry.version() != currentVersion(courseId)
+                || entry.expiresAt() < System.currentTimeMillis()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.content();
+    }
+
+    public void put(UUID courseId, long version, CourseService.CourseContent content) {
+        if (version != currentVersion(courseId)) {
+            return; // a write landed while this tree was loading
+        }
+        long now = System.currentTimeMillis();
+        if (entries.size() >= maxSize) {
+            entries.values().removeIf(entry -> entry.expiresAt() < now);
+        }
+        // Still full: drop arbitrary entries, they are cheap to reload
+        Iterator<UUID> it = entries.keySet().iterator();
+        while (entries.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        entries.put(courseId, new Entry(version, content, now + ttlMillis));
+    }
+
+    /**
+     * Invalidate a course's tree after a section or lesson write. Inside a transaction
+     * the version is bumped again after commit, so a tree read between the write and
+     * the commit is not served either.
+     */
+    public void invalidate(UUID courseId) {
+        if (courseId == null) {
+            return;
+        }
+        bump(courseId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(courseId);
+                }
+            });
+        }
+    }
+
+    private void bump(UUID courseId) {
+        versions.merge(courseId, 1L, Long::sum);
+        entries.remove(courseId);
+    }
+
+    private record Entry(long version, CourseService.CourseContent content, long expiresAt) {}
+}
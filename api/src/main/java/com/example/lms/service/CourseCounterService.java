@@ -0,0 +1,118 @@
+package com.example.lms.service;
+
+import com.example.lms.entity.CourseCounter;
+import com.example.lms.repository.CourseCounterRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the denormalized per-course counters. Updates run inside the caller's
+ * transaction so a counter change commits or rolls back with the write it describes;
+ * callers apply them as the last step to keep the counter row lock short.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class CourseCounterService {
+
+    private final CourseCounterRepository courseCounterRepository;
+
+    public void enrollmentsAdded(UUID courseId, int count) {
+        if (count != 0) {
+            courseCounterRepository.increment(courseId, count, 0, 0, 0, 0);
+        }
+    }
+
+    public void sectionAdded(UUID courseId) {
+        courseCounterRepository.increment(courseId, 0, 1, 0, 0, 0);
+    }
+
+    /**
+     * A section was removed together with its lessons (and their quizzes)
+     */
+    public void sectionRemoved(UUID courseId, long lessons, long quizzes) {
+        courseCounterRepository.increment(courseId, 0, -1, -lessons, 0, -quizzes);
+    }
+
+    public void lessonAdded(UUID courseId) {
+        courseCounterRepository.increment(courseId, 0, 0, 1, 0, 0);
+    }
+
+    /**
+     * A lesson was removed together with its quizzes
+     */
+    public void lessonRemoved(UUID courseId, long quizzes) {
+        courseCounterRepository.increment(courseId, 0, 0, -1, 0, -quizzes);
+    }
+
+    public void assignmentAdded(UUID courseId) {
+        courseCounterRepository.increment(courseId, 0, 0, 0, 1, 0);
+    }
+
+    public void assignmentRemoved(UUID courseId) {
+        courseCounterRepository.increment(courseId, 0, 0, 0, -1, 0);
+    }
+
+    public void quizAdded(UUID courseId) {
+        courseCounterRepository.increment(courseId, 0, 0, 0, 0, 1);
+    }
+
+    public void quizRemoved(UUID courseId) {
+        courseCounterRepository.increment(courseId, 0, 0, 0, 0, -1);
+    }
+
+    public void courseDeleted(UUID courseId) {
+        courseCounterRepository.deleteByCourseId(courseId);
+    }
+
+    @Transactional(readOnly = true)
+    public CourseCounter getCounters(UUID courseId) {
+        return courseCounterRepository.findById(courseId).orElseGet(() -> CourseCounter.empty(courseId));
+    }
+
+    /**
+     * Counters for a page of courses in one query; courses without a row map to zeros
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, CourseCounter> getCounters(Collection<UUID> courseIds) {
+        Map<UUID, CourseCounter> counters = courseCounterRepository.findAllById(courseIds).stream()
+                .collect(Collectors.toMap(CourseCounter::getCourseId, Function.identity()));
+        for (UUID courseId : courseIds) {
+            counters.computeIfAbsent(courseId, CourseCounter::empty);
+        }
+        return counters;
+    }
+
+    /**
+     * Repair drift (writes that bypassed the services, cascaded deletes, lost races with
+     * a concurrent reconcile) by recomputing all counters from the source tables.
+     */
+    @Scheduled(cron = "${app.counters.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        int repaired = courseCounterRepository.reconcile();
+        int removed = courseCounterRepository.deleteOrphans();
+        if (repaired > 0 || removed > 0) {
+            log.info("Course counters reconciled: {} rows created or repaired, {} orphan rows removed", repaired, removed);
+        }
+    }
+
+    /**
+     * Backfill counters for courses that predate the table
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+}
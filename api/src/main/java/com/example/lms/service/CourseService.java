@@ -1,17 +1,22 @@
 package com.example.lms.service;
 
 import com.example.lms.entity.Course;
-import com.example.lms.entity.Section;
 import com.example.lms.entity.User;
 import com.example.lms.repository.CourseRepository;
+import com.example.lms.repository.LessonAttachmentRepository;
+import com.example.lms.repository.SectionRepository;
 import com.example.lms.repository.UserRepository;
+import com.example.lms.dto.CursorPage;
 import com.example.lms.dto.response.BulkEnrollmentResponse;
+import com.example.lms.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,8 +25,17 @@ import java.util.UUID;
 @Transactional
 public class CourseService {
 
+    public static final int BULK_ENROLLMENT_CHUNK_SIZE = 1000;
+
     private final CourseRepository courseRepository;
     private final UserRepository userRepository;
+    private final UserService userService;
+    private final CourseCounterService courseCounterService;
+    private final SectionRepository sectionRepository;
+    private final CourseContentCache courseContentCache;
+    private final CourseAccessService courseAccessService;
+    private final LessonAttachmentRepository lessonAttachmentRepository;
+    private final FileUploadService fileUploadService;
 
     public Page<Course> getApprovedCourses(Pageable pageable, String search, String teacher) {
         if (search != null && !search.trim().isEmpty()) {
@@ -31,6 +45,42 @@ public class CourseService {
         return courseRepository.findByStatus(Course.CourseStatus.APPROVED, pageable);
     }
 
+    /**
+     * Approved course catalog in one statement per page (plus the page count).
+     * The enrollment flag is only meaningful when the caller is a student.
+     */
+    public Page<CourseRepository.CatalogRow> getCourseCatalog(Pageable pageable, String search, User currentUser) {
+        UUID studentId = currentUser != null && currentUser.getRole() == User.Role.STUDENT ? currentUser.getId() : null;
+        if (search != null && !search.trim().isEmpty()) {
+            return courseRepository.searchCatalog(Course.CourseStatus.APPROVED, search.trim(), studentId, pageable);
+        }
+        return courseRepository.findCatalog(Course.CourseStatus.APPROVED, studentId, pageable);
+    }
+
+    /**
+     * Keyset page of the approved catalog, newest first. Cost does not grow with depth
+     * and the count query only runs when {@code includeTotal} is set.
+     */
+    public CursorPage<CourseRepository.CatalogRow> getCourseCatalogAfter(String cursor, int limit, String search,
+                                                                         User currentUser, boolean includeTotal) {
+        limit = CursorPage.clampLimit(limit);
+        UUID studentId = currentUser != null && currentUser.getRole() == User.Role.STUDENT ? currentUser.getId() : null;
+        String term = search != null ? search.trim() : "";
+
+        Instant createdAt = KeysetCursor.MAX_INSTANT;
+        UUID id = KeysetCursor.MAX_ID;
+        if (!KeysetCursor.isFirstPage(cursor)) {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            createdAt = position.instantKey();
+            id = position.id();
+        }
+
+        List<CourseRepository.CatalogRow> rows = courseRepository.findCatalogAfter(
+                Course.CourseStatus.APPROVED, term, studentId, createdAt, id, PageRequest.of(0, limit + 1));
+        Long total = includeTotal ? courseRepository.countCatalog(Course.CourseStatus.APPROVED, term) : null;
+        return CursorPage.of(rows, limit, row -> KeysetCursor.encode(row.getCreatedAt(), row.getId()), total);
+    }
+
     public Course createCourse(User teacher, com.example.lms.controller.CourseController.CreateCourseRequest request) {
         if (courseRepository.existsByCode(request.getCode())) {
             throw new RuntimeException("Mã khóa học đã tồn tại: " + request.getCode());
@@ -40,7 +90,7 @@ public class CourseService {
                 .code(request.getCode())
                 .title(request.getTitle())
                 .description(request.getDescription())
-                .teacher(teacher)
+                .teacher(userService.resolvePrincipal(teacher))
         // Immediately approve new courses (no admin approval flow)
         .status(Course.CourseStatus.APPROVED)
                 .build();
@@ -111,7 +161,11 @@ public class CourseService {
         }
 
         // Allow deleting courses regardless of status
+        List<String> attachmentUrls = lessonAttachmentRepository.findFileUrlsByCourseId(courseId);
         courseRepository.delete(course);
+        // Attachments go with the course; their stored files are released with them
+        attachmentUrls.forEach(fileUploadService::releaseFile);
+        courseCounterService.courseDeleted(courseId);
     }
 
     @Transactional
@@ -128,7 +182,9 @@ public class CourseService {
         }
 
         // Use database query to add enrollment without loading lazy collections
-        userRepository.addCourseEnrollment(studentId, courseId);
+        int inserted = userRepository.addCourseEnrollment(studentId, courseId);
+        courseCounterService.enrollmentsAdded(courseId, inserted);
+        courseAccessService.invalidate(courseId, studentId);
     }
 
     public void enrollStudentByTeacher(UUID courseId, User currentUser, com.example.lms.controller.CourseController.EnrollStudentRequest req) {
@@ -163,88 +219,226 @@ public class CourseService {
         }
         enrolled.add(course);
         userRepository.save(student);
+        courseCounterService.enrollmentsAdded(courseId, 1);
+        courseAccessService.invalidate(courseId, student.getId());
     }
 
-    public List<Section> getCourseContent(UUID courseId, User currentUser) {
-        Course course = getCourseById(courseId);
-        
+    /**
+     * Section/lesson tree of a course. Access is checked on every call with two indexed
+     * lookups; the tree itself comes from {@link CourseContentCache} or one flat query.
+     */
+    @Transactional(readOnly = true)
+    public CourseContent getCourseContent(UUID courseId, User currentUser) {
+        UUID teacherId = courseRepository.findTeacherIdById(courseId)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy khóa học với ID: " + courseId));
+
         // Check if user is enrolled or is the teacher
-        boolean hasAccess = course.getTeacher().getId().equals(currentUser.getId()) ||
-                          course.getEnrolledStudents().contains(currentUser);
-        
+        boolean hasAccess = teacherId.equals(currentUser.getId()) ||
+                          courseAccessService.isEnrolled(courseId, currentUser.getId());
+
         if (!hasAccess) {
             throw new RuntimeException("Bạn không có quyền truy cập nội dung khóa học này");
         }
 
-        java.util.Set<Section> sectionSet = course.getSections();
-        java.util.List<Section> sections = sectionSet == null ? java.util.Collections.emptyList() : new java.util.ArrayList<>(sectionSet);
-        sections.sort((s1, s2) -> Integer.compare(
-                s1.getOrderIndex() != null ? s1.getOrderIndex() : 0,
-                s2.getOrderIndex() != null ? s2.getOrderIndex() : 0
-        ));
-        // Ensure lessons lists are initialized
-        for (Section s : sections) {
-            if (s.getLessons() == null) {
-                s.setLessons(new java.util.ArrayList<>());
+        CourseContent cached = courseContentCache.get(courseId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long version = courseContentCache.currentVersion(courseId);
+        CourseContent content = loadCourseContent(courseId);
+        courseContentCache.put(courseId, version, content);
+        return content;
+    }
+
+    private CourseContent loadCourseContent(UUID courseId) {
+        List<com.example.lms.controller.CourseController.SectionWithLessons> sections = new java.util.ArrayList<>();
+        java.security.MessageDigest digest = newDigest();
+
+        UUID currentSectionId = null;
+        SectionRepository.ContentRow sectionRow = null;
+        List<com.example.lms.controller.CourseController.LessonSummary> lessons = new java.util.ArrayList<>();
+
+        for (SectionRepository.ContentRow row : sectionRepository.findContentRows(courseId)) {
+            if (!row.getSectionId().equals(currentSectionId)) {
+                if (sectionRow != null) {
+                    sections.add(toSectionWithLessons(sectionRow, lessons));
+                }
+                currentSectionId = row.getSectionId();
+                sectionRow = row;
+                lessons = new java.util.ArrayList<>();
+                updateDigest(digest, "S", row.getSectionId(), row.getSectionTitle(), row.getSectionDescription(), row.getSectionOrderIndex());
+            }
+            if (row.getLessonId() != null) {
+                lessons.add(com.example.lms.controller.CourseController.LessonSummary.builder()
+                        .id(row.getLessonId())
+                        .title(row.getLessonTitle())
+                        .description(row.getLessonDescription())
+                        .orderIndex(row.getLessonOrderIndex())
+                        .build());
+                updateDigest(digest, "L", row.getLessonId(), row.getLessonTitle(), row.getLessonDescription(), row.getLessonOrderIndex());
             }
         }
-        return sections;
+        if (sectionRow != null) {
+            sections.add(toSectionWithLessons(sectionRow, lessons));
+        }
+
+        String etag = "\"" + java.util.HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        return new CourseContent(java.util.Collections.unmodifiableList(sections), etag);
+    }
+
+    private com.example.lms.controller.CourseController.SectionWithLessons toSectionWithLessons(
+            SectionRepository.ContentRow row, List<com.example.lms.controller.CourseController.LessonSummary> lessons) {
+        return com.example.lms.controller.CourseController.SectionWithLessons.builder()
+                .id(row.getSectionId())
+                .title(row.getSectionTitle())
+                .description(row.getSectionDescription())
+                .orderIndex(row.getSectionOrderIndex())
+                .lessons(java.util.Collections.unmodifiableList(lessons))
+                .build();
+    }
+
+    private static java.security.MessageDigest newDigest() {
+        try {
+            return java.security.MessageDigest.getInstance("SHA-256");
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void updateDigest(java.security.MessageDigest digest, Object... fields) {
+        for (Object field : fields) {
+            digest.update(String.valueOf(field).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+    }
+
+    /**
+     * Content tree plus a strong ETag derived from its data, so it is stable across nodes and restarts
+     */
+    public record CourseContent(List<com.example.lms.controller.CourseController.SectionWithLessons> sections, String etag) {}
+
+    /**
+     * Source of roster emails that pushes them one at a time, e.g. a streamed Excel sheet
+     */
+    @FunctionalInterface
+    public interface EmailSource {
+        void forEach(java.util.function.Consumer<String> sink) throws java.io.IOException;
     }
 
     /**
      * Bulk enroll multiple students by email
      */
     public BulkEnrollmentResponse bulkEnrollStudents(UUID courseId, List<String> emails) {
+        try {
+            return bulkEnrollStudents(courseId, sink -> emails.forEach(sink));
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e); // not reachable for an in-memory list
+        }
+    }
+
+    /**
+     * Bulk enroll from a streamed source. Emails are buffered into chunks of 1000 and each
+     * chunk is enrolled set-based (one IN lookup, one diff query, one INSERT ... ON CONFLICT)
+     * while the source keeps reading, so the roster is never materialized as a list.
+     * Per-email outcomes (including duplicates in the input) match the row-by-row version.
+     */
+    public BulkEnrollmentResponse bulkEnrollStudents(UUID courseId, EmailSource source) throws java.io.IOException {
         BulkEnrollmentResponse response = BulkEnrollmentResponse.builder().build();
         
+        checkBulkEnrollment(courseId);
+
+        List<String> buffer = new java.util.ArrayList<>(BULK_ENROLLMENT_CHUNK_SIZE);
+        int[] enrolledCount = {0};
+        source.forEach(email -> {
+            buffer.add(email);
+            if (buffer.size() == BULK_ENROLLMENT_CHUNK_SIZE) {
+                enrolledCount[0] += enrollChunk(courseId, buffer, response);
+                buffer.clear();
+            }
+        });
+        if (!buffer.isEmpty()) {
+            enrolledCount[0] += enrollChunk(courseId, buffer, response);
+        }
+
+        courseCounterService.enrollmentsAdded(courseId, enrolledCount[0]);
+        return response;
+    }
+
+    /**
+     * Fail unless students can be bulk enrolled into the course
+     */
+    public void checkBulkEnrollment(UUID courseId) {
         Course course = getCourseById(courseId);
         
         if (course.getStatus() != Course.CourseStatus.APPROVED) {
             throw new RuntimeException("Chỉ có thể gán học viên cho khóa học đã được duyệt");
         }
-        
+    }
+
+    /**
+     * Enroll one chunk of at most {@link #BULK_ENROLLMENT_CHUNK_SIZE} emails in the caller's
+     * transaction, counters included. Used by background roster imports, which commit
+     * chunk by chunk.
+     */
+    public void enrollStudentChunk(UUID courseId, List<String> emails, BulkEnrollmentResponse response) {
+        courseCounterService.enrollmentsAdded(courseId, enrollChunk(courseId, emails, response));
+    }
+
+    /**
+     * Enroll one chunk and append its per-email outcomes in input order. Students enrolled
+     * by earlier chunks are visible to the diff query, so a repeat reads as already enrolled.
+     */
+    private int enrollChunk(UUID courseId, List<String> emails, BulkEnrollmentResponse response) {
+        List<String> normalized = new java.util.ArrayList<>(emails.size());
+        java.util.Set<String> distinct = new java.util.LinkedHashSet<>();
         for (String email : emails) {
-            try {
-                // Validate email format
-                if (email == null || email.trim().isEmpty()) {
-                    response.addError(email, BulkEnrollmentResponse.ErrorType.INVALID_EMAIL_FORMAT);
-                    continue;
-                }
-                
-                String trimmedEmail = email.trim().toLowerCase();
-                
-                // Find student by email
-                User student = userRepository.findByEmailAndRole(trimmedEmail, User.Role.STUDENT)
-                    .orElse(null);
-                if (student == null) {
-                    response.addError(trimmedEmail, BulkEnrollmentResponse.ErrorType.EMAIL_NOT_FOUND);
-                    continue;
-                }
-                
-                // Check if already enrolled
-                if (userRepository.existsByCourseEnrollment(courseId, student.getId())) {
-                    response.addError(trimmedEmail, BulkEnrollmentResponse.ErrorType.ALREADY_ENROLLED);
-                    continue;
-                }
-                
-                // Enroll student
-                java.util.Set<Course> enrolled = student.getEnrolledCourses();
-                if (enrolled == null) {
-                    enrolled = new java.util.HashSet<>();
-                    student.setEnrolledCourses(enrolled);
-                }
-                enrolled.add(course);
-                userRepository.save(student);
-                
+            String trimmedEmail = email == null || email.trim().isEmpty() ? null : email.trim().toLowerCase();
+            normalized.add(trimmedEmail);
+            if (trimmedEmail != null) {
+                distinct.add(trimmedEmail);
+            }
+        }
+
+        // Resolve emails to student ids
+        java.util.Map<String, UUID> studentIds = new java.util.HashMap<>();
+        if (!distinct.isEmpty()) {
+            for (UserRepository.EmailId row : userRepository.findIdsByEmailInAndRole(distinct, User.Role.STUDENT)) {
+                studentIds.put(row.getEmail(), row.getId());
+            }
+        }
+
+        // Diff against existing enrollments, then insert the rest
+        java.util.Set<UUID> alreadyEnrolled = new java.util.HashSet<>();
+        java.util.Set<UUID> toEnroll = new java.util.LinkedHashSet<>(studentIds.values());
+        int inserted = 0;
+        if (!toEnroll.isEmpty()) {
+            alreadyEnrolled.addAll(userRepository.findEnrolledStudentIds(courseId, toEnroll));
+            toEnroll.removeAll(alreadyEnrolled);
+        }
+        if (!toEnroll.isEmpty()) {
+            inserted = userRepository.addCourseEnrollments(courseId, toEnroll);
+            courseAccessService.invalidate(courseId, toEnroll);
+        }
+
+        // A repeated email within the chunk counts as already enrolled
+        java.util.Set<UUID> reported = new java.util.HashSet<>();
+        for (int i = 0; i < emails.size(); i++) {
+            String trimmedEmail = normalized.get(i);
+            if (trimmedEmail == null) {
+                response.addError(emails.get(i), BulkEnrollmentResponse.ErrorType.INVALID_EMAIL_FORMAT);
+                continue;
+            }
+            UUID studentId = studentIds.get(trimmedEmail);
+            if (studentId == null) {
+                response.addError(trimmedEmail, BulkEnrollmentResponse.ErrorType.EMAIL_NOT_FOUND);
+            } else if (alreadyEnrolled.contains(studentId) || !reported.add(studentId)) {
+                response.addError(trimmedEmail, BulkEnrollmentResponse.ErrorType.ALREADY_ENROLLED);
+            } else {
                 response.addSuccess(trimmedEmail);
-                
-            } catch (Exception e) {
-                response.addError(email, BulkEnrollmentResponse.ErrorType.SYSTEM_ERROR, 
-                    "Lỗi khi gán học viên: " + e.getMessage());
             }
         }
-        
-        return response;
+        return inserted;
     }
     
     /**
@@ -256,4 +450,30 @@ public class CourseService {
         }
         return courseRepository.findEnrolledStudents(courseId, pageable);
     }
+
+    /**
+     * Keyset page of enrolled students in (fullName, id) order
+     */
+    public CursorPage<User> getCourseStudentsAfter(UUID courseId, String cursor, int limit, String search, boolean includeTotal) {
+        limit = CursorPage.clampLimit(limit);
+        String term = search != null ? search.trim() : "";
+
+        String fullName = "";
+        UUID id = KeysetCursor.MIN_ID;
+        if (!KeysetCursor.isFirstPage(cursor)) {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            fullName = position.key();
+            id = position.id();
+        }
+
+        List<User> students = courseRepository.findEnrolledStudentsAfter(
+                courseId, term, fullName, id, PageRequest.of(0, limit + 1));
+        Long total = null;
+        if (includeTotal) {
+            total = term.isEmpty()
+                    ? courseCounterService.getCounters(courseId).getEnrolledCount()
+                    : courseRepository.countEnrolledStudentsMatching(courseId, term);
+        }
+        return CursorPage.of(students, limit, student -> KeysetCursor.encode(student.getFullName(), student.getId()), total);
+    }
 }
\ No newline at end of file
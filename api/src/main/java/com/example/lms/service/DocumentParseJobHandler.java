@@ -0,0 +1,33 @@
+package com.example.lms.service;
+
+import com.example.lms.entity.ImportJob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Background Word document parsing. The document is a single unit of work, so a resumed
+ * job simply parses it again; the job's heartbeat is kept fresh while a long parse runs.
+ */
+@Component
+@RequiredArgsConstructor
+public class DocumentParseJobHandler implements ImportJobService.Handler {
+
+    private final DocumentParserService documentParserService;
+
+    @Override
+    public ImportJob.JobType type() {
+        return ImportJob.JobType.DOCUMENT_PARSE;
+    }
+
+    @Override
+    public Object run(ImportJob job, Path input, ImportJobService.Checkpoint checkpoint) throws Exception {
+        String content = documentParserService.extractTextFromDocument(input, job.getFileName());
+        return Map.of(
+            "content", content,
+            "filename", job.getFileName()
+        );
+    }
+}
@@ -1,20 +1,43 @@
 package com.example.lms.service;
 
+import lombok.RequiredArgsConstructor;
 import org.apache.poi.hwpf.HWPFDocument;
 import org.apache.poi.hwpf.extractor.WordExtractor;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.util.XMLHelper;
 import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
+import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
 
 /**
  * Service for parsing document files (.doc/.docx) and extracting text content
  */
 @Service
+@RequiredArgsConstructor
 public class DocumentParserService {
 
+    private final ExtractedTextCache extractedTextCache;
+
     /**
      * Extract text content from uploaded .doc or .docx file
      * @param file MultipartFile containing the document
@@ -32,13 +55,52 @@ public class DocumentParserService {
             throw new IllegalArgumentException("Filename is null");
         }
 
+        return extractText(file, filename);
+    }
+
+    /**
+     * Extract text content from a .doc or .docx file already on disk, e.g. spooled by a
+     * background import job
+     * @param file Path of the document
+     * @param filename Original filename, used to pick the format
+     */
+    public String extractTextFromDocument(Path file, String filename) throws IOException {
+        return extractText(new FileSystemResource(file), filename);
+    }
+
+    /**
+     * Identical uploads are answered from {@link ExtractedTextCache}: the bytes are hashed
+     * in one streaming pass and only parsed on a miss
+     */
+    private String extractText(InputStreamSource source, String filename) throws IOException {
         String lowercaseFilename = filename.toLowerCase();
-        
+        if (!lowercaseFilename.endsWith(".docx") && !lowercaseFilename.endsWith(".doc")) {
+            throw new IllegalArgumentException("Unsupported file format. Only .doc and .docx files are supported.");
+        }
+
+        String key;
+        try (InputStream in = source.getInputStream()) {
+            key = extractedTextCache.key(in, lowercaseFilename.endsWith(".docx") ? "docx" : "doc");
+        }
+        String cached = extractedTextCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        String text;
+        try (InputStream in = source.getInputStream()) {
+            text = parse(in, lowercaseFilename);
+        }
+        extractedTextCache.put(key, text);
+        return text;
+    }
+
+    private String parse(InputStream in, String lowercaseFilename) throws IOException {
         try {
             if (lowercaseFilename.endsWith(".docx")) {
-                return extractFromDocx(file);
+                return extractFromDocx(in);
             } else if (lowercaseFilename.endsWith(".doc")) {
-                return extractFromDoc(file);
+                return extractFromDoc(in);
             } else {
                 throw new IllegalArgumentException("Unsupported file format. Only .doc and .docx files are supported.");
             }
@@ -53,8 +115,8 @@ public class DocumentParserService {
     /**
      * Extract text from .docx file (Office 2007+)
      */
-    private String extractFromDocx(MultipartFile file) throws IOException {
-        try (XWPFDocument document = new XWPFDocument(file.getInputStream());
+    private String extractFromDocx(InputStream in) throws IOException {
+        try (XWPFDocument document = new XWPFDocument(in);
              XWPFWordExtractor extractor = new XWPFWordExtractor(document)) {
             
             String text = extractor.getText();
@@ -65,8 +127,8 @@ public class DocumentParserService {
     /**
      * Extract text from .doc file (Office 97-2003)
      */
-    private String extractFromDoc(MultipartFile file) throws IOException {
-        try (HWPFDocument document = new HWPFDocument(file.getInputStream());
+    private String extractFromDoc(InputStream in) throws IOException {
+        try (HWPFDocument document = new HWPFDocument(in);
              WordExtractor extractor = new WordExtractor(document)) {
             
             String text = extractor.getText();
@@ -82,11 +144,159 @@ public class DocumentParserService {
             return "";
         }
         
-        // Clean up extra whitespace and normalize line breaks
-        return text.trim()
-                  .replaceAll("\\r\\n", "\n")  // Windows line endings
-                  .replaceAll("\\r", "\n")     // Mac line endings
-                  .replaceAll("\\n{3,}", "\n\n"); // Multiple line breaks to double
+        return normalizeLineBreaks(text.trim());
+    }
+
+    /**
+     * Single pass over the text: Windows and Mac line endings become \n and runs of
+     * three or more line breaks collapse to two
+     */
+    private static String normalizeLineBreaks(CharSequence text) {
+        StringBuilder out = new StringBuilder(text.length());
+        int newlines = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\r') {
+                if (i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                c = '\n';
+            }
+            if (c == '\n') {
+                if (++newlines > 2) {
+                    continue;
+                }
+            } else {
+                newlines = 0;
+            }
+            out.append(c);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Stream the paragraphs of a .doc or .docx file to {@code sink}, normalized like
+     * {@link #extractTextFromDocument}: leading and trailing blank paragraphs are dropped and
+     * consecutive blank paragraphs collapse to one empty string. For .docx only the body
+     * (word/document.xml) is read, with SAX, so memory holds one paragraph at a time;
+     * headers, footers and footnotes are not included.
+     */
+    public void streamParagraphs(Path file, String filename, Consumer<String> sink) throws IOException {
+        Consumer<String> normalized = normalizedParagraphs(sink);
+        String lowercaseFilename = filename.toLowerCase();
+        if (lowercaseFilename.endsWith(".docx")) {
+            streamDocxParagraphs(file, normalized);
+        } else if (lowercaseFilename.endsWith(".doc")) {
+            // HWPF has no event API, the binary document is loaded whole
+            try (InputStream in = Files.newInputStream(file);
+                 HWPFDocument document = new HWPFDocument(in);
+                 WordExtractor extractor = new WordExtractor(document)) {
+                for (String paragraph : extractor.getParagraphText()) {
+                    normalized.accept(stripParagraphEnd(paragraph));
+                }
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported file format. Only .doc and .docx files are supported.");
+        }
+    }
+
+    private void streamDocxParagraphs(Path file, Consumer<String> sink) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            PackageRelationshipCollection relationships = pkg.getRelationshipsByType(PackageRelationshipTypes.CORE_DOCUMENT);
+            if (relationships.size() == 0) {
+                throw new IOException("Error parsing document: main document part not found");
+            }
+            PackagePart documentPart = pkg.getPart(relationships.getRelationship(0));
+            try (InputStream in = documentPart.getInputStream()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new ParagraphHandler(sink));
+                parser.parse(new InputSource(in));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Error parsing document: " + e.getMessage(), e);
+        }
+    }
+
+    private static String stripParagraphEnd(String paragraph) {
+        int end = paragraph.length();
+        while (end > 0 && (paragraph.charAt(end - 1) == '\r' || paragraph.charAt(end - 1) == '\n')) {
+            end--;
+        }
+        return paragraph.substring(0, end);
+    }
+
+    /**
+     * Streaming counterpart of {@link #cleanAndNormalizeText}, applied per paragraph
+     */
+    private static Consumer<String> normalizedParagraphs(Consumer<String> sink) {
+        return new Consumer<>() {
+            private boolean started;
+            private boolean pendingBlank;
+
+            @Override
+            public void accept(String paragraph) {
+                if (paragraph.isBlank()) {
+                    pendingBlank = started;
+                    return;
+                }
+                if (pendingBlank) {
+                    sink.accept("");
+                    pendingBlank = false;
+                }
+                started = true;
+                sink.accept(normalizeLineBreaks(paragraph));
+            }
+        };
+    }
+
+    /**
+     * Collects the text runs of each w:p in word/document.xml. Tabs and breaks inside a
+     * paragraph become \t and \n; deleted text and field instructions are skipped.
+     */
+    private static class ParagraphHandler extends DefaultHandler {
+        private static final String W = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+        private final Consumer<String> sink;
+        private final StringBuilder paragraph = new StringBuilder();
+        private boolean inText;
+
+        ParagraphHandler(Consumer<String> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (!W.equals(uri)) {
+                return;
+            }
+            switch (localName) {
+                case "t" -> inText = true;
+                case "tab" -> paragraph.append('\t');
+                case "br", "cr" -> paragraph.append('\n');
+                default -> { }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (!W.equals(uri)) {
+                return;
+            }
+            if ("t".equals(localName)) {
+                inText = false;
+            } else if ("p".equals(localName)) {
+                // A text box paragraph nested in a run flushes the outer text read so far with it
+                sink.accept(paragraph.toString());
+                paragraph.setLength(0);
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inText) {
+                paragraph.append(ch, start, length);
+            }
+        }
     }
 
     /**
@@ -1,14 +1,29 @@
 package com.example.lms.service;
 
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
+import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 @Service
@@ -17,15 +32,60 @@ public class ExcelProcessingService {
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
         "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$"
     );
+
+    /**
+     * Validate an uploaded roster and return it as an email source for
+     * {@link CourseService#bulkEnrollStudents(java.util.UUID, CourseService.EmailSource)}.
+     * Nothing is read until the source is consumed.
+     */
+    public CourseService.EmailSource emailSource(MultipartFile file) {
+        validateExcelFile(file);
+        return sink -> extractEmailsFromExcel(file, sink);
+    }
     
     /**
      * Extract email addresses from Excel file
      * Supports both .xlsx and .xls formats
-     * Expects emails in first column or searches all columns for email-like values
+     * Expects emails in first column or searches all columns for email-like values.
+     * Each email is passed to {@code sink} in file order, repeats included, as soon as its
+     * row has been read; .xlsx files are streamed so memory does not grow with the sheet.
+     * Repeats are left to the set-based enrollment, which reports them as already enrolled.
      */
-    public List<String> extractEmailsFromExcel(MultipartFile file) throws IOException {
-        List<String> emails = new ArrayList<>();
-        
+    public void extractEmailsFromExcel(MultipartFile file, Consumer<String> sink) throws IOException {
+        validateExcelFile(file);
+
+        if (file.getOriginalFilename().endsWith(".xlsx")) {
+            // OPCPackage reads a file lazily, an InputStream would be buffered whole
+            Path tempFile = Files.createTempFile("roster-", ".xlsx");
+            try {
+                file.transferTo(tempFile);
+                streamXlsx(tempFile, sink);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } else {
+            try (InputStream in = file.getInputStream()) {
+                readXls(in, sink);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #extractEmailsFromExcel(MultipartFile, Consumer)} for a roster already
+     * on disk, e.g. spooled by a background import job. The order of emitted emails is
+     * stable for a given file, so a resumed job can skip what it already committed.
+     */
+    public void extractEmailsFromExcel(Path file, String fileName, Consumer<String> sink) throws IOException {
+        if (fileName.endsWith(".xlsx")) {
+            streamXlsx(file, sink);
+        } else {
+            try (InputStream in = Files.newInputStream(file)) {
+                readXls(in, sink);
+            }
+        }
+    }
+
+    public void validateExcelFile(MultipartFile file) {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("File is empty");
         }
@@ -34,51 +94,112 @@ public class ExcelProcessingService {
         if (fileName == null || (!fileName.endsWith(".xlsx") && !fileName.endsWith(".xls"))) {
             throw new IllegalArgumentException("File must be Excel format (.xlsx or .xls)");
         }
-        
-        try (Workbook workbook = createWorkbook(file)) {
+    }
+
+    /**
+     * .xlsx: SAX over the first sheet with the read-only shared strings table.
+     * Formula cells use the cached result stored in the file, so nothing is evaluated.
+     */
+    private void streamXlsx(Path file, Consumer<String> sink) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) { // Use first sheet
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        reader.getStylesTable(), strings, new RowEmailHandler(sink), new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Cannot read Excel file: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * .xls: the binary format has no cheap streaming path here, so the workbook is loaded,
+     * but rows are still emitted one by one and a single evaluator serves every formula.
+     */
+    private void readXls(InputStream in, Consumer<String> sink) throws IOException {
+        try (Workbook workbook = new HSSFWorkbook(in)) {
             Sheet sheet = workbook.getSheetAt(0); // Use first sheet
+            FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
             
             for (Row row : sheet) {
                 if (row == null) continue;
                 
                 // Try first column first (most common case)
-                String email = getCellValueAsString(row.getCell(0));
+                String email = getCellValueAsString(row.getCell(0), evaluator);
                 if (isValidEmail(email)) {
-                    emails.add(email.toLowerCase().trim());
+                    sink.accept(email.toLowerCase().trim());
                     continue;
                 }
                 
                 // If first column doesn't have email, search all columns in this row
                 for (Cell cell : row) {
-                    email = getCellValueAsString(cell);
+                    email = getCellValueAsString(cell, evaluator);
                     if (isValidEmail(email)) {
-                        emails.add(email.toLowerCase().trim());
+                        sink.accept(email.toLowerCase().trim());
                         break; // Only take first email found in this row
                     }
                 }
             }
         }
-        
-        // Remove duplicates while preserving order
-        return emails.stream().distinct().toList();
     }
-    
+
     /**
-     * Create appropriate workbook based on file extension
+     * Same row rule as the .xls path: the first column wins, otherwise the first
+     * email-like cell of the row. Only the current row's candidates are held.
      */
-    private Workbook createWorkbook(MultipartFile file) throws IOException {
-        String fileName = file.getOriginalFilename();
-        if (fileName != null && fileName.endsWith(".xlsx")) {
-            return new XSSFWorkbook(file.getInputStream());
-        } else {
-            return new HSSFWorkbook(file.getInputStream());
+    private class RowEmailHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final Consumer<String> sink;
+        private String firstColumnEmail;
+        private String firstEmail;
+        private int nextColumn;
+
+        RowEmailHandler(Consumer<String> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            firstColumnEmail = null;
+            firstEmail = null;
+            nextColumn = 0;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            nextColumn = column + 1;
+            if (!isValidEmail(formattedValue)) {
+                return;
+            }
+            String email = formattedValue.toLowerCase().trim();
+            if (column == 0) {
+                firstColumnEmail = email;
+            } else if (firstEmail == null) {
+                firstEmail = email;
+            }
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (firstColumnEmail != null) {
+                sink.accept(firstColumnEmail);
+            } else if (firstEmail != null) {
+                sink.accept(firstEmail);
+            }
         }
     }
     
     /**
      * Get cell value as string regardless of cell type
      */
-    private String getCellValueAsString(Cell cell) {
+    private String getCellValueAsString(Cell cell, FormulaEvaluator evaluator) {
         if (cell == null) {
             return "";
         }
@@ -101,7 +222,6 @@ public class ExcelProcessingService {
                 return String.valueOf(cell.getBooleanCellValue());
             case FORMULA:
                 // Evaluate formula and get result
-                FormulaEvaluator evaluator = cell.getSheet().getWorkbook().getCreationHelper().createFormulaEvaluator();
                 CellValue cellValue = evaluator.evaluate(cell);
                 switch (cellValue.getCellType()) {
                     case STRING:
@@ -0,0 +1,254 @@
+package com.example.lms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Extracted document text keyed by the SHA-256 of the uploaded bytes, so re-uploading an
+ * identical file skips parsing. Two tiers: an in-memory LRU bounded by text size, and
+ * files under {@code <app.upload.dir>/.text-cache/<2 hex>/<hash>.txt} bounded by total
+ * bytes, evicting the least recently used files first. The layout is one level shallower
+ * than the {type}/{year}/{month}/{file} paths FileServeController serves, so cached text
+ * is never reachable over HTTP.
+ */
+@Component
+@Slf4j
+public class ExtractedTextCache {
+
+    /**
+     * Bump when extraction output changes so stale entries are not served
+     */
+    private static final String FORMAT_VERSION = "1";
+
+    private final Map<String, String> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+
+    private final Path dir;
+    private final long memoryMaxBytes;
+    private final long diskMaxBytes;
+    private final AtomicLong diskBytes = new AtomicLong(-1);
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final Counter memoryHits;
+    private final Counter diskHits;
+    private final Counter misses;
+
+    public ExtractedTextCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.upload.dir:uploads}") String uploadDir,
+            @Value("${app.document-text-cache.memory-max-bytes:33554432}") long memoryMaxBytes,
+            @Value("${app.document-text-cache.disk-max-bytes:536870912}") long diskMaxBytes) {
+        this.dir = Path.of(uploadDir, ".text-cache");
+        this.memoryMaxBytes = memoryMaxBytes;
+        this.diskMaxBytes = diskMaxBytes;
+        this.memoryHits = Counter.builder("lms.document.text.cache")
+                .tag("result", "memory_hit")
+                .description("Document extractions answered from the in-memory tier")
+                .register(meterRegistry);
+        this.diskHits = Counter.builder("lms.document.text.cache")
+                .tag("result", "disk_hit")
+                .description("Document extractions answered from the on-disk tier")
+                .register(meterRegistry);
+        this.misses = Counter.builder("lms.document.text.cache")
+                .tag("result", "miss")
+                .description("Document extractions that had to parse the file")
+                .register(meterRegistry);
+        meterRegistry.gauge("lms.document.text.cache.memory.bytes", this, cache -> cache.memoryBytes);
+        meterRegistry.gauge("lms.document.text.cache.disk.bytes", diskBytes, AtomicLong::get);
+    }
+
+    /**
+     * Cache key for a document: SHA-256 of its bytes plus the format, since the same bytes
+     * would be parsed differently as .doc and .docx
+     */
+    public String key(InputStream in, String format) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        digest.update((FORMAT_VERSION + ":" + format).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public String get(String key) {
+        synchronized (this) {
+            String text = memory.get(key);
+            if (text != null) {
+                memoryHits.increment();
+                return text;
+            }
+        }
+        Path file = fileFor(key);
+        try {
+            String text = Files.readString(file, StandardCharsets.UTF_8);
+            // Reads refresh the file's age so eviction is least recently used
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            putInMemory(key, text);
+            diskHits.increment();
+            return text;
+        } catch (NoSuchFileException e) {
+            misses.increment();
+            return null;
+        } catch (IOException e) {
+            log.warn("Could not read cached document text {}", file, e);
+            misses.increment();
+            return null;
+        }
+    }
+
+    public void put(String key, String text) {
+        putInMemory(key, text);
+        Path file = fileFor(key);
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.writeString(temp, text, StandardCharsets.UTF_8);
+            long size = Files.size(temp);
+            // Counted before the move, so a first scan does not see the new file as well
+            long bytes = diskBytes();
+            // Replacing a file only adds the difference in size
+            long replaced = sizeOf(file);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (bytes + size - replaced > diskMaxBytes) {
+                evictDisk();
+            } else {
+                diskBytes.addAndGet(size - replaced);
+            }
+        } catch (IOException e) {
+            // The disk tier is best effort, the memory tier still has the text
+            log.warn("Could not write cached document text {}", file, e);
+        }
+    }
+
+    private synchronized void putInMemory(String key, String text) {
+        long size = weight(text);
+        if (size > memoryMaxBytes) {
+            return;
+        }
+        String previous = memory.put(key, text);
+        if (previous != null) {
+            memoryBytes -= weight(previous);
+        }
+        memoryBytes += size;
+        Iterator<String> eldest = memory.values().iterator();
+        while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+            memoryBytes -= weight(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    private static long sizeOf(Path file) throws IOException {
+        try {
+            return Files.size(file);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    private long diskBytes() throws IOException {
+        long bytes = diskBytes.get();
+        if (bytes < 0) {
+            bytes = scan().stream().mapToLong(CachedFile::size).sum();
+            diskBytes.compareAndSet(-1, bytes);
+        }
+        return diskBytes.get();
+    }
+
+    /**
+     * Delete the least recently used files until the tier is at 90% of its limit.
+     * Only one thread evicts at a time; the others just skip.
+     */
+    private void evictDisk() throws IOException {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            List<CachedFile> files = scan();
+            long total = files.stream().mapToLong(CachedFile::size).sum();
+            long target = diskMaxBytes / 10 * 9;
+            for (CachedFile file : files) {
+                if (total <= target) {
+                    break;
+                }
+                if (Files.deleteIfExists(file.path())) {
+                    total -= file.size();
+                }
+            }
+            diskBytes.set(total);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Cached files, least recently used first
+     */
+    private List<CachedFile> scan() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.walk(dir, 2)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(".txt"))
+                    .map(CachedFile::of)
+                    .filter(file -> file != null)
+                    .sorted(Comparator.comparing(CachedFile::lastModified))
+                    .toList();
+        }
+    }
+
+    private Path fileFor(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".txt");
+    }
+
+    /**
+     * Approximate heap cost of a string, two bytes per char
+     */
+    private static long weight(String text) {
+        return 2L * text.length();
+    }
+
+    private record CachedFile(Path path, long size, FileTime lastModified) {
+        static CachedFile of(Path path) {
+            try {
+                return new CachedFile(path, Files.size(path), Files.getLastModifiedTime(path));
+            } catch (IOException e) {
+                return null; // removed concurrently
+            }
+        }
+    }
+}
@@ -1,18 +1,20 @@
 package com.example.lms.service;
 
+import com.example.lms.entity.FileReference;
 import com.example.lms.entity.User;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.List;
@@ -23,65 +25,166 @@ import java.util.UUID;
 @Transactional
 public class FileUploadService {
 
-    @Value("${app.upload.dir:uploads}")
-    private String uploadDir;
-
     @Value("${app.upload.max-size:10485760}") // 10MB default
     private long maxFileSize;
 
     @Value("${app.base-url:http://localhost:8088}")
     private String baseUrl;
 
+    @Value("${app.upload.resumable-max-size:2147483648}") // 2GB default
+    private long resumableMaxFileSize;
+
+    private final ResumableUploadService resumableUploadService;
+    private final BlobStore blobStore;
+
+    private static final String FILES_PATH = "/api/v1/files/";
+
     private static final List<String> ALLOWED_EXTENSIONS = Arrays.asList(
         "jpg", "jpeg", "png", "gif", "pdf", "doc", "docx", "ppt", "pptx", 
         "xls", "xlsx", "zip", "rar", "mp4", "avi", "mov", "mp3", "wav"
     );
 
+    /**
+     * Upload written to the staging area, waiting to be published at its /api/v1/files path
+     */
+    public record PreparedUpload(BlobStore.StagedBlob staged, String subDir, String fileName,
+                                 String originalFileName, String contentType) {}
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public com.example.lms.controller.FileUploadController.FileUploadResponse uploadFile(
             MultipartFile file, 
             User currentUser, 
             com.example.lms.controller.FileUploadController.FileUploadRequest request) {
-        
+        return publish(prepareFile(file, request), currentUser);
+    }
+
+    /**
+     * Stage a multipart upload and write it to storage without a transaction; {@link #publish} stores it
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PreparedUpload prepareFile(MultipartFile file, com.example.lms.controller.FileUploadController.FileUploadRequest request) {
         validateFile(file);
-        
+
+        // Generate unique filename
+        String originalFileName = file.getOriginalFilename();
+        String fileExtension = getFileExtension(originalFileName);
+        String fileName = generateUniqueFileName(originalFileName, fileExtension);
+
+        // Create subdirectory based on file type and date
+        String subDir = getSubdirectory(request.getType());
+
+        BlobStore.StagedBlob staged;
         try {
-            // Create upload directory if it doesn't exist
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
+            // A multipart spooled to disk is moved into staging rather than copied again, then hashed
+            Path staging = blobStore.newStagingFile();
+            try {
+                file.transferTo(staging.toAbsolutePath().toFile());
+                staged = blobStore.stage(staging);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(staging);
+                throw e;
             }
+        } catch (IOException e) {
+            throw new RuntimeException("Lỗi khi upload file: " + e.getMessage(), e);
+        }
+        blobStore.upload(staged);
 
-            // Generate unique filename
-            String originalFileName = file.getOriginalFilename();
-            String fileExtension = getFileExtension(originalFileName);
-            String fileName = generateUniqueFileName(originalFileName, fileExtension);
-            
-            // Create subdirectory based on file type and date
-            String subDir = getSubdirectory(request.getType());
-            Path targetPath = uploadPath.resolve(subDir);
-            if (!Files.exists(targetPath)) {
-                Files.createDirectories(targetPath);
-            }
+        return new PreparedUpload(staged, subDir, fileName, originalFileName, file.getContentType());
+    }
+
+    /**
+     * Store a raw request body as an upload without a multipart temp file: bytes go from the
+     * socket straight into the blob store through a FileChannel, with size and SHA-256
+     * computed on the way and the size limit enforced as they arrive. No transaction is open
+     * while the body streams.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public com.example.lms.controller.FileUploadController.FileUploadResponse uploadStream(
+            InputStream body,
+            long contentLength,
+            String originalFileName,
+            String contentType,
+            User currentUser,
+            com.example.lms.controller.FileUploadController.FileUploadRequest request) {
+        return uploadStream(body, contentLength, originalFileName, contentType, currentUser, request, maxFileSize);
+    }
+
+    /**
+     * Same as {@link #uploadStream(InputStream, long, String, String, User, com.example.lms.controller.FileUploadController.FileUploadRequest)}
+     * with a caller-specific size limit
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public com.example.lms.controller.FileUploadController.FileUploadResponse uploadStream(
+            InputStream body,
+            long contentLength,
+            String originalFileName,
+            String contentType,
+            User currentUser,
+            com.example.lms.controller.FileUploadController.FileUploadRequest request,
+            long maxSize) {
+        return publish(prepareStream(body, contentLength, originalFileName, contentType, request, maxSize), currentUser);
+    }
 
-            // Save file
-            Path filePath = targetPath.resolve(fileName);
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Stream a raw request body into the staging area and on to storage without a transaction,
+     * so no connection is held while the client sends it; {@link #publish} stores it
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PreparedUpload prepareStream(
+            InputStream body,
+            long contentLength,
+            String originalFileName,
+            String contentType,
+            com.example.lms.controller.FileUploadController.FileUploadRequest request,
+            long maxSize) {
 
-            // Generate file URL
-            String fileUrl = baseUrl + "/api/v1/files/" + subDir + "/" + fileName;
+        validateFileName(originalFileName);
+        // Reject early when the client announces the size; chunked bodies are checked while streaming
+        if (contentLength > maxSize) {
+            throw new RuntimeException("Kích thước file vượt quá giới hạn cho phép: " + maxSize + " bytes");
+        }
 
-            return com.example.lms.controller.FileUploadController.FileUploadResponse.builder()
-                    .fileName(fileName)
-                    .originalFileName(originalFileName)
-                    .fileUrl(fileUrl)
-                    .fileSize(file.getSize())
-                    .contentType(file.getContentType())
-                    .uploadedAt(LocalDateTime.now())
-                    .build();
+        String fileExtension = getFileExtension(originalFileName);
+        String fileName = generateUniqueFileName(originalFileName, fileExtension);
+        String subDir = getSubdirectory(request.getType());
 
+        BlobStore.StagedBlob staged;
+        try {
+            staged = blobStore.write(body, maxSize);
         } catch (IOException e) {
             throw new RuntimeException("Lỗi khi upload file: " + e.getMessage(), e);
         }
+        blobStore.upload(staged);
+
+        return new PreparedUpload(staged, subDir, fileName, originalFileName, contentType);
+    }
+
+    /**
+     * Hand the staged bytes to the blob store, which keeps one copy per content, and publish
+     * them at the usual /api/v1/files/{subDir}/{fileName} URL. Joins the caller's transaction,
+     * so the reference commits together with whatever the caller records about the file.
+     */
+    public com.example.lms.controller.FileUploadController.FileUploadResponse publish(PreparedUpload upload, User currentUser) {
+        BlobStore.StagedBlob staged = upload.staged();
+        FileReference reference = blobStore.store(staged, upload.subDir() + "/" + upload.fileName(),
+                upload.originalFileName(), upload.contentType(), currentUser != null ? currentUser.getId() : null);
+
+        return com.example.lms.controller.FileUploadController.FileUploadResponse.builder()
+                .fileName(upload.fileName())
+                .originalFileName(upload.originalFileName())
+                .fileUrl(baseUrl + "/api/v1/files/" + reference.getPath())
+                .fileSize(staged.size())
+                .contentType(upload.contentType())
+                .checksum(staged.sha256())
+                .uploadedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Drop a prepared upload that will not be published
+     */
+    public void discard(PreparedUpload upload) {
+        blobStore.discard(upload.staged());
     }
 
     public com.example.lms.controller.FileUploadController.SignedUrlResponse generateSignedUrl(
@@ -94,9 +197,9 @@ public class FileUploadService {
             throw new RuntimeException("Loại file không được hỗ trợ: " + fileExtension);
         }
 
-        // Validate file size
-        if (request.getFileSize() > maxFileSize) {
-            throw new RuntimeException("Kích thước file vượt quá giới hạn cho phép: " + maxFileSize + " bytes");
+        // Validate file size; signed uploads are chunked, so they may be larger than single-shot ones
+        if (request.getFileSize() > resumableMaxFileSize) {
+            throw new RuntimeException("Kích thước file vượt quá giới hạn cho phép: " + resumableMaxFileSize + " bytes");
         }
 
         // Generate unique filename
@@ -105,15 +208,16 @@ public class FileUploadService {
         // Create subdirectory based on file type
         String subDir = getSubdirectory(request.getType());
         
-        // Generate signed URL (in a real implementation, this would be a pre-signed URL for cloud storage)
-        String uploadUrl = baseUrl + "/api/v1/files/upload-signed/" + subDir + "/" + fileName;
-        String fileUrl = baseUrl + "/api/v1/files/" + subDir + "/" + fileName;
+        // Start a resumable session; the URL carries its signed token
+        ResumableUploadService.Session session = resumableUploadService.createSession(
+                currentUser, request.getFileName(), fileName, subDir, request.getFileSize());
 
         return com.example.lms.controller.FileUploadController.SignedUrlResponse.builder()
-                .uploadUrl(uploadUrl)
-                .fileUrl(fileUrl)
-                .fileName(fileName)
-                .expiresAt(LocalDateTime.now().plusHours(1)) // URL expires in 1 hour
+                .uploadUrl(resumableUploadService.uploadUrl(session.token()))
+                .fileUrl(resumableUploadService.fileUrl(session.session()))
+                .fileName(session.session().getId().toString())
+                .chunkSize(session.session().getChunkSize())
+                .expiresAt(LocalDateTime.ofInstant(session.session().getExpiresAt(), ZoneId.systemDefault()))
                 .build();
     }
 
@@ -126,7 +230,10 @@ public class FileUploadService {
             throw new RuntimeException("Kích thước file vượt quá giới hạn cho phép: " + maxFileSize + " bytes");
         }
 
-        String fileName = file.getOriginalFilename();
+        validateFileName(file.getOriginalFilename());
+    }
+
+    private void validateFileName(String fileName) {
         if (fileName == null || fileName.trim().isEmpty()) {
             throw new RuntimeException("Tên file không hợp lệ");
         }
@@ -182,21 +289,49 @@ public class FileUploadService {
     }
 
     public boolean validateUpload(User currentUser, com.example.lms.controller.FileUploadController.ValidateUploadRequest request) {
-        // Simple validation - in a real implementation, this would verify the upload
-        return request.getFileUrl() != null && !request.getFileUrl().trim().isEmpty();
+        if (request.getFileUrl() == null || request.getFileUrl().trim().isEmpty()) {
+            return false;
+        }
+        // Signed-URL uploads are valid once their session completed and verified
+        return !resumableUploadService.isSession(request.getFileId())
+                || resumableUploadService.isCompleted(request.getFileId(), request.getFileUrl(), currentUser);
     }
 
     public void deleteFile(User currentUser, com.example.lms.controller.FileUploadController.DeleteFileRequest request) {
-        // In a real implementation, this would delete the file from storage
-        // For now, we'll just validate the file URL
         if (request.getFileUrl() == null || request.getFileUrl().trim().isEmpty()) {
             throw new RuntimeException("File URL không hợp lệ");
         }
-        
-        // Extract file path from URL and delete
-        // This is a simplified implementation
-        // Extract file path from URL if needed for future physical deletion
-        // String fileName = request.getFileUrl().substring(request.getFileUrl().lastIndexOf("/") + 1);
-        // TODO: Implement physical deletion if files are stored locally or in cloud storage
+
+        String path = filePath(request.getFileUrl());
+        if (path == null) {
+            throw new RuntimeException("File URL không hợp lệ");
+        }
+
+        // Files stored before the blob store have no reference and are left in place
+        blobStore.findByPath(path).ifPresent(reference -> {
+            if (!currentUser.getId().equals(reference.getCreatedBy()) && currentUser.getRole() != User.Role.ADMIN) {
+                throw new RuntimeException("Không có quyền xóa file này");
+            }
+            blobStore.release(reference);
+        });
+    }
+
+    /**
+     * Drop the file behind {@code fileUrl} for a caller that has already checked permissions,
+     * e.g. when its attachment is deleted; the blob goes with its last reference
+     */
+    public void releaseFile(String fileUrl) {
+        String path = fileUrl != null ? filePath(fileUrl) : null;
+        if (path != null) {
+            blobStore.findByPath(path).ifPresent(blobStore::release);
+        }
+    }
+
+    /**
+     * {@code {type}/{yyyy}/{MM}/{name}} part of a /api/v1/files URL, or null for other URLs
+     */
+    private static String filePath(String fileUrl) {
+        int start = fileUrl.indexOf(FILES_PATH);
+        return start >= 0 ? fileUrl.substring(start + FILES_PATH.length()) : null;
     }
 }
\ No newline at end of file
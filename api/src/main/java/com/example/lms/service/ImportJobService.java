@@ -0,0 +1,358 @@
+package com.example.lms.service;
+
+import com.example.lms.entity.ImportJob;
+import com.example.lms.entity.ImportJobChunk;
+import com.example.lms.entity.User;
+import com.example.lms.repository.ImportJobChunkRepository;
+import com.example.lms.repository.ImportJobRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs roster and document imports off the request thread. Uploads are spooled to
+ * {@link BlobStorage} under {@code jobs/}, so whichever node claims a job can read its input,
+ * and recorded in import_jobs, then executed on a bounded pool of virtual threads.
+ * A job is claimed with a conditional update and commits its work chunk by chunk
+ * together with its progress, so a job lost to a crash or shutdown is picked up by the
+ * startup resume or the periodic sweep and continues after its last committed chunk.
+ * Jobs running here get their heartbeat refreshed every {@code heartbeat-interval-ms}, so
+ * a long chunk or a single-unit job such as a document parse is not taken over meanwhile.
+ */
+@Service
+@Slf4j
+public class ImportJobService {
+
+    /**
+     * Type-specific work of a job. Implementations read the spooled input, skip the
+     * {@code job.getProcessedItems()} items committed by earlier attempts, commit the rest
+     * through the {@link Checkpoint} and return the final result, stored as JSON.
+     */
+    public interface Handler {
+        ImportJob.JobType type();
+
+        Object run(ImportJob job, Path input, Checkpoint checkpoint) throws Exception;
+    }
+
+    /**
+     * Outcome of one chunk: counts for progress and a payload kept until the job finishes
+     */
+    public record ChunkResult(long success, long errors, Object payload) {}
+
+    private final ImportJobRepository importJobRepository;
+    private final ImportJobChunkRepository importJobChunkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlobStorage blobStorage;
+    private final Map<ImportJob.JobType, Handler> handlers = new EnumMap<>(ImportJob.JobType.class);
+    private final ExecutorService executor;
+    private final Set<UUID> runningJobs = ConcurrentHashMap.newKeySet();
+
+    private final Path spoolDir;
+    private final Duration staleAfter;
+    private final int maxAttempts;
+
+    public ImportJobService(
+            ImportJobRepository importJobRepository,
+            ImportJobChunkRepository importJobChunkRepository,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            BlobStorage blobStorage,
+            List<Handler> handlers,
+            @Value("${app.jobs.max-concurrent:4}") int maxConcurrent,
+            @Value("${app.jobs.queue-capacity:100}") int queueCapacity,
+            @Value("${app.jobs.spool-dir:${java.io.tmpdir}/lms-jobs}") String spoolDir,
+            @Value("${app.jobs.stale-after-seconds:300}") long staleAfterSeconds,
+            @Value("${app.jobs.max-attempts:3}") int maxAttempts) {
+        this.importJobRepository = importJobRepository;
+        this.importJobChunkRepository = importJobChunkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.blobStorage = blobStorage;
+        handlers.forEach(handler -> this.handlers.put(handler.type(), handler));
+        // Bounded on both ends: a full queue leaves the job QUEUED for the next sweep
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), Thread.ofVirtual().name("import-job-", 0).factory());
+        this.spoolDir = Path.of(spoolDir);
+        this.staleAfter = Duration.ofSeconds(staleAfterSeconds);
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Spool the upload, record the job and queue it. The returned job is QUEUED.
+     */
+    public ImportJob submit(ImportJob.JobType type, User owner, UUID courseId, MultipartFile file) {
+        String spool = "jobs/" + UUID.randomUUID();
+        try {
+            Path local = newSpoolFile();
+            try {
+                file.transferTo(local);
+                blobStorage.put(spool, local);
+            } finally {
+                Files.deleteIfExists(local);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Không thể lưu file tải lên: " + e.getMessage(), e);
+        }
+
+        ImportJob job;
+        try {
+            job = importJobRepository.save(ImportJob.builder()
+                    .type(type)
+                    .createdBy(owner.getId())
+                    .courseId(courseId)
+                    .fileName(file.getOriginalFilename())
+                    .spoolPath(spool)
+                    .build());
+        } catch (RuntimeException e) {
+            deleteSpool(spool);
+            throw e;
+        }
+
+        dispatch(job.getId());
+        return job;
+    }
+
+    /**
+     * Job visible to its creator and to admins
+     */
+    public ImportJob getJob(UUID jobId, User currentUser) {
+        ImportJob job = importJobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy job"));
+        if (!job.getCreatedBy().equals(currentUser.getId()) && currentUser.getRole() != User.Role.ADMIN) {
+            throw new RuntimeException("Bạn không có quyền xem job này");
+        }
+        return job;
+    }
+
+    /**
+     * Requeue everything left over by a previous run. Jobs RUNNING on another node keep
+     * a fresh heartbeat and are not claimable, so only abandoned ones are taken.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        Instant now = Instant.now();
+        resume(now, now.minus(staleAfter));
+    }
+
+    @Scheduled(fixedDelayString = "${app.jobs.sweep-interval-ms:60000}", initialDelayString = "${app.jobs.sweep-interval-ms:60000}")
+    public void sweep() {
+        Instant staleBefore = Instant.now().minus(staleAfter);
+        resume(staleBefore, staleBefore);
+    }
+
+    private void resume(Instant queuedBefore, Instant staleBefore) {
+        List<UUID> jobIds = importJobRepository.findResumable(queuedBefore, staleBefore);
+        if (!jobIds.isEmpty()) {
+            log.info("Resuming {} import job(s)", jobIds.size());
+            jobIds.forEach(this::dispatch);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.jobs.heartbeat-interval-ms:60000}", initialDelayString = "${app.jobs.heartbeat-interval-ms:60000}")
+    public void heartbeat() {
+        if (runningJobs.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    importJobRepository.heartbeat(List.copyOf(runningJobs), Instant.now()));
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the heartbeat of {} running import job(s)", runningJobs.size(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Interrupted jobs stay RUNNING and are resumed from their last chunk
+        executor.shutdownNow();
+    }
+
+    private void dispatch(UUID jobId) {
+        try {
+            executor.execute(() -> run(jobId));
+        } catch (RejectedExecutionException e) {
+            log.warn("Import queue is full, job {} stays queued for the next sweep", jobId);
+        }
+    }
+
+    private void run(UUID jobId) {
+        Instant now = Instant.now();
+        Integer claimed = transactionTemplate.execute(status ->
+                importJobRepository.claim(jobId, now, now.minus(staleAfter)));
+        if (claimed == null || claimed == 0) {
+            return; // finished, or another worker holds it
+        }
+        ImportJob job = importJobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+
+        runningJobs.add(jobId);
+        try {
+            if (job.getAttempts() > maxAttempts) {
+                throw new IllegalStateException("Job đã vượt quá số lần thử tối đa");
+            }
+            Handler handler = handlers.get(job.getType());
+            if (handler == null) {
+                throw new IllegalStateException("Không hỗ trợ loại job " + job.getType());
+            }
+            Object result = runWithInput(handler, job);
+            finish(job, ImportJob.JobStatus.SUCCEEDED, toJson(result), null);
+            log.info("Import job {} ({}) succeeded after {} item(s)", jobId, job.getType(), job.getProcessedItems());
+        } catch (ClaimLostException e) {
+            log.warn("Import job {} was taken over by another worker", jobId);
+        } catch (Exception e) {
+            if (isInterrupt(e)) {
+                log.info("Import job {} interrupted, it will resume from its last committed chunk", jobId);
+                return;
+            }
+            log.error("Import job {} ({}) failed", jobId, job.getType(), e);
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            finish(job, ImportJob.JobStatus.FAILED, null, message.length() > 1000 ? message.substring(0, 1000) : message);
+        } finally {
+            runningJobs.remove(jobId);
+        }
+    }
+
+    private void finish(ImportJob job, ImportJob.JobStatus status, String result, String error) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            ImportJob current = importJobRepository.findById(job.getId()).orElseThrow();
+            current.setStatus(status);
+            current.setResult(result);
+            current.setError(error);
+            current.setFinishedAt(Instant.now());
+            importJobRepository.save(current);
+            importJobChunkRepository.deleteByJobId(job.getId());
+        });
+        deleteSpool(job.getSpoolPath());
+    }
+
+    /**
+     * Run the handler on a local file with the job's input: the stored object itself on
+     * local storage, otherwise a copy in {@code spool-dir} removed after the attempt
+     */
+    private Object runWithInput(Handler handler, ImportJob job) throws Exception {
+        Path stored = blobStorage.localPath(job.getSpoolPath()).orElse(null);
+        if (stored != null) {
+            return handler.run(job, stored, new Checkpoint(job));
+        }
+        Path copy = newSpoolFile();
+        try {
+            try (InputStream in = blobStorage.get(job.getSpoolPath())) {
+                Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return handler.run(job, copy, new Checkpoint(job));
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    private Path newSpoolFile() throws IOException {
+        Files.createDirectories(spoolDir);
+        return Files.createTempFile(spoolDir, "job-", ".upload");
+    }
+
+    private static boolean isInterrupt(Throwable e) {
+        if (Thread.currentThread().isInterrupted()) {
+            return true;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof InterruptedException || t instanceof InterruptedIOException || t instanceof ClosedByInterruptException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void deleteSpool(String spoolPath) {
+        try {
+            blobStorage.delete(spoolPath);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled import file {}", spoolPath, e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Không thể lưu kết quả job: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Handed to a {@link Handler} for one attempt of one job
+     */
+    public final class Checkpoint {
+        private final UUID jobId;
+        private int chunksCommitted;
+
+        private Checkpoint(ImportJob job) {
+            this.jobId = job.getId();
+            this.chunksCommitted = job.getChunksCommitted();
+        }
+
+        /**
+         * Run one chunk's writes and record its outcome and {@code items} of progress in a
+         * single transaction. If another worker has taken the job over the chunk is rolled
+         * back and this attempt stops.
+         */
+        public void commit(long items, Supplier<ChunkResult> work) {
+            transactionTemplate.executeWithoutResult(status -> {
+                ChunkResult result = work.get();
+                // Locks the job row first, so two workers never write the same chunk
+                if (importJobRepository.advance(jobId, chunksCommitted, items, result.success(), result.errors(), Instant.now()) == 0) {
+                    throw new ClaimLostException();
+                }
+                importJobChunkRepository.save(ImportJobChunk.builder()
+                        .jobId(jobId)
+                        .chunkIndex(chunksCommitted)
+                        .result(toJson(result.payload()))
+                        .build());
+            });
+            chunksCommitted++;
+        }
+
+        /**
+         * Payloads of every committed chunk of the job, in order, including earlier attempts
+         */
+        public List<String> results() {
+            return importJobChunkRepository.findResultsByJobId(jobId);
+        }
+    }
+
+    private static class ClaimLostException extends RuntimeException {
+    }
+}
@@ -1,7 +1,9 @@
 package com.example.lms.service;
 
+import com.example.lms.entity.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import javax.crypto.SecretKey;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,11 +14,17 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HexFormat;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
+    public static final String ROLE_CLAIM = "role";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String AUTH_EPOCH_CLAIM = "epoch";
+    public static final String ENABLED_CLAIM = "enabled";
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
@@ -26,8 +34,28 @@ public class JwtService {
     @Value("${app.jwt.refresh-expiration}")
     private int refreshExpirationInMs;
 
+    // Derived once from the secret; both are immutable and thread-safe
+    private SecretKey signInKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = HexFormat.of().parseHex(jwtSecret);
+        this.signInKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parser()
+                .verifyWith(signInKey)
+                .build();
+    }
+
+    /**
+     * Verify the signature once and return every claim the request path needs.
+     */
+    public VerifiedToken verify(String token) {
+        return VerifiedToken.from(extractAllClaims(token));
+    }
+
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).subject();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -36,7 +64,15 @@ public class JwtService {
     }
 
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        // Enough for the filter to authorize without loading the user row
+        if (userDetails instanceof User user) {
+            claims.put(USER_ID_CLAIM, user.getId().toString());
+            claims.put(ROLE_CLAIM, user.getRole().name());
+            claims.put(AUTH_EPOCH_CLAIM, user.getAuthEpoch() != null ? user.getAuthEpoch() : 0);
+            claims.put(ENABLED_CLAIM, user.isEnabled());
+        }
+        return generateToken(claims, userDetails);
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
@@ -52,34 +88,31 @@ public class JwtService {
             UserDetails userDetails,
             long expiration
     ) {
+        long now = System.currentTimeMillis();
         return Jwts
                 .builder()
                 .claims(extraClaims)
                 .subject(userDetails.getUsername())
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey())
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expiration))
+                .signWith(signInKey)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return isTokenValid(verify(token), userDetails);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    public boolean isTokenValid(VerifiedToken token, UserDetails userDetails) {
+        return token.subject() != null
+                && token.subject().equals(userDetails.getUsername())
+                && userDetails.isEnabled()
+                && !token.isExpired();
     }
 
     private Claims extractAllClaims(String token) {
         try {
-            return Jwts.parser()
-                    .verifyWith((SecretKey) getSignInKey())
-                    .build()
+            return parser
                     .parseSignedClaims(token)
                     .getPayload();
         } catch (ExpiredJwtException e) {
@@ -93,8 +126,35 @@ public class JwtService {
         }
     }
 
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = HexFormat.of().parseHex(jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * Immutable view of a token whose signature has already been verified.
+     * Times are epoch milliseconds; issuedAt is 0 when the claim is absent.
+     * userId, role, authEpoch and enabled are null for tokens issued without principal claims.
+     */
+    public record VerifiedToken(String subject, UUID userId, String role, Integer authEpoch,
+                                Boolean enabled, long issuedAt, long expiresAt) {
+
+        static VerifiedToken from(Claims claims) {
+            Date iat = claims.getIssuedAt();
+            Date exp = claims.getExpiration();
+            String uid = claims.get(USER_ID_CLAIM, String.class);
+            return new VerifiedToken(
+                    claims.getSubject(),
+                    uid != null ? UUID.fromString(uid) : null,
+                    claims.get(ROLE_CLAIM, String.class),
+                    claims.get(AUTH_EPOCH_CLAIM, Integer.class),
+                    claims.get(ENABLED_CLAIM, Boolean.class),
+                    iat != null ? iat.getTime() : 0L,
+                    exp != null ? exp.getTime() : Long.MAX_VALUE
+            );
+        }
+
+        public boolean isExpired() {
+            return expiresAt < System.currentTimeMillis();
+        }
+
+        public boolean hasPrincipalClaims() {
+            return subject != null && userId != null && role != null && authEpoch != null && enabled != null;
+        }
     }
-}
\ No newline at end of file
+}
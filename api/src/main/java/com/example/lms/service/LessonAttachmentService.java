@@ -7,10 +7,14 @@ import com.example.lms.entity.User;
 import com.example.lms.repository.LessonAttachmentRepository;
 import com.example.lms.repository.LessonRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
@@ -18,42 +22,30 @@ import java.util.UUID;
 @Service
 @RequiredArgsConstructor
 @Transactional
+@Slf4j
 public class LessonAttachmentService {
 
     private final LessonAttachmentRepository attachmentRepository;
     private final LessonRepository lessonRepository;
     private final FileUploadService fileUploadService;
+    private final UserService userService;
+    private final CourseAccessService courseAccessService;
+    private final TransactionTemplate transactionTemplate;
+
+    private static final long MAX_FILE_SIZE = 100 * 1024 * 1024; // 100MB limit
 
     private static final List<String> ALLOWED_EXTENSIONS = Arrays.asList(
         "pdf", "doc", "docx", "ppt", "pptx", "xls", "xlsx", "mp4", "avi", "mov", "mp3", "wav"
     );
 
+    /**
+     * Uploads run in three steps so no connection is held while bytes arrive: the permission
+     * check in a short transaction, staging the file without one, then one transaction for the
+     * stored file and the attachment row
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public LessonAttachment addAttachment(UUID lessonId, User currentUser, MultipartFile file, Integer displayOrder) {
-        System.out.println("=== DEBUG addAttachment ===");
-        System.out.println("Lesson ID: " + lessonId);
-        System.out.println("Current User ID: " + (currentUser != null ? currentUser.getId() : "NULL"));
-        System.out.println("Current User Email: " + (currentUser != null ? currentUser.getEmail() : "NULL"));
-        System.out.println("Current User Role: " + (currentUser != null ? currentUser.getRole() : "NULL"));
-        
-        Lesson lesson = lessonRepository.findById(lessonId)
-            .orElseThrow(() -> new RuntimeException("Không tìm thấy bài học"));
-
-        System.out.println("Found Lesson: " + lesson.getTitle());
-        System.out.println("Section: " + lesson.getSection().getTitle());
-        System.out.println("Course: " + lesson.getSection().getCourse().getTitle());
-        System.out.println("Course Teacher ID: " + lesson.getSection().getCourse().getTeacher().getId());
-        System.out.println("Course Teacher Email: " + lesson.getSection().getCourse().getTeacher().getEmail());
-
-        // Check permissions
-        if (!lesson.getSection().getCourse().getTeacher().getId().equals(currentUser.getId())) {
-            System.out.println("PERMISSION DENIED: Teacher ID mismatch");
-            System.out.println("Expected: " + lesson.getSection().getCourse().getTeacher().getId());
-            System.out.println("Actual: " + currentUser.getId());
-            throw new RuntimeException("Không có quyền thêm file đính kèm");
-        }
-        
-        System.out.println("PERMISSION GRANTED: User is teacher of this course");
-        System.out.println("=== END DEBUG ===");
+        transactionTemplate.executeWithoutResult(status -> getLessonForUpload(lessonId, currentUser));
 
         // Validate file
         validateFile(file);
@@ -61,18 +53,73 @@ public class LessonAttachmentService {
         // Determine file type
         String fileType = determineFileType(file.getOriginalFilename());
 
-        // Set display order
-        if (displayOrder == null) {
-            Integer maxOrder = attachmentRepository.findMaxDisplayOrderByLessonId(lessonId);
-            displayOrder = (maxOrder != null) ? maxOrder + 1 : 0;
-        }
-
         // Upload file
         com.example.lms.controller.FileUploadController.FileUploadRequest request =
             new com.example.lms.controller.FileUploadController.FileUploadRequest();
         request.setType(fileType);
-        com.example.lms.controller.FileUploadController.FileUploadResponse uploadResponse =
-            fileUploadService.uploadFile(file, currentUser, request);
+        FileUploadService.PreparedUpload upload = fileUploadService.prepareFile(file, request);
+
+        return publishAttachment(lessonId, currentUser, upload, fileType, displayOrder);
+    }
+
+    /**
+     * Add an attachment sent as a raw request body; the bytes are written once, straight to
+     * the stored file, and the size limit is enforced while streaming
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public LessonAttachment addAttachmentStream(UUID lessonId, User currentUser, InputStream body, long contentLength,
+                                                String fileName, String contentType, Integer displayOrder) {
+        transactionTemplate.executeWithoutResult(status -> getLessonForUpload(lessonId, currentUser));
+
+        validateFileName(fileName);
+        String fileType = determineFileType(fileName);
+
+        com.example.lms.controller.FileUploadController.FileUploadRequest request =
+            new com.example.lms.controller.FileUploadController.FileUploadRequest();
+        request.setType(fileType);
+        FileUploadService.PreparedUpload upload =
+            fileUploadService.prepareStream(body, contentLength, fileName, contentType, request, MAX_FILE_SIZE);
+
+        return publishAttachment(lessonId, currentUser, upload, fileType, displayOrder);
+    }
+
+    private LessonAttachment publishAttachment(UUID lessonId, User currentUser, FileUploadService.PreparedUpload upload,
+                                               String fileType, Integer displayOrder) {
+        try {
+            return transactionTemplate.execute(status -> {
+                // Checked again: the lesson may have changed hands while the file arrived
+                Lesson lesson = getLessonForUpload(lessonId, currentUser);
+                com.example.lms.controller.FileUploadController.FileUploadResponse uploadResponse =
+                    fileUploadService.publish(upload, currentUser);
+                return saveAttachment(lesson, currentUser, uploadResponse, fileType, displayOrder);
+            });
+        } catch (RuntimeException e) {
+            fileUploadService.discard(upload);
+            throw e;
+        }
+    }
+
+    private Lesson getLessonForUpload(UUID lessonId, User currentUser) {
+        Lesson lesson = lessonRepository.findById(lessonId)
+            .orElseThrow(() -> new RuntimeException("Không tìm thấy bài học"));
+
+        // Check permissions
+        UUID teacherId = lesson.getSection().getCourse().getTeacher().getId();
+        if (!teacherId.equals(currentUser.getId())) {
+            log.debug("Attachment upload denied on lesson {}: user {} is not teacher {}", lessonId, currentUser.getId(), teacherId);
+            throw new RuntimeException("Không có quyền thêm file đính kèm");
+        }
+        return lesson;
+    }
+
+    private LessonAttachment saveAttachment(Lesson lesson, User currentUser,
+                                            com.example.lms.controller.FileUploadController.FileUploadResponse uploadResponse,
+                                            String fileType, Integer displayOrder) {
+        // Set display order
+        if (displayOrder == null) {
+            Integer maxOrder = attachmentRepository.findMaxDisplayOrderByLessonId(lesson.getId());
+            displayOrder = (maxOrder != null) ? maxOrder + 1 : 0;
+        }
 
         // Create attachment
         LessonAttachment attachment = LessonAttachment.builder()
@@ -80,11 +127,12 @@ public class LessonAttachmentService {
             .fileName(uploadResponse.getFileName())
             .originalFileName(uploadResponse.getOriginalFileName())
             .fileUrl(uploadResponse.getFileUrl())
+            .blobHash(uploadResponse.getChecksum())
             .fileSize(uploadResponse.getFileSize())
             .contentType(uploadResponse.getContentType())
             .fileType(fileType)
             .displayOrder(displayOrder)
-            .uploadedBy(currentUser)
+            .uploadedBy(userService.resolvePrincipal(currentUser))
             .build();
 
         return attachmentRepository.save(attachment);
@@ -96,8 +144,7 @@ public class LessonAttachmentService {
 
         // Check permissions
         Course course = lesson.getSection().getCourse();
-        boolean hasAccess = course.getTeacher().getId().equals(currentUser.getId()) ||
-                           course.getEnrolledStudents().contains(currentUser);
+        boolean hasAccess = courseAccessService.canView(course, currentUser);
 
         if (!hasAccess) {
             throw new RuntimeException("Không có quyền truy cập file đính kèm");
@@ -116,6 +163,7 @@ public class LessonAttachmentService {
         }
 
         attachmentRepository.delete(attachment);
+        fileUploadService.releaseFile(attachment.getFileUrl());
     }
 
     public LessonAttachment reorderAttachment(UUID attachmentId, User currentUser, Integer newDisplayOrder) {
@@ -136,11 +184,14 @@ public class LessonAttachmentService {
             throw new RuntimeException("File không được để trống");
         }
 
-        if (file.getSize() > 100 * 1024 * 1024) { // 100MB limit
+        if (file.getSize() > MAX_FILE_SIZE) {
             throw new RuntimeException("Kích thước file vượt quá giới hạn cho phép: 100MB");
         }
 
-        String fileName = file.getOriginalFilename();
+        validateFileName(file.getOriginalFilename());
+    }
+
+    private void validateFileName(String fileName) {
         if (fileName == null || fileName.trim().isEmpty()) {
             throw new RuntimeException("Tên file không hợp lệ");
         }
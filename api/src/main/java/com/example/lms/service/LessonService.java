@@ -10,6 +10,7 @@ import com.example.lms.entity.User;
 import com.example.lms.repository.AssignmentRepository;
 import com.example.lms.repository.LessonAssignmentRepository;
 import com.example.lms.repository.LessonRepository;
+import com.example.lms.repository.QuizRepository;
 import com.example.lms.repository.SectionRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -27,6 +28,12 @@ public class LessonService {
     private final AssignmentRepository assignmentRepository;
     private final LessonAssignmentRepository lessonAssignmentRepository;
     private final QuizService quizService;
+    private final CourseCounterService courseCounterService;
+    private final CourseContentCache courseContentCache;
+    private final CourseAccessService courseAccessService;
+    private final FileUploadService fileUploadService;
+    private final QuizSnapshotCache quizSnapshotCache;
+    private final QuizRepository quizRepository;
 
     public Lesson createLesson(UUID sectionId, User currentUser, com.example.lms.controller.LessonController.CreateLessonRequest request) {
         Section section = sectionRepository.findById(sectionId)
@@ -58,6 +65,8 @@ public class LessonService {
                 .build();
 
         lesson = lessonRepository.save(lesson);
+        courseCounterService.lessonAdded(section.getCourse().getId());
+        courseContentCache.invalidate(section.getCourse().getId());
 
         // Create Quiz entity if lesson type is QUIZ
         if (lessonType == Lesson.LessonType.QUIZ) {
@@ -114,6 +123,7 @@ public class LessonService {
             lesson.setOrderIndex(request.getOrderIndex());
         }
 
+        courseContentCache.invalidate(lesson.getSection().getCourse().getId());
         return lessonRepository.save(lesson);
     }
 
@@ -128,7 +138,16 @@ public class LessonService {
 
         // Approval workflow removed: allow deleting lessons regardless of status
 
+        // Quizzes go with the lesson, so count them before deleting
+        long quizzes = quizRepository.countByLessonId(lessonId);
+        UUID courseId = lesson.getSection().getCourse().getId();
+
         lessonRepository.delete(lesson);
+        // Attachments go with the lesson; their stored files are released with them
+        lesson.getAttachments().forEach(attachment -> fileUploadService.releaseFile(attachment.getFileUrl()));
+        courseCounterService.lessonRemoved(courseId, quizzes);
+        courseContentCache.invalidate(courseId);
+        quizSnapshotCache.invalidateLesson(lessonId);
     }
 
     public Lesson getLessonById(UUID lessonId, User currentUser) {
@@ -137,8 +156,7 @@ public class LessonService {
         
         // Check if user has access (is teacher or enrolled student)
         Course course = lesson.getSection().getCourse();
-        boolean hasAccess = course.getTeacher().getId().equals(currentUser.getId()) ||
-                          course.getEnrolledStudents().contains(currentUser);
+        boolean hasAccess = courseAccessService.canView(course, currentUser);
         
         if (!hasAccess) {
             throw new RuntimeException("Bạn không có quyền truy cập bài học này");
@@ -186,6 +204,10 @@ public class LessonService {
 
         lessonAssignmentRepository.save(lessonAssignment);
 
+        courseCounterService.assignmentAdded(section.getCourse().getId());
+        courseCounterService.lessonAdded(section.getCourse().getId());
+        courseContentCache.invalidate(section.getCourse().getId());
+
         return savedLesson;
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.example.lms.entity.QuestionOption;
 import com.example.lms.entity.User;
 import com.example.lms.repository.QuestionRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,9 +14,12 @@ import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class QuestionService {
 
     private final QuestionRepository questionRepository;
+    private final UserService userService;
+    private final QuizSnapshotCache quizSnapshotCache;
 
     @Transactional
     public Question createQuestion(User creator, String content, String correctOption,
@@ -37,7 +41,7 @@ public class QuestionService {
                 .difficulty(difficulty)
                 .tags(tags)
                 .status(Question.Status.ACTIVE)  // Default to ACTIVE instead of DRAFT
-                .createdBy(creator)
+                .createdBy(userService.resolvePrincipal(creator))
                 .course(course)
                 .build();
 
@@ -94,6 +98,7 @@ public class QuestionService {
             question.getOptions().add(option);
         }
 
+        quizSnapshotCache.invalidateQuestion(id);
         return questionRepository.save(question);
     }
 
@@ -104,21 +109,22 @@ public class QuestionService {
             throw new RuntimeException("Không có quyền xóa câu hỏi này");
         }
         questionRepository.delete(question);
+        quizSnapshotCache.invalidateQuestion(id);
     }
 
     public List<Question> getQuestionsByCourse(UUID courseId, String status, User currentUser) {
         // TODO: Add permission check - verify user has access to this course
-        System.out.println("🔍 Getting questions for course: " + courseId + " with status: " + status);
+        log.debug("Getting questions for course: {} with status: {}", courseId, status);
         
         try {
             Question.Status statusEnum = Question.Status.valueOf(status.toUpperCase());
             List<Question> questions = questionRepository.findByCourseIdAndStatus(courseId, statusEnum);
-            System.out.println("✅ Found " + questions.size() + " questions for course " + courseId);
+            log.debug("Found {} questions for course {}", questions.size(), courseId);
             return questions;
         } catch (IllegalArgumentException e) {
             // Invalid status, return active questions for this course
             List<Question> questions = questionRepository.findByCourseIdAndStatus(courseId, Question.Status.ACTIVE);
-            System.out.println("✅ Found " + questions.size() + " ACTIVE questions for course " + courseId + " (fallback)");
+            log.debug("Found {} ACTIVE questions for course {} (fallback)", questions.size(), courseId);
             return questions;
         }
     }
@@ -0,0 +1,83 @@
+package com.example.lms.service;
+
+import com.example.lms.entity.Quiz;
+import com.example.lms.repository.QuizAttemptRepository;
+import com.example.lms.repository.QuizRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Burst mode for scheduled quizzes. Shortly before a quiz's start date every enrolled
+ * student gets a READY attempt with its items already inserted, so the rush of starts when
+ * the quiz opens only claims rows (see {@link QuizService#startAttempt}). Students are
+ * prepared a chunk per transaction, so the job holds one connection for a short time only.
+ * Prepared attempts nobody claimed are deleted once their quiz has closed, or for a quiz
+ * without an end date {@code ready-retention-minutes} after it opened; students who start
+ * later get a new attempt as usual.
+ */
+@Service
+@Slf4j
+public class QuizAttemptPreparer {
+
+    private final QuizService quizService;
+    private final QuizRepository quizRepository;
+    private final QuizAttemptRepository attemptRepository;
+
+    private final Duration leadTime;
+    private final Duration readyRetention;
+    private final int chunkSize;
+
+    public QuizAttemptPreparer(
+            QuizService quizService,
+            QuizRepository quizRepository,
+            QuizAttemptRepository attemptRepository,
+            @Value("${app.quiz-burst.prepare-lead-minutes:15}") long leadMinutes,
+            @Value("${app.quiz-burst.prepare-chunk-size:200}") int chunkSize,
+            @Value("${app.quiz-burst.ready-retention-minutes:60}") long readyRetentionMinutes) {
+        this.quizService = quizService;
+        this.quizRepository = quizRepository;
+        this.attemptRepository = attemptRepository;
+        this.leadTime = Duration.ofMinutes(leadMinutes);
+        this.readyRetention = Duration.ofMinutes(readyRetentionMinutes);
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.quiz-burst.prepare-interval-ms:60000}", initialDelayString = "${app.quiz-burst.prepare-interval-ms:60000}")
+    public void prepare() {
+        Instant now = Instant.now();
+
+        Set<UUID> lessons = new HashSet<>();
+        for (Quiz quiz : quizRepository.findStartingBetween(now, now.plus(leadTime))) {
+            UUID lessonId = quiz.getLesson().getId();
+            if (!lessons.add(lessonId)) {
+                continue; // duplicate quiz of the lesson; the most recent one is prepared
+            }
+            UUID courseId = quiz.getLesson().getSection().getCourse().getId();
+            try {
+                int prepared = 0;
+                int created;
+                do {
+                    created = quizService.prepareAttempts(lessonId, courseId, chunkSize);
+                    prepared += created;
+                } while (created == chunkSize);
+                if (prepared > 0) {
+                    log.info("Prepared {} attempts for quiz {} opening at {}", prepared, quiz.getId(), quiz.getStartDate());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not prepare attempts for the quiz of lesson {}, retrying next run", lessonId, e);
+            }
+        }
+
+        for (UUID quizId : attemptRepository.findQuizIdsWithStaleReadyAttempts(now, now.minus(readyRetention))) {
+            quizService.discardPreparedAttempts(quizId);
+        }
+    }
+}
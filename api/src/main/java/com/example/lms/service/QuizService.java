@@ -8,26 +8,41 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import java.util.Arrays;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class QuizService {
 
+    private static final String TIME_UP = "Đã hết thời gian làm bài";
+
     private final QuizRepository quizRepository;
     private final QuizAttemptRepository attemptRepository;
     private final QuestionRepository questionRepository;
     private final QuestionService questionService;
     private final QuizQuestionRepository quizQuestionRepository;
+    private final CourseCounterService courseCounterService;
+    private final QuizSnapshotCache quizSnapshotCache;
+    private final AnswerAutosaveBuffer answerAutosaveBuffer;
+    private final AttemptDeadlineWheel attemptDeadlineWheel;
+    private final TransactionTemplate transactionTemplate;
     private final ObjectMapper objectMapper;
+
+    @Value("${app.quiz-expiry.auto-submit:true}")
+    private boolean autoSubmitOnExpiry;
     
     @PersistenceContext
     private EntityManager entityManager;
@@ -56,7 +71,10 @@ public class QuizService {
                     .endDate(endDate)
                     .build();
 
-            return quizRepository.save(quiz);
+            quiz = quizRepository.save(quiz);
+            courseCounterService.quizAdded(lesson.getSection().getCourse().getId());
+            quizSnapshotCache.invalidateLesson(lesson.getId());
+            return quiz;
         } catch (Exception e) {
             throw new RuntimeException("Failed to create quiz", e);
         }
@@ -66,7 +84,7 @@ public class QuizService {
         // First check if there are multiple quizzes
         List<Quiz> allQuizzes = quizRepository.findAllByLessonId(lessonId);
         if (allQuizzes.size() > 1) {
-            System.err.println("⚠️ WARNING: Found " + allQuizzes.size() + " quizzes for lesson " + lessonId + ". Using the most recent one.");
+            log.warn("Found {} quizzes for lesson {}. Using the most recent one.", allQuizzes.size(), lessonId);
             // Return the most recent one
             return quizRepository.findFirstByLessonIdOrderByCreatedAtDesc(lessonId)
                     .orElseThrow(() -> new RuntimeException("Quiz not found for lesson"));
@@ -81,6 +99,50 @@ public class QuizService {
         return getQuizQuestions(quiz);
     }
 
+    /**
+     * Immutable snapshot of the lesson's quiz, compiled once and served from memory until a
+     * quiz or question write invalidates it. Used for question delivery and attempt start.
+     */
+    @Transactional(readOnly = true)
+    public CompiledQuiz getCompiledQuiz(UUID lessonId) {
+        CompiledQuiz cached = quizSnapshotCache.get(lessonId);
+        if (cached != null) {
+            return cached;
+        }
+
+        QuizSnapshotCache.Version version = quizSnapshotCache.currentVersion(lessonId);
+        CompiledQuiz compiled = compileQuiz(lessonId);
+        quizSnapshotCache.put(lessonId, version, compiled);
+        return compiled;
+    }
+
+    /**
+     * Two queries: the most recent quiz of the lesson (see {@link #getQuizByLessonId}),
+     * then its questions with their options
+     */
+    private CompiledQuiz compileQuiz(UUID lessonId) {
+        Quiz quiz = quizRepository.findFirstByLessonIdOrderByCreatedAtDesc(lessonId)
+                .orElseThrow(() -> new RuntimeException("Quiz not found for lesson"));
+
+        List<CompiledQuestion> questions = new ArrayList<>();
+        Map<UUID, String> correctOptions = new HashMap<>();
+        for (QuizQuestion quizQuestion : quizQuestionRepository.findWithQuestionsAndOptionsByQuizId(quiz.getId())) {
+            Question question = quizQuestion.getQuestion();
+            List<CompiledOption> options = question.getOptions().stream()
+                    .sorted(Comparator.comparing(QuestionOption::getOptionKey))
+                    .map(option -> new CompiledOption(option.getId(), option.getOptionKey(), option.getContent(), option.getDisplayOrder()))
+                    .toList();
+            questions.add(new CompiledQuestion(question.getId(), question.getContent(), question.getDifficulty(),
+                    question.getTags(), question.getStatus(), options));
+            correctOptions.put(question.getId(), question.getCorrectOption());
+        }
+        log.debug("Compiled quiz {} for lesson {} with {} questions", quiz.getId(), lessonId, questions.size());
+
+        return new CompiledQuiz(quiz.getId(), lessonId, quiz.getTimeLimitMinutes(), quiz.getMaxAttempts(),
+                quiz.getPassingScore(), quiz.getShuffleQuestions(), quiz.getShuffleOptions(),
+                quiz.getStartDate(), quiz.getEndDate(), List.copyOf(questions), Map.copyOf(correctOptions));
+    }
+
     @Transactional
     public Quiz updateQuizQuestions(UUID lessonId, List<UUID> questionIds) {
         Quiz quiz = getQuizByLessonId(lessonId);
@@ -108,7 +170,9 @@ public class QuizService {
             }
             
             long totalQuestions = quizQuestionRepository.countByQuizId(quiz.getId());
-            System.out.println("✅ Updated quiz " + lessonId + " with " + totalQuestions + " questions using QuizQuestion table");
+            log.debug("Updated quiz {} with {} questions using QuizQuestion table", lessonId, totalQuestions);
+            quizSnapshotCache.invalidateLesson(lessonId);
+            discardPreparedAttempts(quiz.getId());
             
             return quiz;
         } catch (Exception e) {
@@ -118,71 +182,126 @@ public class QuizService {
 
     @Transactional
     public QuizAttempt startAttempt(User student, UUID lessonId) {
-        Quiz quiz = getQuizByLessonId(lessonId);
+        CompiledQuiz quiz = getCompiledQuiz(lessonId);
 
         // Check if student can start attempt
-        long submittedAttempts = attemptRepository.countSubmittedAttempts(quiz.getId(), student.getId());
-        if (submittedAttempts >= quiz.getMaxAttempts()) {
+        long submittedAttempts = attemptRepository.countSubmittedAttempts(quiz.quizId(), student.getId());
+        if (submittedAttempts >= quiz.maxAttempts()) {
             throw new RuntimeException("Đã đạt giới hạn số lần làm bài");
         }
 
         // Check if quiz is available
         Instant now = Instant.now();
-        if (quiz.getStartDate() != null && now.isBefore(quiz.getStartDate())) {
+        if (quiz.startDate() != null && now.isBefore(quiz.startDate())) {
             throw new RuntimeException("Quiz chưa mở");
         }
-        if (quiz.getEndDate() != null && now.isAfter(quiz.getEndDate())) {
+        if (quiz.endDate() != null && now.isAfter(quiz.endDate())) {
             throw new RuntimeException("Quiz đã đóng");
         }
 
-        // Get questions
-        List<Question> questions = getQuizQuestions(quiz);
+        // Burst mode: claim the attempt prepared for this student before the quiz opened
+        List<QuizAttempt> prepared = attemptRepository.lockReadyAttempts(quiz.quizId(), student.getId());
+        if (!prepared.isEmpty()) {
+            QuizAttempt attempt = prepared.get(0);
+            attempt.setStatus(QuizAttempt.Status.IN_PROGRESS);
+            attempt.setStartTime(now);
+            scheduleDeadline(attempt, quiz);
+            return attempt;
+        }
+
+        QuizAttempt attempt = attemptRepository.save(newAttempt(quiz, student, QuizAttempt.Status.IN_PROGRESS, now));
+        scheduleDeadline(attempt, quiz);
+        return attempt;
+    }
+
+    private void scheduleDeadline(QuizAttempt attempt, CompiledQuiz quiz) {
+        Instant deadline = attemptDeadline(attempt.getStartTime(), quiz.timeLimitMinutes(), quiz.endDate());
+        if (deadline != null) {
+            attemptDeadlineWheel.schedule(attempt.getId(), deadline);
+        }
+    }
+
+    /**
+     * Create READY attempts for up to {@code limit} students enrolled in the course who have
+     * none yet, so that starting the quiz when it opens only claims a row. The quiz row stays
+     * locked meanwhile, so two nodes never prepare the same students and a question change
+     * (which discards prepared attempts under the same lock) is never overtaken. Returns how
+     * many were created.
+     */
+    @Transactional
+    public int prepareAttempts(UUID lessonId, UUID courseId, int limit) {
+        quizRepository.lockById(getCompiledQuiz(lessonId).quizId());
+        // Compiled again under the lock rather than taken from the cache, which is only
+        // invalidated for good after the writing transaction has committed
+        CompiledQuiz quiz = compileQuiz(lessonId);
+        if (quiz.startDate() == null || !quiz.startDate().isAfter(Instant.now())) {
+            return 0; // no longer scheduled, or already open
+        }
+
+        List<UUID> studentIds = attemptRepository.findStudentsWithoutAttempt(courseId, quiz.quizId(), limit);
+        for (UUID studentId : studentIds) {
+            entityManager.persist(newAttempt(quiz, entityManager.getReference(User.class, studentId),
+                    QuizAttempt.Status.READY, quiz.startDate()));
+        }
+        return studentIds.size();
+    }
+
+    /**
+     * Delete the quiz's prepared attempts nobody claimed, e.g. after its questions changed
+     */
+    @Transactional
+    public int discardPreparedAttempts(UUID quizId) {
+        quizRepository.lockById(quizId);
+        attemptRepository.deleteReadyAttemptItems(quizId);
+        int discarded = attemptRepository.deleteReadyAttempts(quizId);
+        if (discarded > 0) {
+            log.debug("Discarded {} prepared attempts of quiz {}", discarded, quizId);
+        }
+        return discarded;
+    }
 
+    private QuizAttempt newAttempt(CompiledQuiz quiz, User student, QuizAttempt.Status status, Instant startTime) {
         // Shuffle if needed
-        List<UUID> questionOrder = questions.stream().map(Question::getId).collect(Collectors.toList());
-        if (Boolean.TRUE.equals(quiz.getShuffleQuestions())) {
+        List<UUID> questionOrder = quiz.questionIds();
+        if (Boolean.TRUE.equals(quiz.shuffleQuestions())) {
+            questionOrder = new ArrayList<>(questionOrder);
             Collections.shuffle(questionOrder);
         }
 
-        // Create attempt
+        // Create attempt; quiz and questions are references from the snapshot, nothing is loaded
         QuizAttempt attempt = QuizAttempt.builder()
-                .quiz(quiz)
+                .quiz(entityManager.getReference(Quiz.class, quiz.quizId()))
                 .student(student)
-                .status(QuizAttempt.Status.IN_PROGRESS)
-                .startTime(now)
-                .totalQuestions(questions.size())
+                .status(status)
+                .startTime(startTime)
+                .totalQuestions(questionOrder.size())
                 .questionOrder(questionOrder.toString())
                 .build();
 
-        // Create attempt items
+        // Create attempt items: one pass over the order, inserted in JDBC batches on flush
         for (UUID questionId : questionOrder) {
-            Question question = questions.stream()
-                    .filter(q -> q.getId().equals(questionId))
-                    .findFirst().orElseThrow();
-
             QuizAttemptItem item = QuizAttemptItem.builder()
                     .attempt(attempt)
-                    .question(question)
+                    .question(entityManager.getReference(Question.class, questionId))
                     .build();
 
             attempt.getItems().add(item);
         }
-
-        return attemptRepository.save(attempt);
+        return attempt;
     }
 
     private List<Question> getQuizQuestions(Quiz quiz) {
-        System.out.println("🔍 DEBUG: Getting questions for quiz ID: " + quiz.getId());
+        log.debug("Getting questions for quiz ID: {}", quiz.getId());
         
         // USE ONLY QuizQuestion table approach (consistent with addQuestionToQuiz)
         List<QuizQuestion> quizQuestions = quizQuestionRepository.findByQuizIdOrderByDisplayOrderAsc(quiz.getId());
-        System.out.println("🔍 DEBUG: Found " + quizQuestions.size() + " quiz-question relationships in table");
+        log.debug("Found {} quiz-question relationships in table", quizQuestions.size());
         
         List<Question> questions = quizQuestions.stream()
                 .map(QuizQuestion::getQuestion)
                 .collect(Collectors.toList());
                 
-        System.out.println("🔍 DEBUG: Returning " + questions.size() + " questions from QuizQuestion table");
+        log.debug("Returning {} questions from QuizQuestion table", questions.size());
         return questions;
     }
 
@@ -201,7 +320,7 @@ public class QuizService {
                 try {
                     return Arrays.asList(UUID.fromString(cleanJson));
                 } catch (IllegalArgumentException e) {
-                    System.err.println("❌ Invalid question ID format: " + cleanJson);
+                    log.warn("Invalid question ID format: {}", cleanJson);
                     return new ArrayList<>();
                 }
             }
@@ -220,7 +339,7 @@ public class QuizService {
                         try {
                             return UUID.fromString(id.trim());
                         } catch (IllegalArgumentException e) {
-                            System.err.println("❌ Invalid UUID in array: " + id);
+                            log.warn("Invalid UUID in array: {}", id);
                             return null;
                         }
                     })
@@ -228,29 +347,166 @@ public class QuizService {
                     .collect(Collectors.toList());
                     
         } catch (Exception e) {
-            System.err.println("❌ Failed to parse question IDs JSON: " + questionIdsJson);
-            System.err.println("❌ Error type: " + e.getClass().getSimpleName());
-            System.err.println("❌ Error message: " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Failed to parse question IDs JSON: {}", questionIdsJson, e);
             return new ArrayList<>();
         }
     }
 
-    @Transactional
+    /**
+     * Grade and close the attempt. Answers sent with the submit win over autosaved ones, and
+     * questions missing from both stay unanswered.
+     */
     public QuizAttempt submitAttempt(UUID attemptId, Map<UUID, String> answers) {
-        QuizAttempt attempt = attemptRepository.findById(attemptId)
+        // Time is up for an attempt with a deadline on this node: refused without a query,
+        // the expiry job closes it with its autosaved answers
+        if (attemptDeadlineWheel.rejectsSubmit(attemptId)) {
+            throw new RuntimeException(TIME_UP);
+        }
+
+        // Taken before the transaction starts: draining may wait for a running flush, which
+        // needs a connection of its own
+        Map<UUID, AnswerAutosaveBuffer.PendingAnswer> autosaved = answerAutosaveBuffer.drain(attemptId);
+        QuizAttempt submitted;
+        try {
+            submitted = transactionTemplate.execute(status -> gradeAttempt(attemptId, answers, autosaved));
+        } catch (RuntimeException e) {
+            answerAutosaveBuffer.restore(attemptId, autosaved);
+            throw e;
+        }
+        answerAutosaveBuffer.written(autosaved);
+        attemptDeadlineWheel.cancel(attemptId);
+        return submitted;
+    }
+
+    private QuizAttempt gradeAttempt(UUID attemptId, Map<UUID, String> answers,
+                                     Map<UUID, AnswerAutosaveBuffer.PendingAnswer> autosaved) {
+        // Locked so a submit and the expiry job never both grade the attempt
+        QuizAttempt attempt = attemptRepository.lockById(attemptId)
                 .orElseThrow(() -> new RuntimeException("Attempt not found"));
 
         if (attempt.getStatus() != QuizAttempt.Status.IN_PROGRESS) {
             throw new RuntimeException("Attempt đã được nộp");
         }
 
+        Instant now = Instant.now();
+        Instant deadline = attemptDeadline(attempt);
+        if (deadline != null && attemptDeadlineWheel.isLate(deadline, now)) {
+            throw new RuntimeException(TIME_UP);
+        }
+
+        grade(attempt, answers, autosaved, now, answerKey(List.of(attempt)));
+        return attemptRepository.save(attempt);
+    }
+
+    /**
+     * Close IN_PROGRESS attempts whose time is up, with their saved answers: graded and
+     * submitted, or with {@code app.quiz-expiry.auto-submit=false} marked EXPIRED ungraded.
+     * One transaction for the batch; attempts submitted meanwhile are skipped. Returns how
+     * many were closed.
+     */
+    public int expireAttempts(List<UUID> attemptIds) {
+        Map<UUID, Map<UUID, AnswerAutosaveBuffer.PendingAnswer>> autosaved = new HashMap<>();
+        for (UUID attemptId : attemptIds) {
+            autosaved.put(attemptId, answerAutosaveBuffer.drain(attemptId));
+        }
+        List<UUID> closed = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<QuizAttempt> attempts = attemptRepository.lockInProgress(attemptIds);
+                if (attempts.isEmpty()) {
+                    return;
+                }
+                attemptRepository.fetchItems(attempts.stream().map(QuizAttempt::getId).toList());
+
+                Instant now = Instant.now();
+                Map<UUID, String> correctOptions = autoSubmitOnExpiry ? answerKey(attempts) : Map.of();
+                for (QuizAttempt attempt : attempts) {
+                    Instant deadline = attemptDeadline(attempt);
+                    Instant endTime = deadline != null && deadline.isBefore(now) ? deadline : now;
+                    Map<UUID, AnswerAutosaveBuffer.PendingAnswer> saved = autosaved.get(attempt.getId());
+                    if (autoSubmitOnExpiry) {
+                        grade(attempt, null, saved, endTime, correctOptions);
+                    } else {
+                        applyAutosaved(attempt, saved);
+                        attempt.setStatus(QuizAttempt.Status.EXPIRED);
+                        attempt.setEndTime(endTime);
+                    }
+                    closed.add(attempt.getId());
+                }
+            });
+        } catch (RuntimeException e) {
+            autosaved.forEach(answerAutosaveBuffer::restore);
+            throw e;
+        }
+        // Answers of attempts submitted meanwhile were not written
+        closed.forEach(attemptId -> answerAutosaveBuffer.written(autosaved.get(attemptId)));
+        return closed.size();
+    }
+
+    /**
+     * When the attempt's time is up: its time limit after it started or the quiz's end date,
+     * whichever is first; null for an attempt without either
+     */
+    public static Instant attemptDeadline(Instant startTime, Integer timeLimitMinutes, Instant endDate) {
+        Instant deadline = timeLimitMinutes != null && timeLimitMinutes > 0
+                ? startTime.plus(Duration.ofMinutes(timeLimitMinutes))
+                : null;
+        if (endDate != null && (deadline == null || endDate.isBefore(deadline))) {
+            deadline = endDate;
+        }
+        return deadline;
+    }
+
+    private static Instant attemptDeadline(QuizAttempt attempt) {
+        return attemptDeadline(attempt.getStartTime(), attempt.getQuiz().getTimeLimitMinutes(), attempt.getQuiz().getEndDate());
+    }
+
+    private void applyAutosaved(QuizAttempt attempt, Map<UUID, AnswerAutosaveBuffer.PendingAnswer> autosaved) {
+        for (QuizAttemptItem item : attempt.getItems()) {
+            AnswerAutosaveBuffer.PendingAnswer saved = autosaved.get(item.getQuestion().getId());
+            if (saved != null) {
+                item.setSelectedOption(saved.selectedOption());
+                if (saved.timeSpentSeconds() != null) {
+                    item.setTimeSpentSeconds(saved.timeSpentSeconds());
+                }
+            }
+        }
+    }
+
+    /**
+     * Correct options of every question in the attempts, in one query. Read from the database
+     * on each grading rather than from the per-node quiz snapshot, so an answer key edited on
+     * another node is never graded against in its old form.
+     */
+    private Map<UUID, String> answerKey(Collection<QuizAttempt> attempts) {
+        Set<UUID> questionIds = new HashSet<>();
+        for (QuizAttempt attempt : attempts) {
+            attempt.getItems().forEach(item -> questionIds.add(item.getQuestion().getId()));
+        }
+        if (questionIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<UUID, String> correctOptions = new HashMap<>();
+        for (QuestionRepository.AnswerKey key : questionRepository.findAnswerKeys(questionIds)) {
+            correctOptions.put(key.getId(), key.getCorrectOption());
+        }
+        return correctOptions;
+    }
+
+    private void grade(QuizAttempt attempt, Map<UUID, String> answers,
+                       Map<UUID, AnswerAutosaveBuffer.PendingAnswer> autosaved, Instant endTime,
+                       Map<UUID, String> correctOptions) {
+        applyAutosaved(attempt, autosaved);
+
         // Update answers
         for (QuizAttemptItem item : attempt.getItems()) {
-            String selectedOption = answers.get(item.getQuestion().getId());
+            UUID questionId = item.getQuestion().getId();
+            String correctOption = correctOptions.get(questionId);
+            String selectedOption = answers != null && answers.containsKey(questionId)
+                    ? answers.get(questionId)
+                    : item.getSelectedOption();
             item.setSelectedOption(selectedOption);
-            item.setIsCorrect(selectedOption != null &&
-                            selectedOption.equals(item.getQuestion().getCorrectOption()));
+            item.setIsCorrect(selectedOption != null && selectedOption.equals(correctOption));
             if (item.getIsCorrect()) {
                 attempt.setCorrectAnswers(attempt.getCorrectAnswers() + 1);
             }
@@ -261,17 +517,15 @@ public class QuizService {
         attempt.setScore(score);
         attempt.setIsPassed(score >= attempt.getQuiz().getPassingScore());
         attempt.setStatus(QuizAttempt.Status.SUBMITTED);
-        attempt.setEndTime(Instant.now());
-
-        return attemptRepository.save(attempt);
+        attempt.setEndTime(endTime);
     }
 
     public List<QuizAttempt> getStudentAttempts(UUID quizId, UUID studentId) {
-        return attemptRepository.findByQuizIdAndStudentId(quizId, studentId);
+        return attemptRepository.findByQuizIdAndStudentIdAndStatusNot(quizId, studentId, QuizAttempt.Status.READY);
     }
 
     public List<QuizAttempt> getQuizAttempts(UUID quizId) {
-        return attemptRepository.findByQuizIdOrderByCreatedAtDesc(quizId);
+        return attemptRepository.findByQuizIdAndStatusNotOrderByCreatedAtDesc(quizId, QuizAttempt.Status.READY);
     }
 
     /**
@@ -333,7 +587,7 @@ public class QuizService {
      */
     public QuizStatistics getQuizStatistics(UUID lessonId) {
         Quiz quiz = getQuizByLessonId(lessonId);
-        List<QuizAttempt> allAttempts = attemptRepository.findByQuizIdOrderByCreatedAtDesc(quiz.getId());
+        List<QuizAttempt> allAttempts = getQuizAttempts(quiz.getId());
 
         // Calculate statistics
         int totalAttempts = allAttempts.size();
@@ -398,6 +652,41 @@ public class QuizService {
         return stats;
     }
 
+    /**
+     * Compiled, immutable view of a quiz: settings plus its questions in display order. The
+     * answer key is kept apart from the questions, which are served to students as they are.
+     */
+    public record CompiledQuiz(UUID quizId, UUID lessonId, Integer timeLimitMinutes, Integer maxAttempts,
+                               Integer passingScore, Boolean shuffleQuestions, Boolean shuffleOptions,
+                               Instant startDate, Instant endDate, List<CompiledQuestion> questions,
+                               Map<UUID, String> correctOptions) {
+
+        public List<UUID> questionIds() {
+            return questions.stream().map(CompiledQuestion::id).toList();
+        }
+
+        public String correctOption(UUID questionId) {
+            return correctOptions.get(questionId);
+        }
+    }
+
+    public record CompiledQuestion(UUID id, String content, Question.Difficulty difficulty, String tags,
+                                   Question.Status status, List<CompiledOption> options) {}
+
+    /**
+     * Compiled question with its correct option, for teachers and admins
+     */
+    public record AnsweredQuestion(UUID id, String content, Question.Difficulty difficulty, String tags,
+                                   Question.Status status, String correctOption, List<CompiledOption> options) {
+
+        public static AnsweredQuestion of(CompiledQuestion question, String correctOption) {
+            return new AnsweredQuestion(question.id(), question.content(), question.difficulty(), question.tags(),
+                    question.status(), correctOption, question.options());
+        }
+    }
+
+    public record CompiledOption(UUID id, String optionKey, String content, Integer displayOrder) {}
+
     // DTOs for enhanced results
     @Data
     @Builder
@@ -496,7 +785,9 @@ public class QuizService {
                 .randomTags(quiz.getRandomTags())
                 .createdAt(quiz.getCreatedAt())
                 .updatedAt(quiz.getUpdatedAt())
-                .totalAttempts(quiz.getAttempts() != null ? quiz.getAttempts().size() : 0)
+                .totalAttempts(quiz.getAttempts() != null
+                        ? (int) quiz.getAttempts().stream().filter(a -> a.getStatus() != QuizAttempt.Status.READY).count()
+                        : 0)
                 .averageScore(calculateAverageScore(quiz.getAttempts()))
                 .build();
     }
@@ -519,7 +810,7 @@ public class QuizService {
             Quiz quiz = quizRepository.findByLessonId(lessonId)
                     .orElseThrow(() -> new RuntimeException("Quiz not found for lesson"));
             
-            System.out.println("🔍 Adding question " + questionId + " to quiz " + quiz.getId());
+            log.debug("Adding question {} to quiz {}", questionId, quiz.getId());
             
             // Check if question already exists in this quiz
             boolean exists = quizQuestionRepository.findByQuizIdAndQuestionId(quiz.getId(), questionId).isPresent();
@@ -545,7 +836,9 @@ public class QuizService {
             quizQuestionRepository.save(quizQuestion);
             
             long totalQuestions = quizQuestionRepository.countByQuizId(quiz.getId());
-            System.out.println("✅ Added question to quiz. Total questions: " + totalQuestions);
+            log.debug("Added question to quiz. Total questions: {}", totalQuestions);
+            quizSnapshotCache.invalidateLesson(lessonId);
+            discardPreparedAttempts(quiz.getId());
             
             return quiz;
         } catch (Exception e) {
@@ -559,7 +852,7 @@ public class QuizService {
             Quiz quiz = quizRepository.findByLessonId(lessonId)
                     .orElseThrow(() -> new RuntimeException("Quiz not found for lesson"));
             
-            System.out.println("🔍 DEBUG - Removing question " + questionId + " from quiz " + quiz.getId());
+            log.debug("Removing question {} from quiz {}", questionId, quiz.getId());
             
             // Find and delete the QuizQuestion relationship
             QuizQuestion quizQuestion = quizQuestionRepository.findByQuizIdAndQuestionId(quiz.getId(), questionId)
@@ -570,8 +863,9 @@ public class QuizService {
             // Get updated count
             long totalQuestions = quizQuestionRepository.countByQuizId(quiz.getId());
             
-            System.out.println("✅ Removed question " + questionId + " from quiz " + quiz.getId());
-            System.out.println("   Remaining questions in quiz: " + totalQuestions);
+            log.debug("Removed question {} from quiz {}, {} remaining", questionId, quiz.getId(), totalQuestions);
+            quizSnapshotCache.invalidateLesson(lessonId);
+            discardPreparedAttempts(quiz.getId());
             
             return quiz;
         } catch (Exception e) {
@@ -585,16 +879,18 @@ public class QuizService {
             Quiz quiz = quizRepository.findByLessonId(lessonId)
                     .orElseThrow(() -> new RuntimeException("Quiz not found for lesson"));
             
-            System.out.println("🔍 DEBUG - Deleting quiz " + quiz.getId() + " with all questions");
+            log.debug("Deleting quiz {} with all questions", quiz.getId());
             
             // Delete all QuizQuestion relationships (cascade should handle this)
             List<QuizQuestion> quizQuestions = quizQuestionRepository.findByQuizIdOrderByDisplayOrderAsc(quiz.getId());
-            System.out.println("🔍 DEBUG - Found " + quizQuestions.size() + " questions to delete");
+            log.debug("Found {} questions to delete", quizQuestions.size());
             
             // Delete the quiz (cascade will delete quiz questions and attempts)
             quizRepository.delete(quiz);
+            courseCounterService.quizRemoved(quiz.getLesson().getSection().getCourse().getId());
+            quizSnapshotCache.invalidateLesson(lessonId);
             
-            System.out.println("✅ Deleted quiz " + quiz.getId() + " and all associated data");
+            log.debug("Deleted quiz {} and all associated data", quiz.getId());
         } catch (Exception e) {
             throw new RuntimeException("Failed to delete quiz", e);
         }
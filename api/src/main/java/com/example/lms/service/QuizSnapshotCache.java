@@ -0,0 +1,171 @@
+package com.example.lms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of compiled quizzes, keyed and versioned per lesson like
+ * {@link CourseContentCache}. Quiz writes invalidate their lesson. A question edit
+ * invalidates every cached quiz containing the question and also bumps a global
+ * question version, so a snapshot that was being compiled while the edit happened is
+ * not cached even though it was not yet indexed under the question.
+ * <p>
+ * Invalidation only reaches this node, so entries also expire after {@code ttl-seconds}:
+ * another node's edit is served from here for at most that long. Lesson versions are taken
+ * from a clock that never goes back, so versions of lessons that are no longer cached can be
+ * dropped once they are older than the TTL.
+ */
+@Component
+public class QuizSnapshotCache {
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> versions = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<UUID>> lessonsByQuestion = new ConcurrentHashMap<>();
+    private final AtomicLong questionVersion = new AtomicLong();
+    private final AtomicLong versionClock = new AtomicLong();
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public QuizSnapshotCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.quiz-snapshot-cache.max-size:1000}") int maxSize,
+            @Value("${app.quiz-snapshot-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.hits = Counter.builder("lms.quiz.snapshot.cache")
+                .tag("result", "hit")
+                .description("Quiz snapshots served from memory")
+                .register(meterRegistry);
+        this.misses = Counter.builder("lms.quiz.snapshot.cache")
+                .tag("result", "miss")
+                .description("Quiz snapshots compiled from the database")
+                .register(meterRegistry);
+        meterRegistry.gauge("lms.quiz.snapshot.cache.size", entries, Map::size);
+    }
+
+    /**
+     * Version to read before compiling a snapshot and pass back to {@link #put}
+     */
+    public Version currentVersion(UUID lessonId) {
+        return new Version(versions.getOrDefault(lessonId, 0L), questionVersion.get());
+    }
+
+    public QuizService.CompiledQuiz get(UUID lessonId) {
+        Entry entry = entries.get(lessonId);
+        if (entry == null || entry.version() != versions.getOrDefault(lessonId, 0L)
+                || entry.expiresAt() < System.currentTimeMillis()) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.quiz();
+    }
+
+    public void put(UUID lessonId, Version version, QuizService.CompiledQuiz quiz) {
+        if (!version.equals(currentVersion(lessonId))) {
+            return; // a write landed while this snapshot was compiling
+        }
+        if (entries.size() >= maxSize) {
+            evictExpired();
+        }
+        // Still full: drop arbitrary entries, they are cheap to recompile
+        Iterator<UUID> it = entries.keySet().iterator();
+        while (entries.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        for (QuizService.CompiledQuestion question : quiz.questions()) {
+            lessonsByQuestion.computeIfAbsent(question.id(), id -> ConcurrentHashMap.newKeySet()).add(lessonId);
+        }
+        entries.put(lessonId, new Entry(version.lesson(), quiz, System.currentTimeMillis() + ttlMillis));
+        // Re-check: an edit between the version check and the index update must not be missed
+        if (!version.equals(currentVersion(lessonId))) {
+            entries.remove(lessonId);
+        }
+    }
+
+    /**
+     * Invalidate a lesson's quiz after a quiz write. Inside a transaction the version is
+     * bumped again after commit, so a snapshot compiled between the write and the commit
+     * is not served either.
+     */
+    public void invalidateLesson(UUID lessonId) {
+        if (lessonId == null) {
+            return;
+        }
+        bumpLesson(lessonId);
+        afterCommit(() -> bumpLesson(lessonId));
+    }
+
+    /**
+     * Invalidate every cached quiz that contains the question, after it was edited or deleted
+     */
+    public void invalidateQuestion(UUID questionId) {
+        if (questionId == null) {
+            return;
+        }
+        bumpQuestion(questionId);
+        afterCommit(() -> bumpQuestion(questionId));
+    }
+
+    private void bumpLesson(UUID lessonId) {
+        // Milliseconds, made unique: a dropped version is never handed out again
+        versions.put(lessonId, versionClock.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis())));
+        entries.remove(lessonId);
+        if (versions.size() > maxSize) {
+            evictExpired();
+        }
+    }
+
+    /**
+     * Drop expired snapshots, versions older than the TTL of lessons no longer cached, and
+     * index entries of lessons no longer cached
+     */
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt() < now);
+        versions.entrySet().removeIf(e -> e.getValue() < now - ttlMillis && !entries.containsKey(e.getKey()));
+        lessonsByQuestion.values().removeIf(lessons -> {
+            lessons.removeIf(lessonId -> !entries.containsKey(lessonId));
+            return lessons.isEmpty();
+        });
+    }
+
+    private void bumpQuestion(UUID questionId) {
+        questionVersion.incrementAndGet();
+        Set<UUID> lessons = lessonsByQuestion.remove(questionId);
+        if (lessons != null) {
+            lessons.forEach(this::bumpLesson);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+    }
+
+    public record Version(long lesson, long question) {}
+
+    private record Entry(long version, QuizService.CompiledQuiz quiz, long expiresAt) {}
+}
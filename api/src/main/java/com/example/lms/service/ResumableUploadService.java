@@ -0,0 +1,389 @@
+package com.example.lms.service;
+
+import com.example.lms.controller.FileUploadController;
+import com.example.lms.entity.UploadSession;
+import com.example.lms.entity.User;
+import com.example.lms.repository.UploadSessionChunkRepository;
+import com.example.lms.repository.UploadSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Chunked, resumable uploads behind the signed-URL flow. A session accepts fixed-size chunks
+ * at any offset and in any order, possibly in parallel, and is completed by a verify step
+ * that joins the chunks, hashes the file and hands it to the {@link BlobStore} under its
+ * final name. The upload URL carries an HMAC-signed token with an expiry,
+ * so a client can resume after a failure by asking which chunks are still missing.
+ * <p>
+ * Each chunk is kept as its own object in {@link BlobStorage}, so behind a load balancer the
+ * chunks of one upload may reach different nodes; the node that completes it joins them in
+ * its local staging area, never under the public upload directory. Completion stores the
+ * file and marks the session in one transaction, then removes the chunks, and may be
+ * retried: a completed session answers with its file again.
+ */
+@Service
+@Slf4j
+public class ResumableUploadService {
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadSessionChunkRepository uploadSessionChunkRepository;
+    private final BlobStore blobStore;
+    private final TransactionTemplate transactionTemplate;
+
+    private final String baseUrl;
+    private final SecretKeySpec signingKey;
+    private final int chunkSize;
+    private final Duration sessionTtl;
+
+    public ResumableUploadService(
+            UploadSessionRepository uploadSessionRepository,
+            UploadSessionChunkRepository uploadSessionChunkRepository,
+            BlobStore blobStore,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.base-url:http://localhost:8088}") String baseUrl,
+            @Value("${app.upload.signing-secret:${app.jwt.secret}}") String signingSecret,
+            @Value("${app.upload.chunk-size:8388608}") int chunkSize,
+            @Value("${app.upload.session-ttl-hours:24}") long sessionTtlHours) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.uploadSessionChunkRepository = uploadSessionChunkRepository;
+        this.blobStore = blobStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.baseUrl = baseUrl;
+        this.signingKey = new SecretKeySpec(signingSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.chunkSize = chunkSize;
+        this.sessionTtl = Duration.ofHours(sessionTtlHours);
+    }
+
+    /**
+     * Session plus the signed token that authorizes writing to it
+     */
+    public record Session(UploadSession session, String token) {}
+
+    public record Progress(UploadSession session, List<Integer> missingChunks) {}
+
+    /**
+     * Start a session; nothing is stored until its chunks arrive
+     */
+    public Session createSession(User owner, String originalFileName, String storedFileName, String subDir, long fileSize) {
+        if (fileSize <= 0) {
+            throw new RuntimeException("Kích thước file không hợp lệ");
+        }
+        UploadSession session = uploadSessionRepository.save(UploadSession.builder()
+                .createdBy(owner.getId())
+                .originalFileName(originalFileName)
+                .storedFileName(storedFileName)
+                .subDir(subDir)
+                .fileSize(fileSize)
+                .chunkSize(chunkSize)
+                .expiresAt(Instant.now().plus(sessionTtl))
+                .build());
+        return new Session(session, sign(session));
+    }
+
+    public String uploadUrl(String token) {
+        return baseUrl + "/api/v1/uploads/signed/" + token;
+    }
+
+    public String fileUrl(UploadSession session) {
+        return baseUrl + "/api/v1/files/" + filePath(session);
+    }
+
+    /**
+     * Write the chunk starting at {@code offset}. Offsets must be chunk-aligned and each chunk
+     * complete (chunk size, or the remainder for the last one); a retried chunk replaces
+     * the stored one.
+     */
+    public Progress writeChunk(String token, User currentUser, long offset, long contentLength, InputStream body) {
+        UploadSession session = resolve(token, currentUser);
+        if (offset < 0 || offset >= session.getFileSize() || offset % session.getChunkSize() != 0) {
+            throw new RuntimeException("Upload-Offset không hợp lệ: phải là bội số của " + session.getChunkSize());
+        }
+        int chunkIndex = (int) (offset / session.getChunkSize());
+        long expected = Math.min(session.getChunkSize(), session.getFileSize() - offset);
+        if (contentLength >= 0 && contentLength != expected) {
+            throw new RuntimeException("Kích thước phần " + chunkIndex + " phải là " + expected + " bytes");
+        }
+
+        BlobStore.StagedBlob chunk;
+        try {
+            chunk = blobStore.write(body, expected);
+        } catch (IOException e) {
+            throw new RuntimeException("Lỗi khi ghi phần " + chunkIndex + ": " + e.getMessage(), e);
+        }
+        try {
+            if (chunk.size() != expected) {
+                throw new RuntimeException("Phần " + chunkIndex + " chưa đầy đủ: nhận " + chunk.size() + "/" + expected + " bytes");
+            }
+            blobStore.putChunk(session.getId(), chunkIndex, chunk.file());
+        } catch (IOException e) {
+            throw new RuntimeException("Lỗi khi ghi phần " + chunkIndex + ": " + e.getMessage(), e);
+        } finally {
+            blobStore.discard(chunk); // already gone once stored
+        }
+
+        // Recorded only after the chunk is stored, so a crash mid-chunk just means a resend
+        uploadSessionChunkRepository.record(session.getId(), chunkIndex);
+        return progress(session);
+    }
+
+    public Progress getProgress(String token, User currentUser) {
+        return progress(resolve(token, currentUser));
+    }
+
+    /**
+     * Verify that every chunk arrived, join and hash them, check the file against the client's
+     * SHA-256 when given, and store it under its final name. Fails if a recorded chunk is no
+     * longer in storage. Retrying after a failure, or after a success whose answer was lost,
+     * is safe.
+     */
+    public FileUploadController.FileUploadResponse complete(String token, User currentUser, String expectedSha256) {
+        UploadSession session = verify(token, currentUser);
+        if (session.getStatus() == UploadSession.Status.COMPLETED) {
+            return response(session);
+        }
+        long received = uploadSessionChunkRepository.countBySessionId(session.getId());
+        if (received != session.getTotalChunks()) {
+            throw new RuntimeException("Upload chưa hoàn tất: còn thiếu " + (session.getTotalChunks() - received) + " phần");
+        }
+
+        // Joined and hashed without a transaction; a 2GB file takes a while
+        BlobStore.StagedBlob staged = assemble(session);
+        if (expectedSha256 != null && !expectedSha256.isBlank() && !expectedSha256.trim().equalsIgnoreCase(staged.sha256())) {
+            blobStore.discard(staged);
+            throw new RuntimeException("Checksum không khớp, file đã tải lên bị lỗi");
+        }
+
+        // Written to storage first, so the transaction only takes the row locks
+        blobStore.upload(staged);
+
+        UUID sessionId = session.getId();
+        FileUploadController.FileUploadResponse response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                UploadSession current = uploadSessionRepository.lockById(sessionId)
+                        .orElseThrow(() -> new RuntimeException("Không tìm thấy phiên upload"));
+                if (current.getStatus() == UploadSession.Status.COMPLETED) {
+                    blobStore.discard(staged); // a concurrent completion stored it
+                    return response(current);
+                }
+                blobStore.store(staged, filePath(current), current.getOriginalFileName(), null, current.getCreatedBy());
+
+                current.setSha256(staged.sha256());
+                current.setStatus(UploadSession.Status.COMPLETED);
+                current.setCompletedAt(Instant.now());
+                uploadSessionRepository.save(current);
+                uploadSessionChunkRepository.deleteBySessionId(sessionId);
+                return response(current);
+            });
+        } catch (RuntimeException e) {
+            blobStore.discard(staged);
+            throw e;
+        }
+        deleteChunks(session);
+        return response;
+    }
+
+    /**
+     * Join the session's stored chunks into one staging file, hashed
+     */
+    private BlobStore.StagedBlob assemble(UploadSession session) {
+        try {
+            Path file = blobStore.newStagingFile();
+            try {
+                try (OutputStream out = Files.newOutputStream(file)) {
+                    for (int i = 0; i < session.getTotalChunks(); i++) {
+                        try (InputStream in = blobStore.getChunk(session.getId(), i)) {
+                            in.transferTo(out);
+                        }
+                    }
+                }
+                BlobStore.StagedBlob staged = blobStore.stage(file);
+                if (staged.size() != session.getFileSize()) {
+                    throw new RuntimeException("Upload bị lỗi: nhận " + staged.size() + "/" + session.getFileSize() + " bytes");
+                }
+                return staged;
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("Dữ liệu của một phần đã bị mất, vui lòng tải lên lại", e);
+        } catch (IOException e) {
+            throw new RuntimeException("Lỗi khi hoàn tất upload: " + e.getMessage(), e);
+        }
+    }
+
+    private void deleteChunks(UploadSession session) {
+        try {
+            blobStore.deleteChunks(session.getId(), session.getTotalChunks());
+        } catch (IOException e) {
+            log.warn("Could not delete the chunks of upload {}", session.getId(), e);
+        }
+    }
+
+    private FileUploadController.FileUploadResponse response(UploadSession session) {
+        return FileUploadController.FileUploadResponse.builder()
+                .fileName(session.getStoredFileName())
+                .originalFileName(session.getOriginalFileName())
+                .fileUrl(fileUrl(session))
+                .fileSize(session.getFileSize())
+                .checksum(session.getSha256())
+                .uploadedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Whether {@code fileId} names an upload session (signed-URL uploads use the session id as file id)
+     */
+    public boolean isSession(String fileId) {
+        UUID sessionId = parseSessionId(fileId);
+        return sessionId != null && uploadSessionRepository.existsById(sessionId);
+    }
+
+    /**
+     * True when {@code fileId} is a completed session of this user whose file is at {@code fileUrl}
+     */
+    public boolean isCompleted(String fileId, String fileUrl, User currentUser) {
+        UUID sessionId = parseSessionId(fileId);
+        if (sessionId == null) {
+            return false;
+        }
+        return uploadSessionRepository.findById(sessionId)
+                .filter(session -> session.getStatus() == UploadSession.Status.COMPLETED)
+                .filter(session -> session.getCreatedBy().equals(currentUser.getId()))
+                .filter(session -> fileUrl(session).equals(fileUrl))
+                .filter(session -> blobStore.findByPath(filePath(session)).isPresent())
+                .isPresent();
+    }
+
+    /**
+     * Drop sessions that expired before completing, with their stored chunks
+     */
+    @Scheduled(fixedDelayString = "${app.upload.session-cleanup-interval-ms:3600000}")
+    public void cleanupExpired() {
+        for (UploadSession session : uploadSessionRepository.findByStatusAndExpiresAtBefore(UploadSession.Status.UPLOADING, Instant.now())) {
+            try {
+                blobStore.deleteChunks(session.getId(), session.getTotalChunks());
+            } catch (IOException e) {
+                log.warn("Could not delete expired upload {}", session.getId(), e);
+                continue;
+            }
+            uploadSessionChunkRepository.deleteBySessionId(session.getId());
+            uploadSessionRepository.delete(session);
+        }
+    }
+
+    private static UUID parseSessionId(String fileId) {
+        try {
+            return fileId != null ? UUID.fromString(fileId) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private Progress progress(UploadSession session) {
+        Set<Integer> received = new HashSet<>(uploadSessionChunkRepository.findChunkIndexes(session.getId()));
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < session.getTotalChunks(); i++) {
+            if (!received.contains(i)) {
+                missing.add(i);
+            }
+        }
+        return new Progress(session, missing);
+    }
+
+    /**
+     * Token format: {@code <sessionId>.<expiresEpochSeconds>.<base64url HMAC-SHA256>}
+     */
+    private String sign(UploadSession session) {
+        String payload = session.getId() + "." + session.getExpiresAt().getEpochSecond();
+        return payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(hmac(payload));
+    }
+
+    private UploadSession resolve(String token, User currentUser) {
+        UploadSession session = verify(token, currentUser);
+        if (session.getStatus() != UploadSession.Status.UPLOADING) {
+            throw new RuntimeException("Phiên upload đã hoàn tất");
+        }
+        return session;
+    }
+
+    /**
+     * Session named by a valid, unexpired token of this user, whatever its status
+     */
+    private UploadSession verify(String token, User currentUser) {
+        int signatureStart = token != null ? token.lastIndexOf('.') : -1;
+        int expiryStart = signatureStart > 0 ? token.lastIndexOf('.', signatureStart - 1) : -1;
+        if (expiryStart <= 0) {
+            throw new RuntimeException("Token upload không hợp lệ");
+        }
+        String payload = token.substring(0, signatureStart);
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(signatureStart + 1));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Token upload không hợp lệ");
+        }
+        if (!MessageDigest.isEqual(hmac(payload), signature)) {
+            throw new RuntimeException("Token upload không hợp lệ");
+        }
+
+        UUID sessionId;
+        long expiresAt;
+        try {
+            sessionId = UUID.fromString(token.substring(0, expiryStart));
+            expiresAt = Long.parseLong(token.substring(expiryStart + 1, signatureStart));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Token upload không hợp lệ");
+        }
+        if (Instant.now().getEpochSecond() > expiresAt) {
+            throw new RuntimeException("Token upload đã hết hạn");
+        }
+
+        UploadSession session = uploadSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy phiên upload"));
+        if (!session.getCreatedBy().equals(currentUser.getId())) {
+            throw new RuntimeException("Không có quyền với phiên upload này");
+        }
+        return session;
+    }
+
+    private byte[] hmac(String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(signingKey);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String filePath(UploadSession session) {
+        return session.getSubDir() + "/" + session.getStoredFileName();
+    }
+}
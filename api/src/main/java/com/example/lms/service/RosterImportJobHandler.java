@@ -0,0 +1,69 @@
+package com.example.lms.service;
+
+import com.example.lms.dto.response.BulkEnrollmentResponse;
+import com.example.lms.entity.ImportJob;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Background Excel roster import. Each chunk of emails is enrolled and checkpointed in
+ * one transaction; a resumed job skips the emails it already committed.
+ */
+@Component
+@RequiredArgsConstructor
+public class RosterImportJobHandler implements ImportJobService.Handler {
+
+    private final CourseService courseService;
+    private final ExcelProcessingService excelProcessingService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public ImportJob.JobType type() {
+        return ImportJob.JobType.ROSTER_IMPORT;
+    }
+
+    @Override
+    public Object run(ImportJob job, Path input, ImportJobService.Checkpoint checkpoint) throws Exception {
+        UUID courseId = job.getCourseId();
+        courseService.checkBulkEnrollment(courseId);
+
+        long alreadyCommitted = job.getProcessedItems();
+        long[] seen = {0};
+        List<String> buffer = new ArrayList<>(CourseService.BULK_ENROLLMENT_CHUNK_SIZE);
+        excelProcessingService.extractEmailsFromExcel(input, job.getFileName(), email -> {
+            if (seen[0]++ < alreadyCommitted) {
+                return;
+            }
+            buffer.add(email);
+            if (buffer.size() == CourseService.BULK_ENROLLMENT_CHUNK_SIZE) {
+                commitChunk(courseId, buffer, checkpoint);
+                buffer.clear();
+            }
+        });
+        if (!buffer.isEmpty()) {
+            commitChunk(courseId, buffer, checkpoint);
+        }
+
+        BulkEnrollmentResponse response = BulkEnrollmentResponse.builder().build();
+        for (String json : checkpoint.results()) {
+            BulkEnrollmentResponse chunk = objectMapper.readValue(json, BulkEnrollmentResponse.class);
+            chunk.getSuccessfulEnrollments().forEach(response::addSuccess);
+            chunk.getErrors().forEach(error -> response.addError(error.getEmail(), error.getErrorType(), error.getErrorMessage()));
+        }
+        return response;
+    }
+
+    private void commitChunk(UUID courseId, List<String> emails, ImportJobService.Checkpoint checkpoint) {
+        checkpoint.commit(emails.size(), () -> {
+            BulkEnrollmentResponse chunk = BulkEnrollmentResponse.builder().build();
+            courseService.enrollStudentChunk(courseId, emails, chunk);
+            return new ImportJobService.ChunkResult(chunk.getSuccessCount(), chunk.getErrorCount(), chunk);
+        });
+    }
+}
@@ -4,11 +4,14 @@ import com.example.lms.entity.Course;
 import com.example.lms.entity.Section;
 import com.example.lms.entity.User;
 import com.example.lms.repository.CourseRepository;
+import com.example.lms.repository.LessonAttachmentRepository;
+import com.example.lms.repository.QuizRepository;
 import com.example.lms.repository.SectionRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -18,6 +21,11 @@ public class SectionService {
 
     private final SectionRepository sectionRepository;
     private final CourseRepository courseRepository;
+    private final QuizRepository quizRepository;
+    private final CourseCounterService courseCounterService;
+    private final CourseContentCache courseContentCache;
+    private final LessonAttachmentRepository lessonAttachmentRepository;
+    private final FileUploadService fileUploadService;
 
     public Section createSection(UUID courseId, User currentUser, com.example.lms.controller.SectionController.CreateSectionRequest request) {
         Course course = courseRepository.findById(courseId)
@@ -46,7 +54,10 @@ public class SectionService {
                 .course(course)
                 .build();
 
-        return sectionRepository.save(section);
+        section = sectionRepository.save(section);
+        courseCounterService.sectionAdded(courseId);
+        courseContentCache.invalidate(courseId);
+        return section;
     }
 
     public Section updateSection(UUID sectionId, User currentUser, com.example.lms.controller.SectionController.UpdateSectionRequest request) {
@@ -77,6 +88,7 @@ public class SectionService {
             section.setOrderIndex(request.getOrderIndex());
         }
 
+        courseContentCache.invalidate(section.getCourse().getId());
         return sectionRepository.save(section);
     }
 
@@ -91,6 +103,16 @@ public class SectionService {
 
         // Approval workflow removed: allow deleting regardless of status (optional: enforce ownership only)
 
+        // Lessons go with the section through the cascade, so count them before deleting
+        long lessons = section.getLessons() != null ? section.getLessons().size() : 0;
+        long quizzes = quizRepository.countBySectionId(sectionId);
+        UUID courseId = section.getCourse().getId();
+        List<String> attachmentUrls = lessonAttachmentRepository.findFileUrlsBySectionId(sectionId);
+
         sectionRepository.delete(section);
+        // Attachments go with the lessons; their stored files are released with them
+        attachmentUrls.forEach(fileUploadService::releaseFile);
+        courseCounterService.sectionRemoved(courseId, lessons, quizzes);
+        courseContentCache.invalidate(courseId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,201 @@
+package com.example.lms.service;
+
+import com.example.lms.entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, TTL-based cache of authenticated principals used by the JWT filter,
+ * so a valid token does not cost a users lookup on every request.
+ * Entries are keyed by username + token issued-at and must be invalidated
+ * whenever a user's role, status or credentials change.
+ * <p>
+ * An immutable snapshot of every column of the row is kept, and every hit builds a new
+ * principal from it, so requests never share a user object and readers of
+ * {@code @AuthenticationPrincipal User} see the same fields as a loaded row. Only the lazy
+ * enrollments are missing, so such principals are still marked as token principals: code
+ * that writes the user, or attaches it to an entity, loads it with
+ * {@link UserService#resolvePrincipal}.
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    // Auth epoch recorded on this node after a role, status or credential change
+    private final Map<String, Integer> changedEpochs = new ConcurrentHashMap<>();
+
+    private final long ttlMillis;
+    private final int maxSize;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public UserPrincipalCache(
+            MeterRegistry meterRegistry,
+            @Value("${app.auth.principal-cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${app.auth.principal-cache.max-size:10000}") int maxSize) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxSize = maxSize;
+        this.hits = Counter.builder("lms.auth.principal.cache")
+                .tag("result", "hit")
+                .description("Principal lookups served without a database query")
+                .register(meterRegistry);
+        this.misses = Counter.builder("lms.auth.principal.cache")
+                .tag("result", "miss")
+                .description("Principal lookups that went to the database")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("lms.auth.principal.cache.evictions")
+                .description("Entries removed because of expiry, size limit or invalidation")
+                .register(meterRegistry);
+        meterRegistry.gauge("lms.auth.principal.cache.size", entries, Map::size);
+    }
+
+    /**
+     * New principal built from the cached snapshot, or null
+     */
+    public User get(String username, long issuedAt) {
+        Key key = new Key(username, issuedAt);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt() < System.currentTimeMillis()) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.principal().toUser();
+    }
+
+    /**
+     * Cache a snapshot of the user; returns a principal built from it, like {@link #get}
+     */
+    public User put(String username, long issuedAt, User user) {
+        if (entries.size() >= maxSize) {
+            evictExpired();
+        }
+        // Still full: drop arbitrary entries, they are cheap to reload
+        Iterator<Key> it = entries.keySet().iterator();
+        while (entries.size() >= maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+        Principal principal = Principal.of(user);
+        entries.put(new Key(username, issuedAt), new Entry(principal, System.currentTimeMillis() + ttlMillis));
+        return principal.toUser();
+    }
+
+    /**
+     * Whether a token minted with the given auth epoch still reflects the user's
+     * role and status, as far as this node knows.
+     */
+    public boolean isEpochCurrent(String username, int tokenEpoch) {
+        Integer changed = changedEpochs.get(username);
+        return changed == null || tokenEpoch >= changed;
+    }
+
+    /**
+     * Invalidate after a security-relevant change; call after {@link User#bumpAuthEpoch()}
+     * so self-contained tokens minted before the change stop being trusted.
+     */
+    public void invalidate(User user) {
+        changedEpochs.merge(user.getUsername(), user.getAuthEpoch() != null ? user.getAuthEpoch() : 0, Math::max);
+        invalidate(user.getUsername());
+    }
+
+    /**
+     * Invalidate a user that no longer exists; none of their tokens is trusted again.
+     */
+    public void revoke(String username) {
+        changedEpochs.put(username, Integer.MAX_VALUE);
+        invalidate(username);
+    }
+
+    /**
+     * Drop every cached principal of a user. When called inside a transaction the
+     * removal is repeated after commit so a concurrent request cannot re-cache
+     * the pre-update row.
+     */
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        removeUser(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeUser(username);
+                }
+            });
+        }
+    }
+
+    private void removeUser(String username) {
+        entries.keySet().removeIf(key -> {
+            if (key.username().equals(username)) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(e -> {
+            if (e.getValue().expiresAt() < now) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private record Key(String username, long issuedAt) {}
+
+    private record Entry(Principal principal, long expiresAt) {}
+
+    private record Principal(UUID id, String username, String email, String password, String fullName,
+                             User.Role role, boolean enabled, Instant createdAt, Instant updatedAt, int authEpoch) {
+
+        static Principal of(User user) {
+            return new Principal(user.getId(), user.getUsername(), user.getEmail(), user.getPassword(),
+                    user.getFullName(), user.getRole(), Boolean.TRUE.equals(user.getEnabled()),
+                    user.getCreatedAt(), user.getUpdatedAt(), user.getAuthEpoch() != null ? user.getAuthEpoch() : 0);
+        }
+
+        User toUser() {
+            return User.builder()
+                    .id(id)
+                    .username(username)
+                    .email(email)
+                    .password(password)
+                    .fullName(fullName)
+                    .role(role)
+                    .enabled(enabled)
+                    .createdAt(createdAt)
+                    .updatedAt(updatedAt)
+                    .authEpoch(authEpoch)
+                    .tokenPrincipal(true)
+                    .build();
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.lms.service;
 
+import com.example.lms.dto.CursorPage;
 import com.example.lms.entity.User;
 import com.example.lms.repository.UserRepository;
+import com.example.lms.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -21,6 +24,7 @@ public class UserService implements UserDetailsService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserPrincipalCache principalCache;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -71,6 +75,7 @@ public class UserService implements UserDetailsService {
         if (!userRepository.existsById(user.getId())) {
             throw new RuntimeException("Không tìm thấy user với ID: " + user.getId());
         }
+        principalCache.invalidate(user.getUsername());
         return userRepository.save(user);
     }
 
@@ -78,6 +83,7 @@ public class UserService implements UserDetailsService {
         if (!userRepository.existsById(userId)) {
             throw new RuntimeException("Không tìm thấy user với ID: " + userId);
         }
+        userRepository.findById(userId).ifPresent(user -> principalCache.revoke(user.getUsername()));
         userRepository.deleteById(userId);
     }
 
@@ -102,6 +108,8 @@ public class UserService implements UserDetailsService {
         }
 
         user.setPassword(passwordEncoder.encode(newPassword));
+        user.bumpAuthEpoch();
+        principalCache.invalidate(user);
         userRepository.save(user);
     }
 
@@ -109,6 +117,8 @@ public class UserService implements UserDetailsService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy user"));
         user.setEnabled(true);
+        user.bumpAuthEpoch();
+        principalCache.invalidate(user);
         userRepository.save(user);
     }
 
@@ -116,6 +126,8 @@ public class UserService implements UserDetailsService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy user"));
         user.setEnabled(false);
+        user.bumpAuthEpoch();
+        principalCache.invalidate(user);
         userRepository.save(user);
     }
 
@@ -128,6 +140,26 @@ public class UserService implements UserDetailsService {
         return userRepository.findAll(pageable);
     }
 
+    /**
+     * Keyset page of users, newest first
+     */
+    public CursorPage<User> getAllUsersAfter(String cursor, int limit, String search, boolean includeTotal) {
+        limit = CursorPage.clampLimit(limit);
+        String term = search != null ? search.trim() : "";
+
+        java.time.Instant createdAt = KeysetCursor.MAX_INSTANT;
+        UUID id = KeysetCursor.MAX_ID;
+        if (!KeysetCursor.isFirstPage(cursor)) {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            createdAt = position.instantKey();
+            id = position.id();
+        }
+
+        List<User> users = userRepository.findUsersAfter(term, createdAt, id, PageRequest.of(0, limit + 1));
+        Long total = includeTotal ? userRepository.countUsersMatching(term) : null;
+        return CursorPage.of(users, limit, user -> KeysetCursor.encode(user.getCreatedAt(), user.getId()), total);
+    }
+
     public User createUser(com.example.lms.controller.UserController.CreateUserRequest request) {
         if (userRepository.existsByUsername(request.getUsername())) {
             throw new RuntimeException("Username đã tồn tại: " + request.getUsername());
@@ -156,6 +188,16 @@ public class UserService implements UserDetailsService {
         return userRepository.save(user);
     }
 
+    /**
+     * Full user row for a principal; token and cached principals carry just id, username, role and status.
+     */
+    public User resolvePrincipal(User principal) {
+        if (principal == null || !principal.isTokenPrincipal()) {
+            return principal;
+        }
+        return getUserById(principal.getId());
+    }
+
     public User getUserById(UUID userId) {
         return userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy user với ID: " + userId));
@@ -189,6 +231,8 @@ public class UserService implements UserDetailsService {
             user.setEnabled(request.getEnabled());
         }
 
+        user.bumpAuthEpoch();
+        principalCache.invalidate(user);
         return userRepository.save(user);
     }
 
@@ -198,6 +242,8 @@ public class UserService implements UserDetailsService {
 
     public void changePassword(User user, String newPassword) {
         user.setPassword(passwordEncoder.encode(newPassword));
+        user.bumpAuthEpoch();
+        principalCache.invalidate(user);
         userRepository.save(user);
     }
 
@@ -210,6 +256,8 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy user với ID: " + userId));
         
         user.setEnabled(!user.getEnabled());
+        user.bumpAuthEpoch();
+        principalCache.invalidate(user);
         return userRepository.save(user);
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.example.lms.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque cursor for keyset (seek) pagination: the sort key of the last row of a page
+ * plus its id as tie-breaker. Clients only pass it back; the format may change.
+ */
+public record KeysetCursor(String key, UUID id) {
+
+    /** Upper bounds used to start a descending scan */
+    public static final Instant MAX_INSTANT = Instant.parse("9999-12-31T23:59:59Z");
+    public static final LocalDateTime MAX_LOCAL_DATE_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    public static final UUID MAX_ID = new UUID(-1L, -1L);
+
+    /** Lower bounds used to start an ascending scan */
+    public static final UUID MIN_ID = new UUID(0L, 0L);
+
+    public static String encode(Object key, UUID id) {
+        // id first: it has a fixed length, so the key may contain any character
+        String raw = id + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new KeysetCursor(raw.substring(separator + 1), UUID.fromString(raw.substring(0, separator)));
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            throw new RuntimeException("Cursor không hợp lệ");
+        }
+    }
+
+    /**
+     * True when no cursor was given, i.e. the first page of a keyset scan
+     */
+    public static boolean isFirstPage(String cursor) {
+        return cursor == null || cursor.isBlank();
+    }
+
+    public Instant instantKey() {
+        try {
+            return Instant.parse(key);
+        } catch (java.time.format.DateTimeParseException e) {
+            throw new RuntimeException("Cursor không hợp lệ");
+        }
+    }
+
+    public LocalDateTime localDateTimeKey() {
+        try {
+            return LocalDateTime.parse(key);
+        } catch (java.time.format.DateTimeParseException e) {
+            throw new RuntimeException("Cursor không hợp lệ");
+        }
+    }
+}
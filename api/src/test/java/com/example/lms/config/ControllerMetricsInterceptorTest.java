@@ -0,0 +1,67 @@
+package com.example.lms.config;
+
+import com.example.lms.controller.DocumentController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ControllerMetricsInterceptorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final QueryCounter queryCounter = new QueryCounter();
+    private ControllerMetricsInterceptor interceptor;
+    private HandlerMethod handler;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        interceptor = new ControllerMetricsInterceptor(meterRegistry);
+        ReflectionTestUtils.setField(interceptor, "nPlusOneThreshold", 20);
+        handler = new HandlerMethod(mock(DocumentController.class),
+                DocumentController.class.getMethod("getSupportedFormats"));
+    }
+
+    @Test
+    void countsStatementsOfTheRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/documents/formats");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, handler);
+        queryCounter.inspect("select 1");
+        queryCounter.inspect("select 2");
+        interceptor.afterCompletion(request, response, handler, null);
+
+        assertThat(queries()).isEqualTo(2);
+        assertThat(QueryCounter.stop()).isZero();
+    }
+
+    @Test
+    void asyncRequestReleasesTheThreadCounterAndAddsTheDispatchThatCompletesIt() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/documents/upload/stream");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, handler);
+        queryCounter.inspect("select 1");
+        interceptor.afterConcurrentHandlingStarted(request, response, handler);
+
+        // The request thread serves other requests meanwhile without counting for this one
+        queryCounter.inspect("select from another request");
+        assertThat(QueryCounter.stop()).isZero();
+
+        interceptor.preHandle(request, response, handler);
+        queryCounter.inspect("select 2");
+        interceptor.afterCompletion(request, response, handler, null);
+
+        assertThat(queries()).isEqualTo(2);
+    }
+
+    private double queries() {
+        return meterRegistry.get("lms.controller.db.queries").summary().totalAmount();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.lms.controller;
+
+import com.example.lms.entity.FileBlob;
+import com.example.lms.service.BlobStorage;
+import com.example.lms.service.BlobStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Range header handling of {@link FileServeController}, on a 10-byte file
+ */
+@ExtendWith(MockitoExtension.class)
+class FileServeControllerTest {
+
+    private static final String CONTENT = "0123456789";
+
+    @Mock
+    private BlobStore blobStore;
+
+    @Mock
+    private BlobStorage blobStorage;
+
+    @TempDir
+    Path uploadDir;
+
+    private FileServeController controller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = uploadDir.resolve("documents/2024/05/notes.txt");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, CONTENT);
+        controller = new FileServeController(blobStore, blobStorage);
+        ReflectionTestUtils.setField(controller, "uploadDir", uploadDir.toString());
+    }
+
+    @Test
+    void noRangeSendsTheWholeFile() throws Exception {
+        MockHttpServletResponse response = serve(null);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void singleRangeSendsThoseBytes() throws Exception {
+        MockHttpServletResponse response = serve("bytes=2-5");
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(response.getContentLengthLong()).isEqualTo(4);
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    void openAndSuffixRangesAreClampedToTheFile() throws Exception {
+        assertThat(serve("bytes=7-").getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-9/10");
+        assertThat(serve("bytes=-3").getContentAsString()).isEqualTo("789");
+        assertThat(serve("bytes=8-100").getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 8-9/10");
+    }
+
+    @Test
+    void severalRangesAreSentAsMultipart() throws Exception {
+        MockHttpServletResponse response = serve("bytes=0-1,5-6");
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        assertThat(response.getContentAsString())
+                .contains("Content-Range: bytes 0-1/10\r\n\r\n01")
+                .contains("Content-Range: bytes 5-6/10\r\n\r\n56");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "bytes=10-",        // starts at the end
+            "bytes=20-30",      // beyond the end
+            "bytes=5-2",        // end before start
+            "bytes=abc",        // not a range
+            "items=0-5",        // unknown unit
+            "bytes=0-9,0-9",    // overlapping ranges larger than the file
+            "bytes=0-5,3-9"
+    })
+    void unsatisfiableRangeIsAnswered416(String range) throws Exception {
+        MockHttpServletResponse response = serve(range);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void tooManyRangesAreRefused() throws Exception {
+        String range = "bytes=" + "0-0,".repeat(120) + "1-1";
+
+        assertThat(serve(range).getStatus()).isEqualTo(416);
+    }
+
+    @Test
+    void staleIfRangeSendsTheWholeFile() throws Exception {
+        MockHttpServletRequest request = request("bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"old-etag\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        serve(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void matchingIfRangeSendsTheRange() throws Exception {
+        String etag = serve(null).getHeader(HttpHeaders.ETAG);
+        MockHttpServletRequest request = request("bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        serve(request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("2345");
+    }
+
+    @Test
+    void remoteBlobRangeIsValidatedAgainstTheBlobSize() throws Exception {
+        String hash = "ab".repeat(32);
+        when(blobStore.findBlobByPath("videos/2024/05/lecture.mp4")).thenReturn(Optional.of(
+                FileBlob.builder().hash(hash).size(10).createdAt(Instant.now()).build()));
+        when(blobStore.key(hash)).thenReturn("ab/" + hash);
+
+        MockHttpServletRequest request = request("bytes=10-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.serve("videos", "2024", "05", "lecture.mp4", request, response);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+        verify(blobStorage, never()).range(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void remoteBlobRangeIsReadFromStorage() throws Exception {
+        String hash = "cd".repeat(32);
+        when(blobStore.findBlobByPath("videos/2024/05/lecture.mp4")).thenReturn(Optional.of(
+                FileBlob.builder().hash(hash).size(10).createdAt(Instant.now()).build()));
+        when(blobStore.key(hash)).thenReturn("cd/" + hash);
+        when(blobStorage.range("cd/" + hash, 4, 3))
+                .thenReturn(new ByteArrayInputStream("456".getBytes(StandardCharsets.US_ASCII)));
+
+        MockHttpServletRequest request = request("bytes=4-6");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.serve("videos", "2024", "05", "lecture.mp4", request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 4-6/10");
+        assertThat(response.getContentAsString()).isEqualTo("456");
+    }
+
+    private MockHttpServletResponse serve(String range) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        serve(request(range), response);
+        return response;
+    }
+
+    private void serve(MockHttpServletRequest request, MockHttpServletResponse response) throws Exception {
+        controller.serve("documents", "2024", "05", "notes.txt", request, response);
+    }
+
+    private static MockHttpServletRequest request(String range) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/files/documents/2024/05/notes.txt");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        return request;
+    }
+}
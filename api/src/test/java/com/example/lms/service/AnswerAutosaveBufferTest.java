@@ -0,0 +1,97 @@
+package com.example.lms.service;
+
+import com.example.lms.repository.QuizAttemptRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Autosaves around the attempt's deadline
+ */
+@ExtendWith(MockitoExtension.class)
+class AnswerAutosaveBufferTest {
+
+    @Mock
+    private QuizAttemptRepository attemptRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final UUID attemptId = UUID.randomUUID();
+    private final UUID studentId = UUID.randomUUID();
+    private final UUID questionId = UUID.randomUUID();
+    private AnswerAutosaveBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new AnswerAutosaveBuffer(attemptRepository, jdbcTemplate, transactionManager,
+                new SimpleMeterRegistry(), 100, 10);
+    }
+
+    @Test
+    void saveWithinGraceIsBuffered() {
+        startedMinutesAgo(30, 5);
+
+        buffer.save(attemptId, studentId, questionId, "B", 30L);
+
+        assertThat(buffer.drain(attemptId)).containsKey(questionId);
+    }
+
+    @Test
+    void saveAfterDeadlineAndGraceIsRefused() {
+        startedMinutesAgo(30, 31);
+
+        assertThatThrownBy(() -> buffer.save(attemptId, studentId, questionId, "B", 30L))
+                .hasMessage("Đã hết thời gian làm bài");
+        assertThat(buffer.drain(attemptId)).isEmpty();
+    }
+
+    @Test
+    void saveToAnotherStudentsAttemptIsRefused() {
+        startedMinutesAgo(30, 5);
+
+        assertThatThrownBy(() -> buffer.save(attemptId, UUID.randomUUID(), questionId, "B", 30L))
+                .hasMessage("Không có quyền lưu bài làm này");
+    }
+
+    private void startedMinutesAgo(int timeLimitMinutes, long minutesAgo) {
+        Instant startTime = Instant.now().minus(Duration.ofMinutes(minutesAgo));
+        when(attemptRepository.findInProgressOwner(attemptId)).thenReturn(Optional.of(
+                new QuizAttemptRepository.InProgressOwner() {
+                    @Override
+                    public UUID getStudentId() {
+                        return studentId;
+                    }
+
+                    @Override
+                    public Instant getStartTime() {
+                        return startTime;
+                    }
+
+                    @Override
+                    public Integer getTimeLimitMinutes() {
+                        return timeLimitMinutes;
+                    }
+
+                    @Override
+                    public Instant getEndDate() {
+                        return null;
+                    }
+                }));
+    }
+}
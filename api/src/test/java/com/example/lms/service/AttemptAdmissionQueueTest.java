@@ -0,0 +1,143 @@
+package com.example.lms.service;
+
+import com.example.lms.service.AttemptAdmissionQueue.Admission;
+import com.example.lms.service.AttemptAdmissionQueue.Result;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttemptAdmissionQueueTest {
+
+    private final UUID lesson = UUID.randomUUID();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void startsBeyondTheLimitAreQueuedInArrivalOrder() {
+        AttemptAdmissionQueue queue = queue(2, 100, 30, 5);
+        UUID third = UUID.randomUUID();
+        UUID fourth = UUID.randomUUID();
+
+        assertThat(queue.tryAdmit(UUID.randomUUID(), lesson).result()).isEqualTo(Result.ADMITTED);
+        assertThat(queue.tryAdmit(UUID.randomUUID(), lesson).result()).isEqualTo(Result.ADMITTED);
+        assertThat(queue.tryAdmit(third, lesson)).isEqualTo(new Admission(Result.QUEUED, 1, 2));
+        assertThat(queue.tryAdmit(fourth, lesson)).isEqualTo(new Admission(Result.QUEUED, 2, 2));
+
+        // Retrying keeps the place
+        assertThat(queue.tryAdmit(third, lesson).position()).isEqualTo(1);
+        assertThat(queue.tryAdmit(fourth, lesson).position()).isEqualTo(2);
+        assertThat(count("admitted")).isEqualTo(2);
+        assertThat(count("queued")).isEqualTo(4);
+    }
+
+    @Test
+    void freeSlotAdmitsANewcomerWhenNobodyWaits() {
+        AttemptAdmissionQueue queue = queue(1, 100, 30, 5);
+        queue.tryAdmit(UUID.randomUUID(), lesson);
+        queue.release();
+
+        assertThat(queue.tryAdmit(UUID.randomUUID(), lesson).result()).isEqualTo(Result.ADMITTED);
+        assertThat(meterRegistry.get("lms.quiz.admission.queue.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void freedSlotIsHeldForTheOldestWaitingTicket() {
+        AttemptAdmissionQueue queue = queue(1, 100, 30, 5);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        queue.tryAdmit(UUID.randomUUID(), lesson);
+        queue.tryAdmit(first, lesson);
+        queue.tryAdmit(second, lesson);
+
+        queue.release();
+
+        assertThat(queue.tryAdmit(second, lesson).result()).isEqualTo(Result.QUEUED);
+        assertThat(queue.tryAdmit(UUID.randomUUID(), lesson).result()).isEqualTo(Result.QUEUED);
+        assertThat(queue.tryAdmit(first, lesson).result()).isEqualTo(Result.ADMITTED);
+        assertThat(queue.tryAdmit(second, lesson)).isEqualTo(new Admission(Result.QUEUED, 1, 2));
+    }
+
+    @Test
+    void everyFreedSlotGoesToTheNextTicketWithoutWaitingForOthersToPoll() {
+        AttemptAdmissionQueue queue = queue(2, 100, 30, 5);
+        UUID[] waiting = {UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+        queue.tryAdmit(UUID.randomUUID(), lesson);
+        queue.tryAdmit(UUID.randomUUID(), lesson);
+        for (UUID student : waiting) {
+            queue.tryAdmit(student, lesson);
+        }
+
+        queue.release();
+        queue.release();
+
+        // The second in line is admitted even though the first has not come back yet
+        assertThat(queue.tryAdmit(waiting[1], lesson).result()).isEqualTo(Result.ADMITTED);
+        assertThat(queue.tryAdmit(waiting[2], lesson).result()).isEqualTo(Result.QUEUED);
+        assertThat(queue.tryAdmit(waiting[0], lesson).result()).isEqualTo(Result.ADMITTED);
+        queue.release();
+        assertThat(queue.tryAdmit(waiting[2], lesson).result()).isEqualTo(Result.ADMITTED);
+    }
+
+    @Test
+    void heldSlotNotClaimedInTimeGoesToTheNextInLine() throws InterruptedException {
+        AttemptAdmissionQueue queue = queue(1, 100, 30, 0);
+        UUID gone = UUID.randomUUID();
+        UUID next = UUID.randomUUID();
+        queue.tryAdmit(UUID.randomUUID(), lesson);
+        queue.tryAdmit(gone, lesson);
+        queue.tryAdmit(next, lesson);
+
+        queue.release();
+        Thread.sleep(5);
+
+        assertThat(queue.tryAdmit(next, lesson).result()).isEqualTo(Result.ADMITTED);
+        // The lapsed ticket was dropped: coming back queues it afresh
+        assertThat(queue.tryAdmit(gone, lesson)).isEqualTo(new Admission(Result.QUEUED, 1, 2));
+    }
+
+    @Test
+    void ticketNotPolledWithinItsTtlLosesItsPlace() throws InterruptedException {
+        AttemptAdmissionQueue queue = queue(1, 100, 0, 5);
+        UUID stale = UUID.randomUUID();
+        queue.tryAdmit(UUID.randomUUID(), lesson);
+        queue.tryAdmit(stale, lesson);
+
+        Thread.sleep(5);
+
+        assertThat(queue.tryAdmit(UUID.randomUUID(), lesson)).isEqualTo(new Admission(Result.QUEUED, 1, 2));
+    }
+
+    @Test
+    void fullQueueTurnsNewStudentsAway() {
+        AttemptAdmissionQueue queue = queue(1, 2, 30, 5);
+        UUID waiting = UUID.randomUUID();
+        queue.tryAdmit(UUID.randomUUID(), lesson);
+        queue.tryAdmit(waiting, lesson);
+        queue.tryAdmit(UUID.randomUUID(), lesson);
+
+        assertThat(queue.tryAdmit(UUID.randomUUID(), lesson)).isEqualTo(new Admission(Result.REJECTED, 3, 2));
+        // Students already waiting keep their place
+        assertThat(queue.tryAdmit(waiting, lesson).result()).isEqualTo(Result.QUEUED);
+        assertThat(count("rejected")).isEqualTo(1);
+    }
+
+    @Test
+    void sameStudentWaitsSeparatelyPerLesson() {
+        AttemptAdmissionQueue queue = queue(1, 100, 30, 5);
+        UUID student = UUID.randomUUID();
+        queue.tryAdmit(UUID.randomUUID(), lesson);
+
+        assertThat(queue.tryAdmit(student, lesson).position()).isEqualTo(1);
+        assertThat(queue.tryAdmit(student, UUID.randomUUID()).position()).isEqualTo(2);
+    }
+
+    private AttemptAdmissionQueue queue(int maxConcurrent, int maxQueued, long ticketTtlSeconds, long slotHoldSeconds) {
+        return new AttemptAdmissionQueue(meterRegistry, maxConcurrent, maxQueued, ticketTtlSeconds, slotHoldSeconds, 2);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("lms.quiz.admission").tag("result", result).counter().count();
+    }
+}
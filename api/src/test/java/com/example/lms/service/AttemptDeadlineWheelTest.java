@@ -0,0 +1,124 @@
+package com.example.lms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttemptDeadlineWheelTest {
+
+    private static final long TICK = 1000;
+    private static final long GRACE = 10_000;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AttemptDeadlineWheel wheel;
+    /**
+     * A tick boundary just ahead of the wheel's current tick
+     */
+    private long base;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        wheel = new AttemptDeadlineWheel(meterRegistry, TICK, 8, GRACE / 1000);
+        base = (System.currentTimeMillis() / TICK + 1) * TICK;
+    }
+
+    @Test
+    void attemptIsDueOnceItsDeadlineAndGraceHavePassed() {
+        UUID attempt = UUID.randomUUID();
+        wheel.schedule(attempt, at(5_000));
+
+        assertThat(wheel.advance(base + 5_000 + GRACE - 1)).isEmpty();
+        assertThat(wheel.advance(base + 5_000 + GRACE)).containsExactly(attempt);
+        assertThat(wheel.advance(base + 60_000)).isEmpty();
+    }
+
+    @Test
+    void cancelledAttemptIsNotDue() {
+        UUID attempt = UUID.randomUUID();
+        wheel.schedule(attempt, at(5_000));
+        wheel.cancel(attempt);
+
+        assertThat(wheel.advance(base + 60_000)).isEmpty();
+        assertThat(meterRegistry.get("lms.quiz.expiry.scheduled").gauge().value()).isZero();
+    }
+
+    @Test
+    void rescheduledAttemptIsDueOnlyAtItsNewDeadline() {
+        UUID attempt = UUID.randomUUID();
+        wheel.schedule(attempt, at(5_000));
+        wheel.schedule(attempt, at(30_000));
+
+        assertThat(wheel.advance(base + 5_000 + GRACE)).isEmpty();
+        assertThat(wheel.advance(base + 30_000 + GRACE)).containsExactly(attempt);
+    }
+
+    @Test
+    void deadlineSeveralRotationsAwayWaitsForItsTick() {
+        UUID attempt = UUID.randomUUID();
+        // 8 buckets of one second: 70s away is the bucket of +6s, eight rotations later
+        wheel.schedule(attempt, at(60_000));
+
+        List<UUID> due = new ArrayList<>();
+        for (long now = base; now < base + 60_000 + GRACE; now += TICK) {
+            due.addAll(wheel.advance(now));
+        }
+        assertThat(due).isEmpty();
+        assertThat(wheel.advance(base + 60_000 + GRACE)).containsExactly(attempt);
+    }
+
+    @Test
+    void pauseLongerThanARotationCatchesUpInOneAdvance() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID later = UUID.randomUUID();
+        wheel.schedule(first, at(1_000));
+        wheel.schedule(second, at(3_500));
+        wheel.schedule(later, at(200_000));
+
+        assertThat(wheel.advance(base + 100_000)).containsExactlyInAnyOrder(first, second);
+        assertThat(wheel.advance(base + 200_000 + GRACE)).containsExactly(later);
+    }
+
+    @Test
+    void deadlineAlreadyPastIsDueOnTheNextAdvance() {
+        wheel.advance(base + 50_000);
+        UUID attempt = UUID.randomUUID();
+        wheel.schedule(attempt, at(0));
+
+        assertThat(wheel.advance(base + 51_000)).containsExactly(attempt);
+    }
+
+    @Test
+    void submitIsRejectedOnlyAfterTheKnownDeadlineAndGrace() {
+        UUID late = UUID.randomUUID();
+        UUID inGrace = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        wheel.schedule(late, Instant.ofEpochMilli(now - GRACE - 1_000));
+        wheel.schedule(inGrace, Instant.ofEpochMilli(now - GRACE + 5_000));
+
+        assertThat(wheel.rejectsSubmit(late)).isTrue();
+        assertThat(wheel.rejectsSubmit(inGrace)).isFalse();
+        assertThat(wheel.rejectsSubmit(UUID.randomUUID())).isFalse();
+        assertThat(meterRegistry.get("lms.quiz.expiry.late.submits").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void deadlineFromTheDatabaseIsLateOnlyAfterGrace() {
+        Instant deadline = Instant.ofEpochMilli(base);
+
+        assertThat(wheel.isLate(deadline, deadline.plusMillis(GRACE))).isFalse();
+        assertThat(wheel.isLate(deadline, deadline.plusMillis(GRACE + 1))).isTrue();
+    }
+
+    private Instant at(long offsetMillis) {
+        return Instant.ofEpochMilli(base + offsetMillis);
+    }
+}
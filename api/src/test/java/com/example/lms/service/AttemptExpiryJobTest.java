@@ -0,0 +1,144 @@
+package com.example.lms.service;
+
+import com.example.lms.repository.QuizAttemptRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AttemptExpiryJobTest {
+
+    @Mock
+    private QuizService quizService;
+
+    @Mock
+    private QuizAttemptRepository attemptRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AttemptDeadlineWheel wheel;
+    private AttemptExpiryJob job;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        wheel = new AttemptDeadlineWheel(meterRegistry, 1000, 64, 10);
+        job = new AttemptExpiryJob(quizService, attemptRepository, wheel, meterRegistry, 2, 10);
+    }
+
+    @Test
+    void rebuildSchedulesOpenAttemptsThatHaveADeadline() {
+        Instant now = Instant.now();
+        UUID timed = UUID.randomUUID();
+        UUID closesAtEndDate = UUID.randomUUID();
+        UUID untimed = UUID.randomUUID();
+        List<QuizAttemptRepository.OpenAttempt> open = List.of(
+                openAttempt(timed, now.minus(Duration.ofMinutes(30)), 10, null),
+                openAttempt(closesAtEndDate, now, null, now.minus(Duration.ofMinutes(1))),
+                openAttempt(untimed, now.minus(Duration.ofHours(5)), null, null));
+        when(attemptRepository.findOpenAttempts()).thenReturn(open);
+
+        job.rebuild();
+
+        assertThat(wheel.advance(now.toEpochMilli())).containsExactlyInAnyOrder(timed, closesAtEndDate);
+        assertThat(meterRegistry.get("lms.quiz.expiry.scheduled").gauge().value()).isZero();
+    }
+
+    @Test
+    void tickClosesDueAttemptsInBatches() {
+        List<UUID> due = scheduleOverdue(5);
+        when(quizService.expireAttempts(anyList())).thenAnswer(call -> ((List<?>) call.getArgument(0)).size());
+
+        job.tick();
+
+        List<List<UUID>> batches = capturedBatches(3);
+        assertThat(batches).extracting(List::size).containsExactly(2, 2, 1);
+        assertThat(batches.stream().flatMap(List::stream)).containsExactlyInAnyOrderElementsOf(due);
+        assertThat(meterRegistry.get("lms.quiz.expiry.closed").counter().count()).isEqualTo(5);
+    }
+
+    @Test
+    void failedBatchDoesNotStopTheOthers() {
+        scheduleOverdue(4);
+        when(quizService.expireAttempts(anyList()))
+                .thenThrow(new RuntimeException("deadlock"))
+                .thenReturn(1);
+
+        job.tick();
+
+        verify(quizService, times(2)).expireAttempts(anyList());
+        // Attempts already submitted by their student are not counted
+        assertThat(meterRegistry.get("lms.quiz.expiry.closed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void tickWithNothingDueDoesNotOpenATransaction() {
+        wheel.schedule(UUID.randomUUID(), Instant.now().plus(Duration.ofMinutes(5)));
+
+        job.tick();
+
+        verify(quizService, never()).expireAttempts(anyList());
+    }
+
+    @Test
+    void sweepClosesOverdueAttemptsFromTheDatabase() {
+        List<UUID> overdue = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        when(attemptRepository.findOverdueAttemptIds(any())).thenReturn(overdue);
+        when(quizService.expireAttempts(anyList())).thenAnswer(call -> ((List<?>) call.getArgument(0)).size());
+
+        Instant before = Instant.now().minusSeconds(10);
+        job.sweep();
+
+        ArgumentCaptor<Instant> cutoff = ArgumentCaptor.forClass(Instant.class);
+        verify(attemptRepository).findOverdueAttemptIds(cutoff.capture());
+        // Grace is left to the students' own submits
+        assertThat(cutoff.getValue()).isBetween(before, Instant.now().minusSeconds(10));
+        assertThat(capturedBatches(2).stream().flatMap(List::stream)).containsExactlyElementsOf(overdue);
+    }
+
+    private List<UUID> scheduleOverdue(int count) {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            UUID id = UUID.randomUUID();
+            wheel.schedule(id, Instant.now().minus(Duration.ofMinutes(1)));
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<UUID>> capturedBatches(int calls) {
+        ArgumentCaptor<List<UUID>> batch = ArgumentCaptor.forClass(List.class);
+        verify(quizService, times(calls)).expireAttempts(batch.capture());
+        return batch.getAllValues().stream().map(List::copyOf).toList();
+    }
+
+    private static QuizAttemptRepository.OpenAttempt openAttempt(UUID id, Instant startTime,
+                                                                 Integer timeLimitMinutes, Instant endDate) {
+        QuizAttemptRepository.OpenAttempt attempt = mock(QuizAttemptRepository.OpenAttempt.class);
+        lenient().when(attempt.getId()).thenReturn(id); // not read for an attempt without a deadline
+        when(attempt.getStartTime()).thenReturn(startTime);
+        when(attempt.getTimeLimitMinutes()).thenReturn(timeLimitMinutes);
+        when(attempt.getEndDate()).thenReturn(endDate);
+        return attempt;
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.lms.service;
+
+import com.example.lms.entity.FileReference;
+import com.example.lms.repository.FileBlobRepository;
+import com.example.lms.repository.FileReferenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Reference counting of {@link BlobStore} against local storage, with the blob table's
+ * counts kept in memory, for uploads interleaved with the collection of the same bytes
+ */
+@ExtendWith(MockitoExtension.class)
+class BlobStoreTest {
+
+    @Mock
+    private FileBlobRepository fileBlobRepository;
+
+    @Mock
+    private FileReferenceRepository fileReferenceRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path root;
+
+    /**
+     * ref_count per blob row
+     */
+    private final Map<String, Long> refCounts = new HashMap<>();
+
+    private LocalBlobStorage storage;
+    private BlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(fileBlobRepository.acquire(anyString(), anyLong())).thenAnswer(call -> {
+            refCounts.merge(call.getArgument(0), 1L, Long::sum);
+            return 1;
+        });
+        lenient().when(fileBlobRepository.release(anyString())).thenAnswer(call ->
+                refCounts.computeIfPresent(call.getArgument(0), (hash, count) -> count - 1) != null ? 1 : 0);
+        lenient().when(fileBlobRepository.deleteIfUnreferenced(anyString())).thenAnswer(call ->
+                refCounts.remove(call.getArgument(0), 0L) ? 1 : 0);
+        lenient().when(fileBlobRepository.findUnreferencedHashes()).thenAnswer(call ->
+                refCounts.entrySet().stream().filter(e -> e.getValue() == 0).map(Map.Entry::getKey).toList());
+        lenient().when(fileReferenceRepository.save(any())).thenAnswer(call -> call.getArgument(0));
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        storage = new LocalBlobStorage(root.resolve("blobs").toString());
+        blobStore = new BlobStore(fileBlobRepository, fileReferenceRepository, storage, transactionManager,
+                root.resolve("uploads").toString());
+    }
+
+    @Test
+    void sameBytesAreStoredOnceAndCountedPerReference() throws Exception {
+        FileReference first = upload("notes", "a/1.txt");
+        FileReference second = upload("notes", "a/2.txt");
+
+        assertThat(first.getBlobHash()).isEqualTo(second.getBlobHash());
+        assertThat(refCounts).containsEntry(first.getBlobHash(), 2L);
+        assertThat(storage.exists(blobStore.key(first.getBlobHash()))).isTrue();
+        assertThat(stagingFiles()).isEmpty();
+    }
+
+    @Test
+    void releasingTheLastReferenceCollectsTheBlob() throws Exception {
+        FileReference first = upload("notes", "a/1.txt");
+        FileReference second = upload("notes", "a/2.txt");
+        String key = blobStore.key(first.getBlobHash());
+
+        releaseAndCollect(first);
+        assertThat(storage.exists(key)).isTrue();
+
+        releaseAndCollect(second);
+        assertThat(storage.exists(key)).isFalse();
+        assertThat(refCounts).doesNotContainKey(first.getBlobHash());
+    }
+
+    @Test
+    void uploadRacingCollectionWritesTheObjectAgainFromItsStagingFile() throws Exception {
+        FileReference old = upload("notes", "a/1.txt");
+        String key = blobStore.key(old.getBlobHash());
+        release(old);
+
+        // The new upload sees the object still there and keeps its staging file...
+        BlobStore.StagedBlob staged = stage("notes");
+        blobStore.upload(staged);
+        assertThat(Files.exists(staged.file())).isTrue();
+
+        // ...the collector then removes the unreferenced row and the object...
+        blobStore.collectGarbage();
+        assertThat(storage.exists(key)).isFalse();
+
+        // ...so storing it writes the object again under the row lock
+        blobStore.store(staged, "a/2.txt", "notes.txt", "text/plain", UUID.randomUUID());
+
+        assertThat(storage.exists(key)).isTrue();
+        assertThat(refCounts).containsEntry(old.getBlobHash(), 1L);
+        assertThat(Files.exists(staged.file())).isFalse();
+    }
+
+    @Test
+    void collectionRacingAnUploadKeepsTheObjectReferencedAgain() throws Exception {
+        FileReference old = upload("notes", "a/1.txt");
+        String key = blobStore.key(old.getBlobHash());
+        release(old);
+
+        // Stored before the collector took the row: deleteIfUnreferenced finds it referenced
+        upload("notes", "a/2.txt");
+        blobStore.collectGarbage();
+
+        assertThat(storage.exists(key)).isTrue();
+        assertThat(refCounts).containsEntry(old.getBlobHash(), 1L);
+    }
+
+    @Test
+    void storeFailsWhenTheObjectAndTheStagingFileAreBothGone() throws Exception {
+        FileReference old = upload("notes", "a/1.txt");
+        release(old);
+        BlobStore.StagedBlob staged = stage("notes");
+        blobStore.upload(staged);
+        blobStore.collectGarbage();
+        Files.delete(staged.file());
+
+        assertThatThrownBy(() -> blobStore.store(staged, "a/2.txt", "notes.txt", "text/plain", UUID.randomUUID()))
+                .hasMessage("Lỗi khi lưu file, vui lòng tải lên lại");
+        // Only the first upload's reference was saved
+        verify(fileReferenceRepository).save(any());
+    }
+
+    @Test
+    void failedObjectDeletionRollsBackTheRowDeletion() throws Exception {
+        BlobStorage failing = mock(BlobStorage.class);
+        doThrow(new IOException("unavailable")).when(failing).delete(anyString());
+        BlobStore store = new BlobStore(fileBlobRepository, fileReferenceRepository, failing, transactionManager,
+                root.resolve("uploads").toString());
+        String hash = "ef".repeat(32);
+        refCounts.put(hash, 0L);
+
+        store.collectGarbage();
+
+        // Rolled back, so the row stays at zero references for the next sweep
+        verify(failing).delete("ef/" + hash);
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    private FileReference upload(String content, String path) throws Exception {
+        BlobStore.StagedBlob staged = stage(content);
+        blobStore.upload(staged);
+        return blobStore.store(staged, path, "notes.txt", "text/plain", UUID.randomUUID());
+    }
+
+    private BlobStore.StagedBlob stage(String content) throws Exception {
+        return blobStore.write(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), 1024);
+    }
+
+    private void releaseAndCollect(FileReference reference) {
+        release(reference).forEach(TransactionSynchronization::afterCommit);
+    }
+
+    /**
+     * Release the reference; the collection it registers for after commit is returned, not run
+     */
+    private List<TransactionSynchronization> release(FileReference reference) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            blobStore.release(reference);
+            return TransactionSynchronizationManager.getSynchronizations();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private List<Path> stagingFiles() throws Exception {
+        try (var files = Files.list(root.resolve("uploads/.blobs/staging"))) {
+            return files.toList();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.lms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CourseContentCacheTest {
+
+    private final UUID courseId = UUID.randomUUID();
+    private final CourseService.CourseContent content = new CourseService.CourseContent(List.of(), "\"v1\"");
+
+    @Test
+    void entryIsServedUntilInvalidated() {
+        CourseContentCache cache = new CourseContentCache(new SimpleMeterRegistry(), 10, 60);
+        cache.put(courseId, cache.currentVersion(courseId), content);
+
+        assertThat(cache.get(courseId)).isSameAs(content);
+        cache.invalidate(courseId);
+        assertThat(cache.get(courseId)).isNull();
+    }
+
+    @Test
+    void treeLoadedAcrossAWriteIsNotCached() {
+        CourseContentCache cache = new CourseContentCache(new SimpleMeterRegistry(), 10, 60);
+        long version = cache.currentVersion(courseId);
+        cache.invalidate(courseId);
+        cache.put(courseId, version, content);
+
+        assertThat(cache.get(courseId)).isNull();
+    }
+
+    @Test
+    void entryExpiresAfterItsTtlWithoutAnInvalidation() throws InterruptedException {
+        // A write through another node never invalidates this one
+        CourseContentCache cache = new CourseContentCache(new SimpleMeterRegistry(), 10, 0);
+        cache.put(courseId, cache.currentVersion(courseId), content);
+
+        Thread.sleep(5);
+
+        assertThat(cache.get(courseId)).isNull();
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.lms.service;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Heap used while reading a .docx, whole document versus streamed:
+ * {@code extractTextFromDocument} loads the package into an XWPFDocument and builds the text
+ * as one string, {@code streamParagraphs} reads word/document.xml with SAX and hands out one
+ * paragraph at a time. The document is generated in setup at {@code sizeMb} megabytes of
+ * compressed .docx, and the text cache is stubbed so every call parses.
+ * <p>
+ * Each call is one single-shot invocation in a fork limited to 1 GB of heap with a 16 MB
+ * young generation, so collections happen during the call. Two counters are reported per
+ * call: {@code peakLiveHeapMb}, the largest heap occupancy left after any collection in the
+ * call (what the parse was holding on to), and {@code allocatedMb}, what the calling thread
+ * allocated. JMH sums event counters over measured iterations and forks, so they read per
+ * call only with the one fork and one measured call set here.
+ * <pre>
+ * mvn -Pbenchmark -DskipTests test -Djmh.args="DocxStreamingBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g", "-Xmn16m"})
+public class DocxStreamingBenchmark {
+
+    private static final String[] WORDS = {
+            "bài", "học", "kiểm", "tra", "câu", "hỏi", "đáp", "án", "khóa", "sinh", "viên", "giảng",
+            "lesson", "quiz", "answer", "course", "student", "teacher", "chapter", "section"
+    };
+
+    @Param({"1", "10"})
+    public int sizeMb;
+
+    private DocumentParserService parser;
+    private Path docx;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        parser = new DocumentParserService(mock(ExtractedTextCache.class, withSettings().stubOnly()));
+        docx = Files.createTempFile("docx-streaming-", ".docx");
+        writeDocx(docx, sizeMb * 1024L * 1024L);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(docx);
+    }
+
+    @Benchmark
+    public int extractTextFromDocument(HeapCounters counters) throws IOException {
+        return parser.extractTextFromDocument(docx, "questions.docx").length();
+    }
+
+    @Benchmark
+    public int streamParagraphs(HeapCounters counters) throws IOException {
+        int[] chars = new int[1];
+        parser.streamParagraphs(docx, "questions.docx", paragraph -> chars[0] += paragraph.length());
+        return chars[0];
+    }
+
+    /**
+     * Heap figures of one invocation. Occupancy after collection comes from the collectors'
+     * notifications, which are delivered on another thread: teardown waits until every
+     * collection counted by the MXBeans has been seen.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class HeapCounters implements NotificationListener {
+        public double peakLiveHeapMb;
+        public double allocatedMb;
+
+        private final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        private volatile long peakAfterGc;
+        private volatile long notified;
+        private long collectionsBefore;
+        private long allocatedBefore;
+
+        @Setup(Level.Trial)
+        public void listen() {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stopListening() throws Exception {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) collector).removeNotificationListener(this);
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void start() throws InterruptedException {
+            System.gc();
+            awaitNotifications(collections());
+            peakAfterGc = 0;
+            collectionsBefore = collections();
+            allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        }
+
+        @TearDown(Level.Invocation)
+        public void stop() throws InterruptedException {
+            allocatedMb = (threads.getCurrentThreadAllocatedBytes() - allocatedBefore) / (1024.0 * 1024.0);
+            long collections = collections();
+            awaitNotifications(collections);
+            peakLiveHeapMb = collections > collectionsBefore ? peakAfterGc / (1024.0 * 1024.0) : 0;
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long used = info.getGcInfo().getMemoryUsageAfterGc().values().stream()
+                    .mapToLong(MemoryUsage::getUsed)
+                    .sum();
+            synchronized (this) {
+                peakAfterGc = Math.max(peakAfterGc, used);
+                notified++;
+            }
+        }
+
+        private void awaitNotifications(long collections) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (notified < collections && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+
+        private static long collections() {
+            long count = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                count += Math.max(0, collector.getCollectionCount());
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Minimal WordprocessingML package of random question-like paragraphs, written until the
+     * compressed file reaches {@code targetBytes}
+     */
+    private static void writeDocx(Path file, long targetBytes) throws IOException {
+        long[] written = new long[1];
+        OutputStream counting = new FilterOutputStream(new BufferedOutputStream(Files.newOutputStream(file))) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                written[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                written[0] += len;
+            }
+        };
+        try (ZipOutputStream zip = new ZipOutputStream(counting)) {
+            Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+            zip.putNextEntry(new ZipEntry("[Content_Types].xml"));
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                    + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                    + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                    + "<Override PartName=\"/word/document.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.wordprocessingml.document.main+xml\"/>"
+                    + "</Types>");
+            writer.flush();
+            zip.putNextEntry(new ZipEntry("_rels/.rels"));
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"word/document.xml\"/>"
+                    + "</Relationships>");
+            writer.flush();
+            zip.putNextEntry(new ZipEntry("word/document.xml"));
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<w:document xmlns:w=\"http://schemas.openxmlformats.org/wordprocessingml/2006/main\"><w:body>");
+            Random random = new Random(42);
+            for (int n = 1; written[0] < targetBytes; n++) {
+                writer.write("<w:p><w:r><w:t xml:space=\"preserve\">Câu " + n + ":");
+                int words = 8 + random.nextInt(24);
+                for (int i = 0; i < words; i++) {
+                    writer.write(' ');
+                    writer.write(WORDS[random.nextInt(WORDS.length)]);
+                    writer.write(Integer.toString(random.nextInt(1000)));
+                }
+                writer.write("</w:t></w:r></w:p>");
+                if (n % 256 == 0) {
+                    writer.flush();
+                }
+            }
+            writer.write("</w:body></w:document>");
+            writer.flush();
+            zip.closeEntry();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.lms.service;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.FileAppender;
+import com.example.lms.config.RequestLoggingFilter;
+import com.example.lms.config.SampledDebugTurboFilter;
+import com.example.lms.entity.Question;
+import com.example.lms.entity.Quiz;
+import com.example.lms.entity.QuizQuestion;
+import com.example.lms.entity.User;
+import com.example.lms.repository.QuizQuestionRepository;
+import com.example.lms.repository.QuizRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Requests per second through the login and quiz-question paths on four threads, with the
+ * debug output they used to print to stdout versus the sampled, asynchronous SLF4J logging
+ * that replaced it. Both paths run the real {@link AuthenticationService#authenticate} and
+ * {@link QuizService#getQuizQuestions(UUID)} against stub-only repositories; the password
+ * check is stubbed so logging is not hidden behind bcrypt.
+ * <ul>
+ *   <li>{@code stdout}: the removed {@code System.out} lines are printed with every request
+ *   and SLF4J is off. Output goes to a file through an autoflushing stream, as System.out
+ *   does; a terminal or container log is slower still.</li>
+ *   <li>{@code async-sampled}: logback set up like logback-spring.xml, an AsyncAppender
+ *   (queue 8192, never blocking) in front of the same file, root at INFO and
+ *   {@link SampledDebugTurboFilter} letting DEBUG through for {@code sampleRate} of the
+ *   requests, as {@link RequestLoggingFilter} marks them.</li>
+ * </ul>
+ * <pre>
+ * mvn -Pbenchmark -DskipTests test -Djmh.args="HotPathLoggingBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class HotPathLoggingBenchmark {
+
+    private static final int QUESTIONS = 20;
+
+    @Param({"stdout", "async-sampled"})
+    public String logging;
+
+    @Param({"0.01"})
+    public double sampleRate;
+
+    private AuthenticationService authenticationService;
+    private QuizService quizService;
+    private AuthenticationService.AuthenticationRequest login;
+    private UUID lessonId;
+    private UUID quizId;
+    private User user;
+
+    private Path logFile;
+    private PrintStream originalOut;
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logFile = Files.createTempFile("hot-path-logging-", ".log");
+        configureLogging();
+
+        user = User.builder()
+                .id(UUID.randomUUID())
+                .username("student1")
+                .email("student1@example.com")
+                .password("$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z3s0n5pGEmP3L8Zs6yq3hG2e")
+                .fullName("Nguyễn Văn A")
+                .role(User.Role.STUDENT)
+                .build();
+        UserService userService = mock(UserService.class, withSettings().stubOnly());
+        when(userService.findByUsername("student1")).thenReturn(Optional.of(user));
+        JwtService jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "jwtSecret", "9a4f2c8d3b7e5f1a0c6d8e2f4a9b3c7d5e1f0a2b4c6d8e9f1a3b5c7d9e0f2a4b");
+        ReflectionTestUtils.setField(jwtService, "jwtExpirationInMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtService, "refreshExpirationInMs", 86_400_000);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        authenticationService = new AuthenticationService(userService, jwtService, authentication -> authentication);
+        login = new AuthenticationService.AuthenticationRequest("student1", "secret123");
+
+        lessonId = UUID.randomUUID();
+        quizId = UUID.randomUUID();
+        Quiz quiz = Quiz.builder().id(quizId).build();
+        List<QuizQuestion> quizQuestions = new ArrayList<>();
+        for (int i = 0; i < QUESTIONS; i++) {
+            quizQuestions.add(QuizQuestion.builder()
+                    .quiz(quiz)
+                    .question(Question.builder().id(UUID.randomUUID()).build())
+                    .displayOrder(i)
+                    .build());
+        }
+        QuizRepository quizRepository = mock(QuizRepository.class, withSettings().stubOnly());
+        when(quizRepository.findAllByLessonId(lessonId)).thenReturn(List.of(quiz));
+        when(quizRepository.findByLessonId(lessonId)).thenReturn(Optional.of(quiz));
+        QuizQuestionRepository quizQuestionRepository = mock(QuizQuestionRepository.class, withSettings().stubOnly());
+        when(quizQuestionRepository.findByQuizIdOrderByDisplayOrderAsc(quizId)).thenReturn(quizQuestions);
+        quizService = new QuizService(quizRepository, null, null, null, quizQuestionRepository,
+                null, null, null, null, null, new ObjectMapper());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+        if (originalOut != null) {
+            System.setOut(originalOut);
+            out.close();
+        }
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public AuthenticationService.AuthenticationResponse login() {
+        sampleRequest();
+        try {
+            if (logging.equals("stdout")) {
+                printLogin();
+            }
+            return authenticationService.authenticate(login);
+        } finally {
+            MDC.remove(RequestLoggingFilter.SAMPLED_KEY);
+        }
+    }
+
+    @Benchmark
+    public List<Question> quizQuestions() {
+        sampleRequest();
+        try {
+            List<Question> questions = quizService.getQuizQuestions(lessonId);
+            if (logging.equals("stdout")) {
+                printQuizQuestions(questions.size());
+            }
+            return questions;
+        } finally {
+            MDC.remove(RequestLoggingFilter.SAMPLED_KEY);
+        }
+    }
+
+    private void sampleRequest() {
+        if (ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            MDC.put(RequestLoggingFilter.SAMPLED_KEY, "true");
+        }
+    }
+
+    /**
+     * What AuthController and authenticate printed for a login before the move to SLF4J
+     */
+    private void printLogin() {
+        String identifier = login.getEmail();
+        System.out.println("=== LOGIN CONTROLLER DEBUG ===");
+        System.out.println("Login request received: " + identifier);
+        System.out.println("Password length: " + (login.getPassword() != null ? login.getPassword().length() : 0));
+        System.out.println("=== AUTH DEBUG ===");
+        System.out.println("Login attempt with identifier: " + identifier);
+        System.out.println("Password provided: " + (login.getPassword() != null ? "[PROVIDED]" : "[NULL]"));
+        System.out.println("Password length: " + (login.getPassword() != null ? login.getPassword().length() : 0));
+        System.out.println("Found by username: " + true);
+        System.out.println("User found: " + user.getUsername() + ", email: " + user.getEmail());
+        System.out.println("User enabled: " + user.isEnabled());
+        System.out.println("User password hash: " + user.getPassword().substring(0, 20) + "...");
+        System.out.println("Attempting authentication with username: " + user.getUsername());
+        System.out.println("Authentication successful");
+        System.out.println("Login successful for user: " + user.getUsername());
+    }
+
+    /**
+     * What the JWT filter and getQuizQuestions printed for a question request
+     */
+    private void printQuizQuestions(int count) {
+        System.out.println("=== JWT DEBUG FOR QUESTIONS ===");
+        System.out.println("Request URI: /api/v1/lessons/" + lessonId + "/quiz/questions");
+        System.out.println("JWT Token present: " + true);
+        System.out.println("JWT Token: eyJhbGciOiJIUzI1NiJ9...");
+        System.out.println("Extracted username: " + user.getUsername());
+        System.out.println("Loaded UserDetails: " + user.getUsername());
+        System.out.println("User Authorities: " + user.getAuthorities());
+        System.out.println("✅ JWT Token is valid");
+        System.out.println("✅ Authentication set in SecurityContext");
+        System.out.println("🔍 DEBUG: Getting questions for quiz ID: " + quizId);
+        System.out.println("🔍 DEBUG: Found " + count + " quiz-question relationships in table");
+        System.out.println("🔍 DEBUG: Returning " + count + " questions from QuizQuestion table");
+    }
+
+    private void configureLogging() throws IOException {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        ch.qos.logback.classic.Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+
+        if (logging.equals("stdout")) {
+            root.setLevel(ch.qos.logback.classic.Level.OFF);
+            originalOut = System.out;
+            out = new PrintStream(new BufferedOutputStream(new FileOutputStream(logFile.toFile()), 8192), true);
+            System.setOut(out);
+            return;
+        }
+
+        SampledDebugTurboFilter turboFilter = new SampledDebugTurboFilter();
+        turboFilter.setLoggerPrefix("com.example.lms");
+        turboFilter.setContext(context);
+        turboFilter.start();
+        context.addTurboFilter(turboFilter);
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p [%X{requestId:-}] %-40.40logger{39} : %m%n%wEx");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> file = new FileAppender<>();
+        file.setContext(context);
+        file.setFile(logFile.toString());
+        file.setEncoder(encoder);
+        file.start();
+
+        AsyncAppender async = new AsyncAppender();
+        async.setContext(context);
+        async.setQueueSize(8192);
+        async.setNeverBlock(true);
+        async.addAppender(file);
+        async.start();
+
+        root.setLevel(ch.qos.logback.classic.Level.INFO);
+        root.addAppender(async);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.lms.service;
+
+import com.example.lms.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Tokens verified per second by the JWT filter's path, before and after the parser and key
+ * were built once: {@code perCallParser} decodes the hex key and builds a parser for each of
+ * the three claim reads the filter used to make (username, then username and expiration in
+ * isTokenValid); {@code verifyOnce} is {@link JwtService#verify} plus the validity check on
+ * its result. Allocation per token is reported with the gc profiler:
+ * <pre>
+ * mvn -Pbenchmark -DskipTests test -Djmh.args="JwtVerifyBenchmark -prof gc"
+ * </pre>
+ * and read from {@code gc.alloc.rate.norm} (bytes per token).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    private static final String SECRET = "9a4f2c8d3b7e5f1a0c6d8e2f4a9b3c7d5e1f0a2b4c6d8e9f1a3b5c7d9e0f2a4b";
+
+    private JwtService jwtService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtService, "jwtExpirationInMs", 3_600_000);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+        user = User.builder()
+                .id(UUID.randomUUID())
+                .username("student1")
+                .role(User.Role.STUDENT)
+                .build();
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean perCallParser() {
+        String username = claim(token, Claims::getSubject);
+        if (username == null) {
+            return false;
+        }
+        // isTokenValid(String, UserDetails) as it was: two more verifications
+        return claim(token, Claims::getSubject).equals(user.getUsername())
+                && !claim(token, Claims::getExpiration).before(new Date());
+    }
+
+    @Benchmark
+    public boolean verifyOnce() {
+        return jwtService.isTokenValid(jwtService.verify(token), user);
+    }
+
+    /**
+     * Claim read of the old JwtService: key decoded and parser built on every call
+     */
+    private static <T> T claim(String token, Function<Claims, T> resolver) {
+        SecretKey key = Keys.hmacShaKeyFor(HexFormat.of().parseHex(SECRET));
+        Claims claims = Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+        return resolver.apply(claims);
+    }
+}
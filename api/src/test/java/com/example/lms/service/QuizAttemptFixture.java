@@ -0,0 +1,72 @@
+package com.example.lms.service;
+
+import com.example.lms.entity.Course;
+import com.example.lms.entity.Lesson;
+import com.example.lms.entity.Question;
+import com.example.lms.entity.QuestionOption;
+import com.example.lms.entity.Quiz;
+import com.example.lms.entity.QuizQuestion;
+import com.example.lms.entity.Section;
+import com.example.lms.entity.User;
+import jakarta.persistence.EntityManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A course with one quiz lesson of four-option questions, and students to start it
+ */
+record QuizAttemptFixture(UUID lessonId, UUID quizId, List<User> students) {
+
+    static QuizAttemptFixture create(TransactionTemplate transactionTemplate, EntityManager entityManager,
+                                     int questions, int students) {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        return transactionTemplate.execute(status -> {
+            User teacher = user("teacher-" + run, User.Role.TEACHER);
+            entityManager.persist(teacher);
+
+            Course course = Course.builder().code("BENCH-" + run).title("Benchmark").teacher(teacher).build();
+            entityManager.persist(course);
+            Section section = Section.builder().course(course).title("Section").build();
+            entityManager.persist(section);
+            Lesson lesson = Lesson.builder().section(section).title("Quiz lesson").build();
+            entityManager.persist(lesson);
+            Quiz quiz = Quiz.builder().lesson(lesson).maxAttempts(1).build();
+            entityManager.persist(quiz);
+
+            for (int i = 0; i < questions; i++) {
+                Question question = Question.builder()
+                        .content("Question " + i)
+                        .correctOption("A")
+                        .createdBy(teacher)
+                        .course(course)
+                        .build();
+                for (String key : List.of("A", "B", "C", "D")) {
+                    question.getOptions().add(QuestionOption.builder().question(question).optionKey(key).content("Option " + key).build());
+                }
+                entityManager.persist(question);
+                entityManager.persist(QuizQuestion.builder().quiz(quiz).question(question).displayOrder(i + 1).build());
+            }
+
+            List<User> created = new ArrayList<>();
+            for (int i = 0; i < students; i++) {
+                User student = user("student" + i + "-" + run, User.Role.STUDENT);
+                entityManager.persist(student);
+                created.add(student);
+            }
+            return new QuizAttemptFixture(lesson.getId(), quiz.getId(), created);
+        });
+    }
+
+    private static User user(String username, User.Role role) {
+        return User.builder()
+                .username(username)
+                .email(username + "@benchmark.local")
+                .password("{noop}benchmark")
+                .fullName(username)
+                .role(role)
+                .build();
+    }
+}
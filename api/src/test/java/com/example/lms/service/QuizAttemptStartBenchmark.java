@@ -0,0 +1,128 @@
+package com.example.lms.service;
+
+import com.example.lms.BackendLmsPostgresApplication;
+import com.example.lms.entity.QuizAttempt;
+import com.example.lms.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Attempt start under a burst: 1,000 students start a 100-question quiz at once, each
+ * iteration on a fresh quiz and fresh students. The application runs against PostgreSQL in
+ * Docker with a pool of 20 connections; the score is the time until every start has returned,
+ * so starts per second is 1,000 divided by it.
+ * <pre>
+ * mvn -Pbenchmark -DskipTests test -Djmh.args="QuizAttemptStartBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QuizAttemptStartBenchmark {
+
+    private static final int STUDENTS = 1000;
+    private static final int QUESTIONS = 100;
+
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext context;
+    private QuizService quizService;
+    private JdbcTemplate jdbcTemplate;
+    private QuizAttemptFixture fixture;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+        context = new SpringApplicationBuilder(BackendLmsPostgresApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword(),
+                "--spring.datasource.hikari.maximum-pool-size=20",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.flyway.enabled=false");
+        quizService = context.getBean(QuizService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        if (context != null) {
+            context.close();
+        }
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createQuiz() {
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        fixture = QuizAttemptFixture.create(context.getBean(TransactionTemplate.class), entityManager,
+                QUESTIONS, STUDENTS);
+        // Snapshot compiled once, as it would be after the first start
+        quizService.getCompiledQuiz(fixture.lessonId());
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkItems() {
+        Long items = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM quiz_attempt_items i JOIN quiz_attempts a ON a.id = i.attempt_id WHERE a.quiz_id = ?",
+                Long.class, fixture.quizId());
+        if (items == null || items != (long) STUDENTS * QUESTIONS) {
+            throw new IllegalStateException("Expected " + STUDENTS * QUESTIONS + " attempt items, found " + items);
+        }
+    }
+
+    @Benchmark
+    public int thousandConcurrentStarts() throws Exception {
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<QuizAttempt>> starts = new ArrayList<>();
+        int started = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (User student : fixture.students()) {
+                starts.add(executor.submit(() -> {
+                    go.await();
+                    return quizService.startAttempt(student, fixture.lessonId());
+                }));
+            }
+            go.countDown();
+            for (Future<QuizAttempt> start : starts) {
+                if (start.get(2, TimeUnit.MINUTES).getStatus() == QuizAttempt.Status.IN_PROGRESS) {
+                    started++;
+                }
+            }
+        }
+        return started;
+    }
+}
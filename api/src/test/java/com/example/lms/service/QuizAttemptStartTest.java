@@ -0,0 +1,63 @@
+package com.example.lms.service;
+
+import com.example.lms.config.QueryCounter;
+import com.example.lms.entity.QuizAttempt;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Attempt start against PostgreSQL in Docker; skipped where Docker is not available. The
+ * burst of concurrent starts is measured by {@link QuizAttemptStartBenchmark}.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class QuizAttemptStartTest {
+
+    private static final int QUESTIONS = 100;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void schema(DynamicPropertyRegistry registry) {
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.flyway.enabled", () -> "false");
+    }
+
+    @Autowired
+    private QuizService quizService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void startInsertsItemsInJdbcBatches() {
+        QuizAttemptFixture fixture = QuizAttemptFixture.create(transactionTemplate, entityManager, QUESTIONS, 1);
+        // Snapshot compiled once, as it would be after the first start
+        quizService.getCompiledQuiz(fixture.lessonId());
+
+        QueryCounter.start();
+        QuizAttempt attempt = quizService.startAttempt(fixture.students().get(0), fixture.lessonId());
+        int statements = QueryCounter.stop();
+
+        assertThat(attempt.getItems()).hasSize(QUESTIONS);
+        // Attempt checks, the attempt row and its items in batches of 50; one per item without batching
+        assertThat(statements).isLessThanOrEqualTo(6);
+    }
+}
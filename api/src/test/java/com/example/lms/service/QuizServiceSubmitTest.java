@@ -0,0 +1,157 @@
+package com.example.lms.service;
+
+import com.example.lms.entity.Question;
+import com.example.lms.entity.Quiz;
+import com.example.lms.entity.QuizAttempt;
+import com.example.lms.entity.QuizAttemptItem;
+import com.example.lms.repository.QuestionRepository;
+import com.example.lms.repository.QuizAttemptRepository;
+import com.example.lms.repository.QuizQuestionRepository;
+import com.example.lms.repository.QuizRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Submits around the attempt's deadline
+ */
+@ExtendWith(MockitoExtension.class)
+class QuizServiceSubmitTest {
+
+    @Mock
+    private QuizRepository quizRepository;
+    @Mock
+    private QuizAttemptRepository attemptRepository;
+    @Mock
+    private QuestionRepository questionRepository;
+    @Mock
+    private QuestionService questionService;
+    @Mock
+    private QuizQuestionRepository quizQuestionRepository;
+    @Mock
+    private CourseCounterService courseCounterService;
+    @Mock
+    private QuizSnapshotCache quizSnapshotCache;
+    @Mock
+    private AnswerAutosaveBuffer answerAutosaveBuffer;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AttemptDeadlineWheel wheel;
+    private QuizService quizService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        wheel = new AttemptDeadlineWheel(new SimpleMeterRegistry(), 1000, 64, 10);
+        quizService = new QuizService(quizRepository, attemptRepository, questionRepository, questionService,
+                quizQuestionRepository, courseCounterService, quizSnapshotCache, answerAutosaveBuffer, wheel,
+                new TransactionTemplate(transactionManager), new ObjectMapper());
+    }
+
+    @Test
+    void submitAfterAKnownDeadlineIsRefusedWithoutAQuery() {
+        UUID attemptId = UUID.randomUUID();
+        wheel.schedule(attemptId, Instant.now().minus(Duration.ofMinutes(1)));
+
+        assertThatThrownBy(() -> quizService.submitAttempt(attemptId, Map.of()))
+                .hasMessage("Đã hết thời gian làm bài");
+
+        verifyNoInteractions(attemptRepository, answerAutosaveBuffer, transactionManager);
+    }
+
+    @Test
+    void lateSubmitOfAnAttemptStartedElsewhereIsRefusedAndKeepsItsAutosaves() {
+        // Not on this node's wheel: the deadline is read from the locked attempt
+        QuizAttempt attempt = attempt(Instant.now().minus(Duration.ofMinutes(11)), 10);
+        Map<UUID, AnswerAutosaveBuffer.PendingAnswer> autosaved = autosaved(attempt);
+        when(answerAutosaveBuffer.drain(attempt.getId())).thenReturn(autosaved);
+        when(attemptRepository.lockById(attempt.getId())).thenReturn(Optional.of(attempt));
+
+        assertThatThrownBy(() -> quizService.submitAttempt(attempt.getId(), Map.of()))
+                .hasMessage("Đã hết thời gian làm bài");
+
+        assertThat(attempt.getStatus()).isEqualTo(QuizAttempt.Status.IN_PROGRESS);
+        verify(answerAutosaveBuffer).restore(attempt.getId(), autosaved);
+        verify(answerAutosaveBuffer, never()).written(anyMap());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    void submitWithinGraceIsGradedAndCountsAutosavesAfterCommit() {
+        // Ten minutes are up, the grace of ten seconds is not
+        QuizAttempt attempt = attempt(Instant.now().minus(Duration.ofMinutes(10)).minusSeconds(5), 10);
+        UUID questionId = attempt.getItems().get(0).getQuestion().getId();
+        Map<UUID, AnswerAutosaveBuffer.PendingAnswer> autosaved = autosaved(attempt);
+        when(answerAutosaveBuffer.drain(attempt.getId())).thenReturn(autosaved);
+        when(attemptRepository.lockById(attempt.getId())).thenReturn(Optional.of(attempt));
+        when(attemptRepository.save(attempt)).thenReturn(attempt);
+        when(questionRepository.findAnswerKeys(any())).thenReturn(List.of(answerKey(questionId, "B")));
+
+        QuizAttempt submitted = quizService.submitAttempt(attempt.getId(), Map.of());
+
+        assertThat(submitted.getStatus()).isEqualTo(QuizAttempt.Status.SUBMITTED);
+        assertThat(submitted.getCorrectAnswers()).isEqualTo(1);
+        verify(transactionManager).commit(any());
+        verify(answerAutosaveBuffer).written(autosaved);
+        verify(answerAutosaveBuffer, never()).restore(any(), anyMap());
+    }
+
+    private static QuizAttempt attempt(Instant startTime, int timeLimitMinutes) {
+        QuizAttempt attempt = QuizAttempt.builder()
+                .id(UUID.randomUUID())
+                .quiz(Quiz.builder().timeLimitMinutes(timeLimitMinutes).passingScore(60).build())
+                .startTime(startTime)
+                .totalQuestions(1)
+                .build();
+        attempt.getItems().add(QuizAttemptItem.builder()
+                .attempt(attempt)
+                .question(Question.builder().id(UUID.randomUUID()).build())
+                .build());
+        return attempt;
+    }
+
+    private static Map<UUID, AnswerAutosaveBuffer.PendingAnswer> autosaved(QuizAttempt attempt) {
+        UUID questionId = attempt.getItems().get(0).getQuestion().getId();
+        long now = System.currentTimeMillis();
+        return Map.of(questionId, new AnswerAutosaveBuffer.PendingAnswer("B", 30L, now, now));
+    }
+
+    private static QuestionRepository.AnswerKey answerKey(UUID id, String correctOption) {
+        return new QuestionRepository.AnswerKey() {
+            @Override
+            public UUID getId() {
+                return id;
+            }
+
+            @Override
+            public String getCorrectOption() {
+                return correctOption;
+            }
+        };
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.lms.service;
+
+import com.example.lms.controller.FileUploadController;
+import com.example.lms.entity.UploadSession;
+import com.example.lms.entity.User;
+import com.example.lms.repository.FileBlobRepository;
+import com.example.lms.repository.FileReferenceRepository;
+import com.example.lms.repository.UploadSessionChunkRepository;
+import com.example.lms.repository.UploadSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+/**
+ * Resumable uploads whose chunks reach different nodes: each node has its own staging
+ * directory, all of them share the blob storage
+ */
+@ExtendWith(MockitoExtension.class)
+class ResumableUploadServiceTest {
+
+    private static final String CONTENT = "0123456789";
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+    @Mock
+    private UploadSessionChunkRepository uploadSessionChunkRepository;
+    @Mock
+    private FileBlobRepository fileBlobRepository;
+    @Mock
+    private FileReferenceRepository fileReferenceRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path root;
+
+    private final User owner = User.builder().id(UUID.randomUUID()).build();
+    private final Set<Integer> recordedChunks = new TreeSet<>();
+    private UploadSession stored;
+    private LocalBlobStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(uploadSessionRepository.save(any())).thenAnswer(call -> {
+            UploadSession session = call.getArgument(0);
+            if (session.getId() == null) {
+                session.setId(UUID.randomUUID());
+            }
+            stored = session;
+            return session;
+        });
+        lenient().when(uploadSessionRepository.findById(any())).thenAnswer(call -> Optional.ofNullable(stored));
+        lenient().when(uploadSessionRepository.lockById(any())).thenAnswer(call -> Optional.ofNullable(stored));
+        lenient().when(uploadSessionChunkRepository.record(any(), anyInt())).thenAnswer(call ->
+                recordedChunks.add(call.getArgument(1)) ? 1 : 0);
+        lenient().when(uploadSessionChunkRepository.countBySessionId(any())).thenAnswer(call -> (long) recordedChunks.size());
+        lenient().when(uploadSessionChunkRepository.findChunkIndexes(any())).thenAnswer(call -> recordedChunks.stream().toList());
+        lenient().when(fileBlobRepository.acquire(anyString(), anyLong())).thenReturn(1);
+        lenient().when(fileReferenceRepository.save(any())).thenAnswer(call -> call.getArgument(0));
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+        storage = new LocalBlobStorage(root.resolve("blobs").toString());
+    }
+
+    @Test
+    void chunksSentToDifferentNodesAreJoinedByTheNodeThatCompletes() throws Exception {
+        ResumableUploadService first = node("a");
+        ResumableUploadService second = node("b");
+        String token = first.createSession(owner, "notes.txt", "notes_x.txt", "documents", CONTENT.length()).token();
+
+        assertThat(second.writeChunk(token, owner, 4, 4, body("4567")).missingChunks()).containsExactly(0, 2);
+        first.writeChunk(token, owner, 0, 4, body("0123"));
+        assertThat(second.writeChunk(token, owner, 8, 2, body("89")).missingChunks()).isEmpty();
+
+        FileUploadController.FileUploadResponse response = node("c").complete(token, owner, null);
+
+        String key = new BlobStore(fileBlobRepository, fileReferenceRepository, storage, transactionManager,
+                root.resolve("c").toString()).key(response.getChecksum());
+        try (InputStream in = storage.get(key)) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(CONTENT);
+        }
+        assertThat(stored.getStatus()).isEqualTo(UploadSession.Status.COMPLETED);
+        // The chunks are gone once the file is stored
+        assertThat(storage.exists("parts/" + stored.getId() + "/0")).isFalse();
+    }
+
+    @Test
+    void completeFailsWhenARecordedChunkIsNoLongerStored() throws Exception {
+        ResumableUploadService node = node("a");
+        String token = node.createSession(owner, "notes.txt", "notes_x.txt", "documents", CONTENT.length()).token();
+        node.writeChunk(token, owner, 0, 4, body("0123"));
+        node.writeChunk(token, owner, 4, 4, body("4567"));
+        node.writeChunk(token, owner, 8, 2, body("89"));
+        storage.delete("parts/" + stored.getId() + "/1");
+
+        assertThatThrownBy(() -> node.complete(token, owner, null))
+                .hasMessage("Dữ liệu của một phần đã bị mất, vui lòng tải lên lại");
+        assertThat(stored.getStatus()).isEqualTo(UploadSession.Status.UPLOADING);
+    }
+
+    @Test
+    void shortChunkIsNotRecorded() {
+        ResumableUploadService node = node("a");
+        String token = node.createSession(owner, "notes.txt", "notes_x.txt", "documents", CONTENT.length()).token();
+
+        assertThatThrownBy(() -> node.writeChunk(token, owner, 0, -1, body("01")))
+                .hasMessage("Phần 0 chưa đầy đủ: nhận 2/4 bytes");
+        assertThat(recordedChunks).isEmpty();
+        assertThat(storage.exists("parts/" + stored.getId() + "/0")).isFalse();
+    }
+
+    /**
+     * One API node: its own staging directory, the shared storage and database
+     */
+    private ResumableUploadService node(String name) {
+        BlobStore blobStore = new BlobStore(fileBlobRepository, fileReferenceRepository, storage, transactionManager,
+                root.resolve(name).toString());
+        return new ResumableUploadService(uploadSessionRepository, uploadSessionChunkRepository, blobStore,
+                transactionManager, "http://localhost", "secret", 4, 24);
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.lms.service;
+
+import com.example.lms.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserPrincipalCacheTest {
+
+    private final UserPrincipalCache cache = new UserPrincipalCache(new SimpleMeterRegistry(), 300, 10);
+
+    @Test
+    void cachedPrincipalCarriesEveryColumnOfTheRow() {
+        User row = User.builder()
+                .id(UUID.randomUUID())
+                .username("student1")
+                .email("student1@example.com")
+                .password("{bcrypt}hash")
+                .fullName("Nguyễn Văn A")
+                .role(User.Role.STUDENT)
+                .createdAt(Instant.parse("2024-05-01T00:00:00Z"))
+                .authEpoch(2)
+                .build();
+        cache.put("student1", 1000L, row);
+
+        User principal = cache.get("student1", 1000L);
+
+        assertThat(principal).isNotSameAs(row);
+        assertThat(principal).usingRecursiveComparison()
+                .ignoringFields("tokenPrincipal", "enrolledCourses")
+                .isEqualTo(row);
+        // Writers still load the row
+        assertThat(principal.isTokenPrincipal()).isTrue();
+    }
+
+    @Test
+    void everyHitBuildsItsOwnPrincipal() {
+        cache.put("student1", 1000L, User.builder().id(UUID.randomUUID()).username("student1").build());
+
+        assertThat(cache.get("student1", 1000L)).isNotSameAs(cache.get("student1", 1000L));
+    }
+}